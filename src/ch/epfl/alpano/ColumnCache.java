@@ -0,0 +1,347 @@
+package ch.epfl.alpano;
+
+import static ch.epfl.alpano.Math2.PI2;
+import static ch.epfl.alpano.Math2.angularDistance;
+import static ch.epfl.alpano.Preconditions.checkArgument;
+import static java.lang.Math.PI;
+import static java.lang.Math.abs;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache des colonnes calculées par un PanoramaComputer, indexées par leur
+ * azimut. Une colonne ne dépend que de son azimut, des réglages du
+ * PanoramaComputer qui l'a calculée (MNT, calcul de la pente, pas des profils
+ * denses, pyramide, index des altitudes maximales, affinage des racines,
+ * calcul par colonnes entières, mode de stockage) et des paramètres de
+ * l'observateur (position, altitude, distance maximale), de l'angle d'un
+ * pixel et de la hauteur du Panorama : lorsque seul l'azimut central change,
+ * les colonnes déjà calculées sont réutilisées et seule la plage d'azimuts
+ * nouvellement visible est calculée.
+ *
+ * <p>
+ * Une colonne est réutilisée si son azimut est à moins de la tolérance
+ * donnée, exprimée en pixels, de celui demandé. Avec une tolérance non nulle,
+ * une colonne peut donc être remplacée par une colonne voisine, décalée d'au
+ * plus cette tolérance : après un déplacement de l'azimut central, le
+ * Panorama obtenu n'est alors pas identique à celui que calculerait un
+ * PanoramaComputer sans cache.
+ *
+ * <p>
+ * Le cache ne conserve que les colonnes des derniers réglages et paramètres
+ * rencontrés : lorsque l'un d'eux change, il passe à une nouvelle génération
+ * de colonnes, vide. Un calcul lancé avant ce changement continue de lire et
+ * d'inscrire ses colonnes dans sa propre génération, que le cache ne conserve
+ * plus. Le cache peut ainsi être partagé entre plusieurs PanoramaComputer
+ * sans jamais mélanger leurs colonnes, mais il n'est utile qu'entre des
+ * PanoramaComputer de mêmes réglages. Peut être utilisé par plusieurs fils
+ * d'exécution à la fois.
+ *
+ * <p>
+ * La taille du cache est bornée en nombre d'échantillons : chaque colonne
+ * conserve un échantillon de {@value #BYTES_PER_SAMPLE} octets par ligne du
+ * Panorama, ciel compris. La borne est respectée à chaque insertion, en
+ * supprimant les colonnes les plus éloignées de l'azimut central du dernier
+ * calcul préparé, y compris pendant un calcul qui sera annulé.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+public final class ColumnCache {
+
+    /**
+     * Taille d'un échantillon d'une colonne, en octets : cinq float.
+     */
+    public static final int BYTES_PER_SAMPLE = 5 * Float.BYTES;
+
+    /**
+     * Écart maximal entre l'azimut d'une colonne réutilisée et celui demandé,
+     * en pixels.
+     */
+    private final double tolerance;
+
+    /**
+     * Nombre maximal d'échantillons conservés.
+     */
+    private final long maxSamples;
+
+    /**
+     * La génération des colonnes actuellement conservées, remplacée en bloc
+     * lorsque les paramètres changent.
+     */
+    private volatile Generation generation;
+
+    private final LongAdder hits, misses;
+
+    /**
+     * Construit un cache vide.
+     *
+     * @param tolerance
+     *            L'écart maximal entre l'azimut d'une colonne réutilisée et
+     *            celui demandé, en pixels, compris entre 0 et 0.5. Une
+     *            tolérance nulle ne réutilise que les colonnes de même azimut,
+     *            aux erreurs d'arrondi près ; sinon, une colonne peut être
+     *            décalée d'au plus cette tolérance.
+     * @param maxSamples
+     *            Le nombre maximal d'échantillons conservés, strictement
+     *            positif. Une colonne compte autant d'échantillons que le
+     *            Panorama a de lignes ; au moins une colonne est toujours
+     *            conservée.
+     *
+     * @throws IllegalArgumentException
+     *             si l'une des conditions précitées n'est pas remplie.
+     */
+    public ColumnCache(double tolerance, long maxSamples) {
+        checkArgument(0 <= tolerance && tolerance <= 0.5,
+                "The given tolerance is not between 0 and 0.5.");
+        checkArgument(0 < maxSamples,
+                "The given maximum number of samples is not strictly positive.");
+        this.tolerance = tolerance;
+        this.maxSamples = maxSamples;
+        this.generation = null;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Prépare le cache au calcul d'un Panorama : une nouvelle génération, vide,
+     * remplace la génération courante si les réglages ou les paramètres dont
+     * dépendent les colonnes ont changé. L'azimut central du Panorama devient
+     * celui autour duquel les colonnes sont conservées.
+     *
+     * @param settings
+     *            Les réglages du PanoramaComputer dont dépendent les
+     *            colonnes, comparés à l'aide de leur méthode equals.
+     * @param parameters
+     *            Les paramètres du Panorama à calculer.
+     *
+     * @return La génération des colonnes du calcul, à passer aux autres
+     *         méthodes.
+     */
+    synchronized Generation prepare(List<?> settings,
+            PanoramaParameters parameters) {
+        Key k = new Key(settings, parameters);
+        Generation g = generation;
+        if (g == null || !k.equals(g.key)) {
+            int maxColumns = (int) Math.max(1,
+                    Math.min(Integer.MAX_VALUE, maxSamples / k.height));
+            g = new Generation(k, maxColumns);
+            generation = g;
+        }
+        g.centerAzimuth = parameters.centerAzimuth();
+        return g;
+    }
+
+    /**
+     * Retourne la colonne de la génération donnée la plus proche de l'azimut
+     * donné, à la tolérance près, ou null s'il n'y en a pas.
+     */
+    Column get(Generation g, double azimuth) {
+        double maxDistance = tolerance * g.key.delta + 1e-9 * g.key.delta;
+        Column c = g.nearest(azimuth, maxDistance);
+        if (c == null && azimuth < maxDistance)
+            c = g.nearest(azimuth + PI2, maxDistance);
+        if (c == null && azimuth > PI2 - maxDistance)
+            c = g.nearest(azimuth - PI2, maxDistance);
+        (c == null ? misses : hits).increment();
+        return c;
+    }
+
+    /**
+     * Conserve la colonne d'azimut donné dans la génération donnée, puis
+     * supprime les colonnes les plus éloignées de l'azimut central tant que
+     * la génération contient plus d'échantillons que le maximum. Si le cache
+     * est passé à une autre génération depuis, la colonne n'y sera jamais
+     * lue.
+     */
+    void put(Generation g, double azimuth, Column column) {
+        if (g.columns.put(azimuth, column) == null)
+            g.size.incrementAndGet();
+        while (g.size.get() > g.maxColumns) {
+            Double farthest = g.farthestFrom(g.centerAzimuth);
+            if (farthest != null && g.columns.remove(farthest) != null)
+                g.size.decrementAndGet();
+        }
+    }
+
+    /**
+     * Retourne le nombre de colonnes conservées.
+     *
+     * @return Le nombre de colonnes conservées.
+     */
+    public int size() {
+        Generation g = generation;
+        return g == null ? 0 : g.size.get();
+    }
+
+    /**
+     * Retourne le nombre d'échantillons des colonnes conservées.
+     *
+     * @return Le nombre d'échantillons conservés.
+     */
+    public long samples() {
+        Generation g = generation;
+        return g == null ? 0 : (long) g.size.get() * g.key.height;
+    }
+
+    /**
+     * Retourne le nombre de colonnes réutilisées depuis la construction.
+     *
+     * @return Le nombre de colonnes réutilisées.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Retourne le nombre de colonnes calculées faute d'avoir été trouvées
+     * dans le cache depuis la construction.
+     *
+     * @return Le nombre de colonnes calculées.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Colonnes calculées pour les mêmes réglages et paramètres, indexées par
+     * leur azimut.
+     */
+    static final class Generation {
+        private final Key key;
+        private final ConcurrentSkipListMap<Double, Column> columns;
+
+        /**
+         * Nombre de colonnes de la génération, la taille d'une
+         * ConcurrentSkipListMap n'étant pas calculée en temps constant.
+         */
+        private final AtomicInteger size;
+
+        private final int maxColumns;
+
+        /**
+         * Azimut central du dernier calcul préparé avec cette génération.
+         */
+        private volatile double centerAzimuth;
+
+        private Generation(Key key, int maxColumns) {
+            this.key = key;
+            this.columns = new ConcurrentSkipListMap<>();
+            this.size = new AtomicInteger();
+            this.maxColumns = maxColumns;
+        }
+
+        private Column nearest(double azimuth, double maxDistance) {
+            Map.Entry<Double, Column> below = columns.floorEntry(azimuth);
+            Map.Entry<Double, Column> above = columns.ceilingEntry(azimuth);
+            double dBelow = below == null ? Double.POSITIVE_INFINITY
+                    : azimuth - below.getKey();
+            double dAbove = above == null ? Double.POSITIVE_INFINITY
+                    : above.getKey() - azimuth;
+            if (dBelow <= dAbove)
+                return dBelow <= maxDistance ? below.getValue() : null;
+            return dAbove <= maxDistance ? above.getValue() : null;
+        }
+
+        /**
+         * Retourne l'azimut de la colonne la plus éloignée de l'azimut
+         * donné, ou null s'il n'y a aucune colonne. Il s'agit de l'une des
+         * deux colonnes entourant l'azimut opposé, le tour d'horizon étant
+         * parcouru circulairement.
+         */
+        private Double farthestFrom(double azimuth) {
+            double opposite = Azimuth.canonicalize(azimuth + PI);
+            Double below = columns.floorKey(opposite);
+            Double above = columns.ceilingKey(opposite);
+            if (below == null && !columns.isEmpty())
+                below = columns.lastKey();
+            if (above == null && !columns.isEmpty())
+                above = columns.firstKey();
+            if (below == null || above == null)
+                return below == null ? above : below;
+            return abs(angularDistance(azimuth, below)) >= abs(
+                    angularDistance(azimuth, above)) ? below : above;
+        }
+    }
+
+    /**
+     * Réglages et paramètres dont dépendent les colonnes d'un Panorama,
+     * hormis leur azimut.
+     */
+    static final class Key {
+        private final List<?> settings;
+        private final double longitude, latitude, delta;
+        private final int elevation, maxDistance, height;
+
+        private Key(List<?> settings, PanoramaParameters p) {
+            this.settings = settings;
+            this.longitude = p.observerPosition().longitude();
+            this.latitude = p.observerPosition().latitude();
+            this.delta = p.delta();
+            this.elevation = p.observerElevation();
+            this.maxDistance = p.maxDistance();
+            this.height = p.height();
+        }
+
+        @Override
+        public boolean equals(Object that) {
+            if (!(that instanceof Key))
+                return false;
+            Key k = (Key) that;
+            return settings.equals(k.settings) && longitude == k.longitude
+                    && latitude == k.latitude && delta == k.delta
+                    && elevation == k.elevation
+                    && maxDistance == k.maxDistance && height == k.height;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(settings, longitude, latitude, delta,
+                    elevation, maxDistance, height);
+        }
+    }
+
+    /**
+     * Échantillons d'une colonne, de haut en bas. Les échantillons de ciel
+     * gardent une distance infinie.
+     */
+    static final class Column {
+        private final float[] distance, longitude, latitude, elevation, slope;
+
+        Column(int height) {
+            this.distance = new float[height];
+            this.longitude = new float[height];
+            this.latitude = new float[height];
+            this.elevation = new float[height];
+            this.slope = new float[height];
+            Arrays.fill(distance, Float.POSITIVE_INFINITY);
+        }
+
+        void set(int y, float distance, float longitude, float latitude,
+                float elevation, float slope) {
+            this.distance[y] = distance;
+            this.longitude[y] = longitude;
+            this.latitude[y] = latitude;
+            this.elevation[y] = elevation;
+            this.slope[y] = slope;
+        }
+
+        /**
+         * Inscrit les échantillons de la colonne dans la colonne donnée du
+         * Builder. Les échantillons de ciel n'y sont pas inscrits.
+         */
+        void copyTo(Panorama.Builder pb, int x) {
+            for (int y = 0; y < distance.length; ++y)
+                if (distance[y] != Float.POSITIVE_INFINITY)
+                    pb.setSampleAt(x, y, distance[y], longitude[y],
+                            latitude[y], elevation[y], slope[y]);
+        }
+    }
+
+}
@@ -173,7 +173,9 @@ public interface Math2 {
 
     /**
      * Effectue une recherche dichotomique dans un intervalle contenant une
-     * racine afin de trouver de trouver une valeur précise.
+     * racine afin de trouver de trouver une valeur précise. La valeur de la
+     * fonction à la borne inférieure est conservée d'une itération à l'autre :
+     * chaque itération n'évalue la fonction qu'une fois.
      * 
      * @param f
      *            Fonction dont on souhaite trouver une racine.
@@ -191,16 +193,154 @@ public interface Math2 {
      */
     static double improveRoot(DoubleUnaryOperator f, double x1, double x2,
             double epsilon) {
-        checkArgument(f.applyAsDouble(x1) * f.applyAsDouble(x2) <= 0,
+        double f1 = f.applyAsDouble(x1);
+        checkArgument(f1 * f.applyAsDouble(x2) <= 0,
                 "The interval does not contain a root.");
         while (x2 - x1 > epsilon) {
             double mid = (x1 + x2) / 2.0;
-            if (f.applyAsDouble(x1) * f.applyAsDouble(mid) <= 0)
+            double fMid = f.applyAsDouble(mid);
+            if (f1 * fMid <= 0) {
                 x2 = mid;
-            else
+            } else {
                 x1 = mid;
+                f1 = fMid;
+            }
         }
         return x1;
     }
 
+    /**
+     * Affine une racine dans un intervalle la contenant par la méthode de la
+     * fausse position, dans sa variante d'Illinois : le nouveau point est
+     * l'intersection de la corde avec l'axe des abscisses, décalée d'un
+     * demi-epsilon vers la borne qui n'a pas été remplacée à l'itération
+     * précédente, et la valeur de la borne conservée deux fois de suite est
+     * divisée par deux, afin que les deux bornes se rapprochent de la racine.
+     * Si le point obtenu n'est pas
+     * strictement dans l'intervalle, ou si l'intervalle n'a pas diminué de
+     * moitié depuis deux itérations, une étape de dichotomie est effectuée à
+     * la place. La valeur de la fonction aux bornes est conservée d'une
+     * itération à l'autre.
+     * 
+     * @param f
+     *            Fonction dont on souhaite trouver une racine.
+     * @param x1
+     *            Borne inférieure de la recherche.
+     * @param x2
+     *            Borne supérieure de la recherche.
+     * @param epsilon
+     *            Tolérance d'erreur pour la valeur de retour.
+     * 
+     * @return La borne inférieure d'un intervalle de taille au plus epsilon
+     *         contenant une racine de la fonction, comme
+     *         {@link #improveRoot(DoubleUnaryOperator, double, double, double)}.
+     * 
+     * @throws IllegalArgumentException
+     *             si la fonction ne contient pas de racine dans l'intervalle.
+     */
+    static double improveRootIllinois(DoubleUnaryOperator f, double x1,
+            double x2, double epsilon) {
+        double f1 = f.applyAsDouble(x1), f2 = f.applyAsDouble(x2);
+        checkArgument(f1 * f2 <= 0, "The interval does not contain a root.");
+        // Borne remplacée à l'itération précédente (1 ou 2, 0 si aucune) et
+        // nombre d'itérations consécutives n'ayant pas réduit l'intervalle de
+        // moitié.
+        int replaced = 0, slow = 0;
+        while (x2 - x1 > epsilon) {
+            double width = x2 - x1;
+            double x = x1 - f1 * width / (f2 - f1);
+            // Le point est décalé d'un demi-epsilon vers la borne qui n'a pas
+            // été remplacée, afin de tomber de l'autre côté de la racine et
+            // de fermer l'intervalle.
+            if (replaced == 1)
+                x += epsilon / 2;
+            else if (replaced == 2)
+                x -= epsilon / 2;
+            if (!(x1 < x && x < x2) || slow >= 2) {
+                x = (x1 + x2) / 2.0;
+                slow = 0;
+            }
+            double fX = f.applyAsDouble(x);
+            if (f1 * fX <= 0) {
+                x2 = x;
+                f2 = fX;
+                if (replaced == 2)
+                    f1 /= 2;
+                replaced = 2;
+            } else {
+                x1 = x;
+                f1 = fX;
+                if (replaced == 1)
+                    f2 /= 2;
+                replaced = 1;
+            }
+            slow = x2 - x1 > width / 2 ? slow + 1 : 0;
+        }
+        return x1;
+    }
+
+    /**
+     * Convertit un float en nombre à virgule flottante de demi-précision
+     * (IEEE 754 binary16 : 1 bit de signe, 5 bits d'exposant et 10 bits de
+     * mantisse), arrondi au plus proche. Les valeurs trop grandes deviennent
+     * infinies, les infinis et NaN sont conservés.
+     * 
+     * @param v
+     *            La valeur à convertir.
+     * 
+     * @return Les 16 bits de la valeur en demi-précision.
+     */
+    static short toHalf(float v) {
+        int bits = Float.floatToIntBits(v);
+        int sign = bits >>> 16 & 0x8000;
+        int abs = bits & 0x7FFFFFFF;
+        if (abs >= 0x7F800000)
+            return (short) (sign | 0x7C00 | (abs > 0x7F800000 ? 0x200 : 0));
+        // 65520 et plus s'arrondissent à l'infini.
+        if (abs >= 0x477FF000)
+            return (short) (sign | 0x7C00);
+        int h, rest, half;
+        if (abs < 0x38800000) {
+            // Nombre dénormalisé en demi-précision, ou nul.
+            if (abs < 0x33000000)
+                return (short) sign;
+            int shift = 126 - (abs >>> 23);
+            int mantissa = abs & 0x7FFFFF | 0x800000;
+            h = mantissa >>> shift;
+            rest = mantissa & (1 << shift) - 1;
+            half = 1 << shift - 1;
+        } else {
+            h = (abs >>> 23) - 112 << 10 | abs >>> 13 & 0x3FF;
+            rest = abs & 0x1FFF;
+            half = 0x1000;
+        }
+        if (rest > half || rest == half && (h & 1) != 0)
+            ++h;
+        return (short) (sign | h);
+    }
+
+    /**
+     * Convertit un nombre à virgule flottante de demi-précision en float,
+     * sans perte.
+     * 
+     * @param h
+     *            Les 16 bits de la valeur en demi-précision.
+     * 
+     * @return La valeur correspondante.
+     * 
+     * @see #toHalf(float)
+     */
+    static float fromHalf(short h) {
+        int sign = (h & 0x8000) << 16;
+        int exponent = h >>> 10 & 0x1F;
+        int mantissa = h & 0x3FF;
+        if (exponent == 0)
+            return Float.intBitsToFloat(
+                    sign | Float.floatToIntBits(mantissa * 0x1p-24f));
+        if (exponent == 0x1F)
+            return Float.intBitsToFloat(sign | 0x7F800000 | mantissa << 13);
+        return Float.intBitsToFloat(
+                sign | exponent + 112 << 23 | mantissa << 13);
+    }
+
 }
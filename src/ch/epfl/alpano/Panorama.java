@@ -1,7 +1,14 @@
 package ch.epfl.alpano;
 
+import static ch.epfl.alpano.Math2.PI2;
+import static ch.epfl.alpano.Math2.fromHalf;
+import static ch.epfl.alpano.Math2.toHalf;
 import static java.lang.Float.POSITIVE_INFINITY;
+import static java.lang.Math.PI;
 import static java.lang.Math.abs;
+import static java.lang.Math.cos;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.util.Arrays.fill;
 import static java.util.Objects.requireNonNull;
 
@@ -12,6 +19,11 @@ import static java.util.Objects.requireNonNull;
  * position, son élévation et sa pente.
  * 
  * <p>
+ * Ces composantes sont stockées selon le mode choisi lors de la construction
+ * (voir {@link Storage}) : en float, ou sous une forme compacte et
+ * approximative.
+ * 
+ * <p>
  * Classe immuable ne pouvant être construite qu'à l'aide de son Builder.
  *
  * @author Robin Mamie (257234)
@@ -24,10 +36,15 @@ public final class Panorama {
      */
     private final PanoramaParameters parameters;
 
+    /**
+     * Le mode de stockage des composantes.
+     */
+    private final Storage storage;
+
     /**
      * Les composantes du Panorama.
      */
-    private final float[] distance, longitude, latitude, elevation, slope;
+    private final Samples samples;
 
     /**
      * Constructeur privé du Panorama ne pouvant être appelé que par son
@@ -35,27 +52,16 @@ public final class Panorama {
      * 
      * @param parameters
      *            Les paramètres du Panorama.
-     * @param distance
-     *            Les distances par rapport à l'observateur de chaque point du
-     *            Panorama.
-     * @param longitude
-     *            La longitude de chaque point du Panorama.
-     * @param latitude
-     *            La latitude de chaque point du Panorama.
-     * @param elevation
-     *            L'élévation de chaque point du Panorama.
-     * @param slope
-     *            La pente de chaque point du Panorama.
+     * @param storage
+     *            Le mode de stockage des composantes.
+     * @param samples
+     *            Les composantes de chaque point du Panorama.
      */
-    private Panorama(PanoramaParameters parameters, float[] distance,
-            float[] longitude, float[] latitude, float[] elevation,
-            float[] slope) {
+    private Panorama(PanoramaParameters parameters, Storage storage,
+            Samples samples) {
         this.parameters = parameters;
-        this.distance = distance;
-        this.longitude = longitude;
-        this.latitude = latitude;
-        this.elevation = elevation;
-        this.slope = slope;
+        this.storage = storage;
+        this.samples = samples;
     }
 
     /**
@@ -67,6 +73,25 @@ public final class Panorama {
         return parameters;
     }
 
+    /**
+     * Retourne le mode de stockage des composantes du Panorama.
+     * 
+     * @return Le mode de stockage des composantes.
+     */
+    public Storage storage() {
+        return storage;
+    }
+
+    /**
+     * Retourne la mémoire occupée par les composantes du Panorama.
+     * 
+     * @return Le nombre d'octets occupés par les composantes.
+     */
+    public long memoryUsage() {
+        return storage.bytesPerSample() * (long) parameters.width()
+                * parameters.height();
+    }
+
     /**
      * Permet aux différentes méthodes de la classe d'appeler le bon paramètre.
      * 
@@ -74,7 +99,7 @@ public final class Panorama {
      *            L'index horizontal.
      * @param y
      *            L'index vertical.
-     * @param parameter
+     * @param channel
      *            Le paramètre demandé.
      * 
      * @return La valeur du point au paramètre demandé.
@@ -82,10 +107,10 @@ public final class Panorama {
      * @throws IndexOutOfBoundsException
      *             si l'index n'est pas valide pour ce Panorama.
      */
-    private float getParameter(int x, int y, float[] parameter) {
+    private float getParameter(int x, int y, Channel channel) {
         if (!parameters.isValidSampleIndex(x, y))
             throw new IndexOutOfBoundsException();
-        return parameter[parameters.linearSampleIndex(x, y)];
+        return samples.get(channel, parameters.linearSampleIndex(x, y));
     }
 
     /**
@@ -105,7 +130,7 @@ public final class Panorama {
      *             si le point n'est pas défini dans le Panorama.
      */
     public float distanceAt(int x, int y) {
-        return getParameter(x, y, distance);
+        return getParameter(x, y, Channel.DISTANCE);
     }
 
     /**
@@ -146,7 +171,7 @@ public final class Panorama {
      *             si le point n'est pas défini dans le Panorama.
      */
     public float longitudeAt(int x, int y) {
-        return getParameter(x, y, longitude);
+        return getParameter(x, y, Channel.LONGITUDE);
     }
 
     /**
@@ -165,7 +190,7 @@ public final class Panorama {
      *             si le point n'est pas défini dans le Panorama.
      */
     public float latitudeAt(int x, int y) {
-        return getParameter(x, y, latitude);
+        return getParameter(x, y, Channel.LATITUDE);
     }
 
     /**
@@ -184,7 +209,7 @@ public final class Panorama {
      *             si le point n'est pas défini dans le Panorama.
      */
     public float elevationAt(int x, int y) {
-        return getParameter(x, y, elevation);
+        return getParameter(x, y, Channel.ELEVATION);
     }
 
     /**
@@ -202,7 +227,7 @@ public final class Panorama {
      *             si le point n'est pas défini dans le Panorama.
      */
     public float slopeAt(int x, int y) {
-        return getParameter(x, y, slope);
+        return getParameter(x, y, Channel.SLOPE);
     }
 
     public float absSlopeeAt(int x, int y, float d) {
@@ -211,6 +236,216 @@ public final class Panorama {
         return abs(slopeAt(x, y));
     }
 
+    /**
+     * Mode de stockage des composantes d'un Panorama, choisi lors de la
+     * construction de son Builder.
+     */
+    public enum Storage {
+
+        /**
+         * Chaque composante est stockée telle quelle dans un float : 20 octets
+         * par point.
+         */
+        FLOAT(20),
+
+        /**
+         * Chaque composante est stockée sous une forme compacte : 9 octets par
+         * point, soit 55 % de mémoire en moins que {@link #FLOAT}, au prix
+         * d'une quantification.
+         * <ul>
+         * <li>la distance, divisée par 16, en demi-précision (voir
+         * {@link Math2#toHalf(float)}) : erreur relative d'au plus 2<sup>-11</sup>,
+         * les distances infinies étant conservées ;</li>
+         * <li>la longitude et la latitude dans un short, en virgule fixe
+         * relativement à la position de l'observateur, l'intervalle couvert
+         * étant celui des points à moins de la distance maximale (pas de 4 m
+         * environ pour 100 km) ; celles des points de ciel valent celles de
+         * l'observateur ;</li>
+         * <li>l'élévation dans un short, par pas de 0.5 m ;</li>
+         * <li>la pente, entre 0 et π/2, dans un octet, par pas d'environ
+         * 0.35°.</li>
+         * </ul>
+         */
+        COMPACT(9);
+
+        private final int bytesPerSample;
+
+        private Storage(int bytesPerSample) {
+            this.bytesPerSample = bytesPerSample;
+        }
+
+        /**
+         * Retourne le nombre d'octets occupés par les composantes d'un point.
+         * 
+         * @return Le nombre d'octets par point.
+         */
+        public int bytesPerSample() {
+            return bytesPerSample;
+        }
+
+        /**
+         * Retourne la proportion de mémoire économisée par rapport au
+         * stockage en float.
+         * 
+         * @return La proportion de mémoire économisée, entre 0 et 1.
+         */
+        public double savings() {
+            return 1 - (double) bytesPerSample / FLOAT.bytesPerSample;
+        }
+    }
+
+    /**
+     * Les composantes d'un point.
+     */
+    private enum Channel {
+        DISTANCE, LONGITUDE, LATITUDE, ELEVATION, SLOPE
+    }
+
+    /**
+     * Les composantes de tous les points d'un Panorama, indexées par l'index
+     * linéaire des points.
+     */
+    private static abstract class Samples {
+
+        abstract float get(Channel channel, int i);
+
+        abstract void set(Channel channel, int i, float value);
+
+        void set(int i, float distance, float longitude, float latitude,
+                float elevation, float slope) {
+            set(Channel.DISTANCE, i, distance);
+            set(Channel.LONGITUDE, i, longitude);
+            set(Channel.LATITUDE, i, latitude);
+            set(Channel.ELEVATION, i, elevation);
+            set(Channel.SLOPE, i, slope);
+        }
+    }
+
+    /**
+     * Composantes stockées en float (voir {@link Storage#FLOAT}).
+     */
+    private static final class FloatSamples extends Samples {
+
+        private final float[][] values;
+
+        FloatSamples(int size) {
+            this.values = new float[Channel.values().length][size];
+            fill(values[Channel.DISTANCE.ordinal()], POSITIVE_INFINITY);
+        }
+
+        @Override
+        float get(Channel channel, int i) {
+            return values[channel.ordinal()][i];
+        }
+
+        @Override
+        void set(Channel channel, int i, float value) {
+            values[channel.ordinal()][i] = value;
+        }
+    }
+
+    /**
+     * Composantes stockées sous forme compacte (voir {@link Storage#COMPACT}).
+     */
+    private static final class CompactSamples extends Samples {
+
+        /**
+         * Facteur par lequel les distances sont divisées avant d'être
+         * converties en demi-précision, afin que les distances jusqu'à 1000 km
+         * environ restent finies. Puissance de deux, la division est exacte.
+         */
+        private static final float DISTANCE_SCALE = 16;
+
+        /**
+         * Plus grande valeur finie en demi-précision.
+         */
+        private static final float MAX_HALF = 65504;
+
+        private static final float ELEVATION_STEP = 0.5f;
+
+        private static final float SLOPE_STEP = (float) (PI / 2 / 255);
+
+        private final short[] distance, longitude, latitude, elevation;
+        private final byte[] slope;
+
+        private final double observerLongitude, observerLatitude;
+        private final double longitudeStep, latitudeStep;
+
+        CompactSamples(PanoramaParameters parameters) {
+            int size = parameters.width() * parameters.height();
+            this.distance = new short[size];
+            this.longitude = new short[size];
+            this.latitude = new short[size];
+            this.elevation = new short[size];
+            this.slope = new byte[size];
+            fill(distance, toHalf(POSITIVE_INFINITY));
+
+            GeoPoint observer = parameters.observerPosition();
+            this.observerLongitude = observer.longitude();
+            this.observerLatitude = observer.latitude();
+            // Écart maximal en latitude et en longitude des points à moins de
+            // la distance maximale, la longitude étant bornée par π.
+            double range = Distance.toRadians(parameters.maxDistance());
+            double c = cos(min(abs(observerLatitude) + range, PI / 2));
+            this.latitudeStep = range / Short.MAX_VALUE;
+            this.longitudeStep = (c * PI <= range ? PI : range / c)
+                    / Short.MAX_VALUE;
+        }
+
+        @Override
+        float get(Channel channel, int i) {
+            switch (channel) {
+            case DISTANCE:
+                return fromHalf(distance[i]) * DISTANCE_SCALE;
+            case LONGITUDE:
+                double lon = observerLongitude + longitude[i] * longitudeStep;
+                return (float) (lon > PI ? lon - PI2
+                        : lon < -PI ? lon + PI2 : lon);
+            case LATITUDE:
+                return (float) (observerLatitude + latitude[i] * latitudeStep);
+            case ELEVATION:
+                return elevation[i] * ELEVATION_STEP;
+            default:
+                return (slope[i] & 0xFF) * SLOPE_STEP;
+            }
+        }
+
+        @Override
+        void set(Channel channel, int i, float value) {
+            switch (channel) {
+            case DISTANCE:
+                float d = value / DISTANCE_SCALE;
+                distance[i] = toHalf(d == POSITIVE_INFINITY ? d
+                        : min(d, MAX_HALF));
+                break;
+            case LONGITUDE:
+                double lon = value - observerLongitude;
+                lon = lon > PI ? lon - PI2 : lon < -PI ? lon + PI2 : lon;
+                longitude[i] = quantize(lon / longitudeStep);
+                break;
+            case LATITUDE:
+                latitude[i] = quantize(
+                        (value - observerLatitude) / latitudeStep);
+                break;
+            case ELEVATION:
+                elevation[i] = quantize(value / ELEVATION_STEP);
+                break;
+            default:
+                slope[i] = (byte) max(0,
+                        min(Math.round(value / SLOPE_STEP), 255));
+                break;
+            }
+        }
+
+        /**
+         * Arrondit la valeur donnée au short le plus proche.
+         */
+        private static short quantize(double value) {
+            return (short) max(Short.MIN_VALUE,
+                    min(Math.round(value), Short.MAX_VALUE));
+        }
+    }
+
     /**
      * Classe utilitaire non immuable permettant de construire un panorama qui
      * lui sera immuable.
@@ -225,10 +460,15 @@ public final class Panorama {
          */
         private final PanoramaParameters parameters;
 
+        /**
+         * Le mode de stockage des composantes.
+         */
+        private final Storage storage;
+
         /**
          * Les composantes du Panorama.
          */
-        private float[] distance, longitude, latitude, elevation, slope;
+        private Samples samples;
 
         /**
          * Permet d'indiquer si le Panorama.Builder a déjà été construit une
@@ -238,7 +478,7 @@ public final class Panorama {
 
         /**
          * Constructeur du Builder de Panorama. Demande les paramètres du
-         * Panorama en argument.
+         * Panorama en argument. Les composantes sont stockées en float.
          * 
          * @param parameters
          *            Les paramètres du Panorama.
@@ -247,17 +487,30 @@ public final class Panorama {
          *             si le PanoramaParameters passé en argument est null.
          */
         public Builder(PanoramaParameters parameters) {
+            this(parameters, Storage.FLOAT);
+        }
+
+        /**
+         * Constructeur du Builder de Panorama. Demande les paramètres du
+         * Panorama et le mode de stockage de ses composantes en argument.
+         * 
+         * @param parameters
+         *            Les paramètres du Panorama.
+         * @param storage
+         *            Le mode de stockage des composantes.
+         * 
+         * @throws NullPointerException
+         *             si l'un des arguments est null.
+         */
+        public Builder(PanoramaParameters parameters, Storage storage) {
             this.parameters = requireNonNull(parameters,
                     "The given parameters are null.");
-            int size = parameters.width() * parameters.height();
-
-            this.distance = new float[size];
-            this.longitude = new float[size];
-            this.latitude = new float[size];
-            this.elevation = new float[size];
-            this.slope = new float[size];
-
-            fill(this.distance, POSITIVE_INFINITY);
+            this.storage = requireNonNull(storage,
+                    "The given storage is null.");
+            this.samples = storage == Storage.FLOAT
+                    ? new FloatSamples(
+                            parameters.width() * parameters.height())
+                    : new CompactSamples(parameters);
 
             this.built = false;
         }
@@ -270,7 +523,7 @@ public final class Panorama {
          *            L'index horizontal.
          * @param y
          *            L'index vertical.
-         * @param parameter
+         * @param channel
          *            Le paramètre à set.
          * @param value
          *            La valeur à set dans le paramètre.
@@ -283,14 +536,14 @@ public final class Panorama {
          * @throws IndexOutOfBoundsException
          *             si l'index n'est pas valide pour ce Panorama.
          */
-        private Builder setParameter(int x, int y, float[] parameter,
+        private Builder setParameter(int x, int y, Channel channel,
                 float value) {
             if (built)
                 throw new IllegalStateException(
                         "The Panorama Builder was already built, cannot add elements.");
             if (!parameters.isValidSampleIndex(x, y))
                 throw new IndexOutOfBoundsException();
-            parameter[parameters.linearSampleIndex(x, y)] = value;
+            samples.set(channel, parameters.linearSampleIndex(x, y), value);
             return this;
         }
 
@@ -314,7 +567,7 @@ public final class Panorama {
          *             si le point n'est pas défini dans le Panorama.
          */
         public Builder setDistanceAt(int x, int y, float distance) {
-            return setParameter(x, y, this.distance, distance);
+            return setParameter(x, y, Channel.DISTANCE, distance);
         }
 
         /**
@@ -336,7 +589,7 @@ public final class Panorama {
          *             si le point n'est pas défini dans le Panorama.
          */
         public Builder setLongitudeAt(int x, int y, float longitude) {
-            return setParameter(x, y, this.longitude, longitude);
+            return setParameter(x, y, Channel.LONGITUDE, longitude);
         }
 
         /**
@@ -358,7 +611,7 @@ public final class Panorama {
          *             si le point n'est pas défini dans le Panorama.
          */
         public Builder setLatitudeAt(int x, int y, float latitude) {
-            return setParameter(x, y, this.latitude, latitude);
+            return setParameter(x, y, Channel.LATITUDE, latitude);
         }
 
         /**
@@ -380,7 +633,7 @@ public final class Panorama {
          *             si le point n'est pas défini dans le Panorama.
          */
         public Builder setElevationAt(int x, int y, float elevation) {
-            return setParameter(x, y, this.elevation, elevation);
+            return setParameter(x, y, Channel.ELEVATION, elevation);
         }
 
         /**
@@ -402,7 +655,56 @@ public final class Panorama {
          *             si le point n'est pas défini dans le Panorama.
          */
         public Builder setSlopeAt(int x, int y, float slope) {
-            return setParameter(x, y, this.slope, slope);
+            return setParameter(x, y, Channel.SLOPE, slope);
+        }
+
+        /**
+         * Redéfinit toutes les composantes du point <i>(x,y)</i> du Panorama en
+         * une seule fois.
+         * 
+         * <p>
+         * Les composantes du Builder ne sont pas protégées par un verrou :
+         * plusieurs fils d'exécution peuvent y écrire simultanément tant
+         * qu'ils écrivent des points disjoints (par exemple des colonnes
+         * différentes). Les écritures doivent toutes se terminer avant l'appel
+         * à {@link #build()}, par exemple en attendant la fin des fils
+         * d'exécution (join), ce qui suffit à les rendre visibles au Panorama
+         * construit.
+         * 
+         * @param x
+         *            L'index horizontal.
+         * @param y
+         *            L'index vertical.
+         * @param distance
+         *            La distance du point par rapport à l'observateur.
+         * @param longitude
+         *            La longitude du point.
+         * @param latitude
+         *            La latitude du point.
+         * @param elevation
+         *            L'élévation du point.
+         * @param slope
+         *            La pente du point.
+         * 
+         * @return L'instance actualisée du Builder.
+         * 
+         * @throws IllegalStateException
+         *             si un Panorama a déjà été construit à l'aide de ce
+         *             Builder.
+         * @throws IndexOutOfBoundsException
+         *             si le point n'est pas défini dans le Panorama.
+         */
+        public Builder setSampleAt(int x, int y, float distance,
+                float longitude, float latitude, float elevation,
+                float slope) {
+            if (built)
+                throw new IllegalStateException(
+                        "The Panorama Builder was already built, cannot add elements.");
+            if (!parameters.isValidSampleIndex(x, y))
+                throw new IndexOutOfBoundsException();
+            samples.set(parameters.linearSampleIndex(x, y), distance,
+                    longitude, latitude, elevation, slope);
+            return this;
         }
 
         /**
@@ -419,13 +721,8 @@ public final class Panorama {
                 throw new IllegalStateException(
                         "The Panorama Builder was already built.");
             this.built = true;
-            Panorama p = new Panorama(parameters, distance, longitude, latitude,
-                    elevation, slope);
-            distance = null;
-            longitude = null;
-            latitude = null;
-            elevation = null;
-            slope = null;
+            Panorama p = new Panorama(parameters, storage, samples);
+            samples = null;
             return p;
         }
 
@@ -3,24 +3,37 @@ package ch.epfl.alpano;
 import static ch.epfl.alpano.Distance.EARTH_RADIUS;
 import static ch.epfl.alpano.Math2.firstIntervalContainingRoot;
 import static ch.epfl.alpano.Math2.improveRoot;
+import static ch.epfl.alpano.Math2.improveRootIllinois;
+import static ch.epfl.alpano.Preconditions.checkArgument;
 import static java.lang.Double.POSITIVE_INFINITY;
 import static java.lang.Math.cos;
 import static java.lang.Math.tan;
 import static java.util.Objects.requireNonNull;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.DoubleUnaryOperator;
 
 import ch.epfl.alpano.dem.ContinuousElevationModel;
+import ch.epfl.alpano.dem.DemPyramid;
 import ch.epfl.alpano.dem.ElevationProfile;
+import ch.epfl.alpano.dem.MaxElevationIndex;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 
 /**
- * Classe permettant de calculer un Panorama à l'aide d'un MNT continu. Classe
- * immuable.
+ * Classe permettant de calculer un Panorama à l'aide d'un MNT continu. Sa
+ * configuration est immuable et ses instances peuvent être partagées entre
+ * plusieurs fils d'exécution ; seuls ses compteurs de statistiques, sa
+ * propriété d'avancement et son éventuel cache de colonnes, eux-mêmes sûrs,
+ * évoluent d'un calcul à l'autre.
  *
  * @author Robin Mamie (257234)
  * @author Maxence Jouve (269716)
@@ -47,16 +60,149 @@ public final class PanoramaComputer {
      */
     private static final double EPSILON = 4;
 
-    private static final int THREAD_SPACING = 20;
+    /**
+     * Nombre de points espacés de EPSILON dans un intervalle de recherche.
+     */
+    private static final int SUBSTEPS = (int) (INTERVAL / EPSILON);
+
+    /**
+     * Longueur des segments de l'enveloppe de l'horizon d'une colonne.
+     */
+    private static final double SKIP_LENGTH = 16 * INTERVAL;
+
+    /**
+     * Marge (en mètres) exigée entre le rayon et le majorant du terrain pour
+     * sauter un segment, qui couvre les erreurs d'arrondi des deux calculs.
+     */
+    private static final double SKIP_MARGIN = 1;
+
+    /**
+     * Nombre de colonnes en dessous duquel une plage de colonnes n'est plus
+     * divisée entre plusieurs tâches.
+     */
+    private static final int MIN_COLUMNS_PER_TASK = 4;
+
+    /**
+     * Nombre de tâches en attente tolérées dans la file d'un fil d'exécution
+     * avant qu'il ne cesse de diviser sa plage de colonnes. Les tâches en
+     * attente sont volées par les fils inoccupés, ce qui équilibre les colonnes
+     * de ciel (peu coûteuses) et les colonnes de montagnes.
+     */
+    private static final int SURPLUS_THRESHOLD = 3;
+
+    /**
+     * Groupe de fils d'exécution utilisé par défaut, dimensionné selon le
+     * nombre de cœurs disponibles.
+     */
+    private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool();
 
     /**
      * MNT continu passé au constructeur.
      */
     private final ContinuousElevationModel dem;
 
+    private final boolean slopeNecessary;
+
+    /**
+     * Groupe de fils d'exécution calculant les colonnes du Panorama.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Pas d'échantillonnage des profils denses (en mètres), ou 0 si les profils
+     * consultent le MNT à chaque appel.
+     */
+    private final double profileStep;
+
+    /**
+     * Pyramide utilisée pour le terrain lointain, ou null.
+     */
+    private final DemPyramid pyramid;
+
+    /**
+     * Index des altitudes maximales du MNT, ou null.
+     */
+    private final MaxElevationIndex maxIndex;
+
+    /**
+     * Méthode d'affinage des racines.
+     */
+    private final RootRefinement refinement;
+
+    /**
+     * Indique si les rayons d'une colonne sont avancés ensemble.
+     */
+    private final boolean batchColumns;
+
+    /**
+     * Cache des colonnes, ou null.
+     */
+    private final ColumnCache cache;
+
+    /**
+     * Réglages dont dépendent les colonnes calculées, qui les distinguent
+     * dans le cache des colonnes.
+     */
+    private final List<Object> columnSettings;
+
+    /**
+     * Mode de stockage des composantes des Panorama calculés.
+     */
+    private final Panorama.Storage storage;
+
+    /**
+     * Nombre de pas de la recherche de racine sautés grâce à l'index et
+     * nombre de pas pour lesquels la fonction a été évaluée, depuis la
+     * construction.
+     */
+    private final LongAdder skippedSteps, marchedSteps;
+
+    /**
+     * Avancement du dernier calcul, entre 0 et 1.
+     */
     private final DoubleProperty status;
 
-    private final boolean slopeNecessary;
+    /**
+     * Constructeur de la classe PanoramaComputer prenant un MNT continu et le
+     * groupe de fils d'exécution à utiliser en argument.
+     * 
+     * @param dem
+     *            Le MNT continu qui permettra de construire le Panorama.
+     * @param slopeNecessary
+     *            Indique si la pente de chaque point doit être calculée.
+     * @param pool
+     *            Le groupe de fils d'exécution calculant les colonnes.
+     * 
+     * @throws NullPointerException
+     *             si le MNT ou le groupe passés en argument sont null.
+     */
+    public PanoramaComputer(ContinuousElevationModel dem,
+            boolean slopeNecessary, ForkJoinPool pool) {
+        this(new Builder(dem).setSlopeNecessary(slopeNecessary).setPool(pool));
+    }
+
+    /**
+     * Constructeur privé utilisé par les autres constructeurs et par le
+     * bâtisseur, qui reprend la configuration courante du bâtisseur donné.
+     */
+    private PanoramaComputer(Builder builder) {
+        this.dem = builder.dem;
+        this.slopeNecessary = builder.slopeNecessary;
+        this.pool = builder.pool;
+        this.profileStep = builder.profileStep;
+        this.pyramid = builder.pyramid;
+        this.maxIndex = builder.maxIndex;
+        this.refinement = builder.refinement;
+        this.batchColumns = builder.batchColumns;
+        this.cache = builder.cache;
+        this.storage = builder.storage;
+        this.columnSettings = Collections.unmodifiableList(Arrays.asList(dem,
+                slopeNecessary, profileStep, pyramid, maxIndex, refinement,
+                batchColumns, storage));
+        this.skippedSteps = new LongAdder();
+        this.marchedSteps = new LongAdder();
+        this.status = new SimpleDoubleProperty(0d);
+    }
 
     /**
      * Constructeur de la classe PanoramaComputer prenant un MNT continu en
@@ -64,16 +210,15 @@ public final class PanoramaComputer {
      * 
      * @param dem
      *            Le MNT continu qui permettra de construire le Panorama.
+     * @param slopeNecessary
+     *            Indique si la pente de chaque point doit être calculée.
      * 
      * @throws NullPointerException
      *             si le MNT passé en argument est null.
      */
     public PanoramaComputer(ContinuousElevationModel dem,
             boolean slopeNecessary) {
-        this.dem = requireNonNull(dem,
-                "The given ContinuousElevationModel is null.");
-        status = new SimpleDoubleProperty(0d);
-        this.slopeNecessary = slopeNecessary;
+        this(dem, slopeNecessary, DEFAULT_POOL);
     }
     
     public PanoramaComputer(ContinuousElevationModel dem) {
@@ -91,63 +236,561 @@ public final class PanoramaComputer {
      */
     public Panorama computePanorama(PanoramaParameters parameters)
             throws InterruptedException {
-        Panorama.Builder pb = new Panorama.Builder(parameters);
-        List<Thread> threads = new ArrayList<>();
-        status.set(0d);
-        double statusIncrement = 1d / parameters.width();
-        for (int i = 0; i < parameters.width(); i += THREAD_SPACING) {
-            final int stop = i + THREAD_SPACING > parameters.width()
-                    ? parameters.width() : i + THREAD_SPACING;
-            threads.add(createThread(parameters, pb, i, stop, statusIncrement));
-        }
-        for (Thread r : threads)
-            r.start();
-        for (Thread r : threads)
-            r.join();
-        return pb.build();
-    }
-
-    private Thread createThread(PanoramaParameters parameters,
-            Panorama.Builder pb, int start, int stop, double statusIncrement) {
-        return new Thread() {
-            @Override
-            public void run() {
-                for (int x = start; x < stop; ++x) {
-                    ElevationProfile profile = new ElevationProfile(dem,
-                            parameters.observerPosition(),
-                            parameters.azimuthForX(x),
-                            parameters.maxDistance());
-                    double dist = 0;
-                    for (int y = parameters.height() - 1; y >= 0; --y) {
-                        double angle = parameters.altitudeForY(y);
-                        DoubleUnaryOperator f = rayToGroundDistance(profile,
-                                parameters.observerElevation(), tan(angle));
-                        dist = firstIntervalContainingRoot(f, dist,
-                                parameters.maxDistance(), INTERVAL);
-                        if (dist == POSITIVE_INFINITY)
-                            break;
-                        dist = improveRoot(f, dist, dist + INTERVAL, EPSILON);
-                        GeoPoint point = profile.positionAt(dist);
-                        float distance = (float) (dist / cos(angle));
-                        float longitude = (float) point.longitude();
-                        float latitude = (float) point.latitude();
-                        float elevation = (float) dem.elevationAt(point);
-                        float slope = slopeNecessary
-                                ? (float) dem.slopeAt(point) : 0;
-                        synchronized (pb) {
-                            pb.setDistanceAt(x, y, distance)
-                                    .setLongitudeAt(x, y, longitude)
-                                    .setLatitudeAt(x, y, latitude)
-                                    .setElevationAt(x, y, elevation)
-                                    .setSlopeAt(x, y, slope);
-                        }
-                    }
+        return computePanorama(parameters, ProgressListener.NONE);
+    }
+
+    /**
+     * Calcule le Panorama à l'aide des paramètres passés en argument en
+     * informant l'auditeur donné de l'avancement du calcul. L'auditeur est
+     * appelé depuis les fils d'exécution du calcul, au plus
+     * {@value ProgressTracker#MAX_UPDATES_PER_SECOND} fois par seconde.
+     * 
+     * <p>
+     * Le calcul peut être annulé en interrompant le fil d'exécution appelant :
+     * les tâches en cours s'arrêtent alors avant de commencer leur colonne
+     * suivante et la méthode lève InterruptedException.
+     * 
+     * @param parameters
+     *            Les paramètres qui définissent le Panorama à construire.
+     * @param listener
+     *            L'auditeur informé de la proportion de colonnes calculées.
+     * 
+     * @return Le Panorama créé à l'aide des paramètres passés en argument.
+     * @throws InterruptedException
+     *             si le fil d'exécution appelant est interrompu pendant le
+     *             calcul.
+     * @throws NullPointerException
+     *             si l'auditeur est null.
+     */
+    public Panorama computePanorama(PanoramaParameters parameters,
+            ProgressListener listener) throws InterruptedException {
+        requireNonNull(listener, "The given listener is null.");
+        Computation computation = new Computation(parameters, storage,
+                new ProgressTracker(parameters.width(), progress -> {
                     synchronized (status) {
-                        status.set(status.get() + statusIncrement);
+                        status.set(progress);
                     }
+                    listener.progressChanged(progress);
+                }),
+                cache == null ? null
+                        : cache.prepare(columnSettings, parameters));
+        ForkJoinTask<Void> task = pool
+                .submit(new ColumnTask(computation, 0, parameters.width()));
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            computation.cancelled = true;
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+        computation.progress.finish();
+        return computation.pb.build();
+    }
+
+    /**
+     * Calcule une colonne du Panorama et l'inscrit dans le Builder, ou l'y
+     * recopie depuis le cache des colonnes s'il la contient.
+     * 
+     * @param computation
+     *            Le calcul en cours.
+     * @param x
+     *            L'index de la colonne.
+     */
+    private void computeColumn(Computation computation, int x) {
+        PanoramaParameters parameters = computation.parameters;
+        if (computation.columns == null) {
+            computeColumn(parameters, computation.pb, x, null);
+            return;
+        }
+        double azimuth = parameters.azimuthForX(x);
+        ColumnCache.Column column = cache.get(computation.columns, azimuth);
+        if (column != null) {
+            column.copyTo(computation.pb, x);
+        } else {
+            column = new ColumnCache.Column(parameters.height());
+            computeColumn(parameters, computation.pb, x, column);
+            cache.put(computation.columns, azimuth, column);
+        }
+    }
+
+    /**
+     * Calcule une colonne du Panorama et l'inscrit dans le Builder.
+     * 
+     * @param parameters
+     *            Les paramètres du Panorama.
+     * @param pb
+     *            Le Builder du Panorama.
+     * @param x
+     *            L'index de la colonne.
+     * @param column
+     *            La colonne du cache dans laquelle inscrire aussi les
+     *            échantillons, ou null.
+     */
+    private void computeColumn(PanoramaParameters parameters,
+            Panorama.Builder pb, int x, ColumnCache.Column column) {
+        if (batchColumns && pyramid == null
+                && computeColumnBatch(parameters, pb, x, column))
+            return;
+        ElevationProfile profile = new ElevationProfile(dem,
+                parameters.observerPosition(), parameters.azimuthForX(x),
+                parameters.maxDistance(), profileStep, pyramid,
+                parameters.horizontalFieldOfView()
+                        / (parameters.width() - 1));
+        HorizonEnvelope envelope = maxIndex == null || pyramid != null ? null
+                : new HorizonEnvelope(profile, maxIndex,
+                        parameters.observerElevation(),
+                        parameters.maxDistance());
+        double dist = 0;
+        long[] steps = new long[2];
+        for (int y = parameters.height() - 1; y >= 0; --y) {
+            double angle = parameters.altitudeForY(y);
+            DoubleUnaryOperator f = rayToGroundDistance(profile,
+                    parameters.observerElevation(), tan(angle));
+            if (pyramid != null)
+                dist = firstIntervalWithDetail(f, dist,
+                        parameters.maxDistance(), profile);
+            else if (envelope != null)
+                dist = firstIntervalSkipping(f, dist, parameters.maxDistance(),
+                        envelope, tan(angle), steps);
+            else
+                dist = firstIntervalContainingRoot(f, dist,
+                        parameters.maxDistance(), INTERVAL);
+            if (dist == POSITIVE_INFINITY)
+                break;
+            dist = refinement.improve(f, dist,
+                    dist + INTERVAL * profile.detailFactorAt(dist), EPSILON);
+            setSample(pb, column, profile, x, y, dist, angle);
+        }
+        skippedSteps.add(steps[0]);
+        marchedSteps.add(steps[1]);
+    }
+
+    /**
+     * Calcule une colonne du Panorama en avançant tous ses rayons ensemble,
+     * par pas de INTERVAL alignés sur l'observateur : l'altitude du profil
+     * n'est lue qu'une fois par pas pour tous les rayons. À distance fixée,
+     * l'écart entre un rayon et le sol croît avec la pente du rayon ; les
+     * rayons qui touchent le sol à un pas sont donc toujours les plus bas des
+     * rayons encore actifs, et il suffit de parcourir ceux-ci depuis le bas.
+     * Les rayons qui touchent le sol dans le même intervalle partagent les
+     * altitudes lues pour affiner leur racine par dichotomie. Les segments
+     * que l'enveloppe de l'horizon déclare survolés par le plus bas des
+     * rayons actifs sont sautés.
+     * 
+     * <p>
+     * Cette méthode suppose que tous les rayons partent au-dessus du sol,
+     * l'affinage d'une racine commençant dans un intervalle où le rayon est
+     * au-dessus du sol. Si l'observateur n'est pas strictement au-dessus du
+     * sol, elle ne calcule rien et la colonne doit être calculée rayon par
+     * rayon, comme sans cette option.
+     * 
+     * @param parameters
+     *            Les paramètres du Panorama.
+     * @param pb
+     *            Le Builder du Panorama.
+     * @param x
+     *            L'index de la colonne.
+     * @param column
+     *            La colonne du cache dans laquelle inscrire aussi les
+     *            échantillons, ou null.
+     * 
+     * @return Vrai si la colonne a été calculée, faux si l'observateur n'est
+     *         pas au-dessus du sol.
+     */
+    private boolean computeColumnBatch(PanoramaParameters parameters,
+            Panorama.Builder pb, int x, ColumnCache.Column column) {
+        double maxX = parameters.maxDistance();
+        double ray0 = parameters.observerElevation();
+        ElevationProfile profile = new ElevationProfile(dem,
+                parameters.observerPosition(), parameters.azimuthForX(x),
+                maxX, profileStep);
+        if (ray0 - profile.elevationAt(0) <= 0)
+            return false;
+        HorizonEnvelope envelope = maxIndex == null ? null
+                : new HorizonEnvelope(profile, maxIndex, ray0, maxX);
+
+        // Les rayons sont rangés du plus bas au plus haut, par pente
+        // croissante.
+        int height = parameters.height();
+        double[] slopes = new double[height];
+        for (int i = 0; i < height; ++i)
+            slopes[i] = tan(parameters.altitudeForY(height - 1 - i));
+        double[] roots = new double[height];
+        double[] elevations = new double[SUBSTEPS + 1];
+
+        // Les rayons d'index inférieur à hit ont touché le sol.
+        int hit = 0;
+        long skipped = 0, marched = 0;
+        for (int k = 1; hit < height && k * INTERVAL <= maxX; ++k) {
+            double from = (k - 1) * INTERVAL, to = k * INTERVAL;
+            if (envelope != null) {
+                int segment = envelope.segmentAt(from);
+                if (slopes[hit] > envelope.clearSlopeFrom(segment)) {
+                    skipped += (long) ((maxX - from) / INTERVAL);
+                    break;
+                }
+                if (slopes[hit] > envelope.clearSlope(segment)) {
+                    ++skipped;
+                    continue;
+                }
+            }
+            ++marched;
+            double e = profile.elevationAt(to);
+            int first = hit;
+            while (hit < height
+                    && ray0 + to * (slopes[hit] + FACTOR * to) - e <= 0)
+                ++hit;
+            if (hit > first) {
+                Arrays.fill(elevations, Double.NaN);
+                elevations[SUBSTEPS] = e;
+                for (int i = first; i < hit; ++i)
+                    roots[i] = improveShared(profile, ray0, slopes[i], from,
+                            elevations);
+            }
+        }
+        skippedSteps.add(skipped);
+        marchedSteps.add(marched);
+
+        for (int i = 0; i < hit; ++i) {
+            int y = height - 1 - i;
+            setSample(pb, column, profile, x, y, roots[i],
+                    parameters.altitudeForY(y));
+        }
+        return true;
+    }
+
+    /**
+     * Affine par dichotomie, jusqu'à EPSILON, la racine d'un rayon dans
+     * l'intervalle de taille INTERVAL commençant à la distance donnée, comme
+     * {@link Math2#improveRoot(DoubleUnaryOperator, double, double, double)}.
+     * Les altitudes du profil aux points de l'intervalle espacés de EPSILON
+     * sont lues dans le tableau donné, où elles sont inscrites à leur premier
+     * calcul (les cases non calculées valent NaN), afin d'être partagées par
+     * tous les rayons touchant le sol dans cet intervalle.
+     */
+    private static double improveShared(ElevationProfile profile, double ray0,
+            double slope, double from, double[] elevations) {
+        int low = 0, high = SUBSTEPS;
+        double fLow = rayToGround(profile, ray0, slope, from, elevations, low);
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            double fMiddle = rayToGround(profile, ray0, slope, from,
+                    elevations, middle);
+            if (fLow * fMiddle <= 0) {
+                high = middle;
+            } else {
+                low = middle;
+                fLow = fMiddle;
+            }
+        }
+        return from + low * EPSILON;
+    }
+
+    /**
+     * Retourne l'écart entre un rayon et le sol au i-ème point de
+     * l'intervalle commençant à la distance donnée, en lisant l'altitude dans
+     * le tableau donné ou en l'y inscrivant.
+     */
+    private static double rayToGround(ElevationProfile profile, double ray0,
+            double slope, double from, double[] elevations, int i) {
+        double x = from + i * EPSILON;
+        if (Double.isNaN(elevations[i]))
+            elevations[i] = profile.elevationAt(x);
+        return ray0 + x * (slope + FACTOR * x) - elevations[i];
+    }
+
+    /**
+     * Inscrit dans le Builder, et dans la colonne du cache si elle n'est pas
+     * null, l'échantillon du point du profil situé à la distance donnée,
+     * atteint par le rayon d'angle donné.
+     */
+    private void setSample(Panorama.Builder pb, ColumnCache.Column column,
+            ElevationProfile profile, int x, int y, double dist,
+            double angle) {
+        GeoPoint point = profile.positionAt(dist);
+        float distance = (float) (dist / cos(angle));
+        float longitude = (float) point.longitude();
+        float latitude = (float) point.latitude();
+        float elevation = (float) dem.elevationAt(point);
+        float slope = slopeNecessary ? (float) dem.slopeAt(point) : 0;
+        // Chaque tâche écrit des colonnes disjointes : aucun verrou n'est
+        // nécessaire, l'attente de la tâche racine publie les écritures.
+        pb.setSampleAt(x, y, distance, longitude, latitude, elevation, slope);
+        if (column != null)
+            column.set(y, distance, longitude, latitude, elevation, slope);
+    }
+
+    /**
+     * Trouve le premier intervalle contenant une racine, comme
+     * {@link Math2#firstIntervalContainingRoot(DoubleUnaryOperator, double, double, double)}
+     * et avec exactement les mêmes pas, mais sans évaluer la fonction sur les
+     * segments que l'enveloppe de la colonne déclare survolés par le rayon.
+     * Si le rayon survole tous les segments restants, la recherche s'arrête
+     * immédiatement. Le résultat est donc identique.
+     * 
+     * @param raySlope
+     *            La pente du rayon.
+     * @param steps
+     *            Les compteurs de pas sautés (case 0) et évalués (case 1),
+     *            incrémentés par la méthode.
+     * 
+     * @return La borne inférieure de l'intervalle, ou
+     *         Double.POSITIVE_INFINITY.
+     */
+    private static double firstIntervalSkipping(DoubleUnaryOperator f,
+            double minX, double maxX, HorizonEnvelope envelope,
+            double raySlope, long[] steps) {
+        while (minX <= maxX - INTERVAL) {
+            int segment = envelope.segmentAt(minX);
+            if (raySlope > envelope.clearSlopeFrom(segment)) {
+                steps[0] += (long) ((maxX - minX) / INTERVAL);
+                return POSITIVE_INFINITY;
+            }
+            double end = Math.min((segment + 1) * SKIP_LENGTH, maxX);
+            boolean clear = raySlope > envelope.clearSlope(segment);
+            do {
+                if (clear && minX + INTERVAL <= end) {
+                    ++steps[0];
+                } else {
+                    ++steps[1];
+                    if (f.applyAsDouble(minX)
+                            * f.applyAsDouble(minX + INTERVAL) <= 0)
+                        return minX;
+                }
+                minX += INTERVAL;
+            } while (minX <= maxX - INTERVAL && minX + INTERVAL <= end);
+        }
+        return POSITIVE_INFINITY;
+    }
+
+    /**
+     * Méthode d'affinage d'une racine dans l'intervalle de recherche où elle
+     * a été trouvée.
+     */
+    public enum RootRefinement {
+        /**
+         * Recherche dichotomique, utilisée par défaut (voir
+         * {@link Math2#improveRoot(DoubleUnaryOperator, double, double, double)}).
+         */
+        BISECTION,
+
+        /**
+         * Méthode de la fausse position dans sa variante d'Illinois, protégée
+         * par des étapes de dichotomie (voir
+         * {@link Math2#improveRootIllinois(DoubleUnaryOperator, double, double, double)}).
+         */
+        ILLINOIS;
+
+        /**
+         * Affine la racine de la fonction donnée dans l'intervalle donné.
+         */
+        private double improve(DoubleUnaryOperator f, double x1, double x2,
+                double epsilon) {
+            return this == BISECTION ? improveRoot(f, x1, x2, epsilon)
+                    : improveRootIllinois(f, x1, x2, epsilon);
+        }
+    }
+
+    /**
+     * Enveloppe de l'horizon d'une colonne : pour chaque segment de
+     * SKIP_LENGTH mètres du profil, la pente au-delà de laquelle un rayon
+     * partant de l'observateur survole certainement le terrain, déduite d'un
+     * majorant de l'altitude lu dans l'index des altitudes maximales, ainsi
+     * que le maximum de ces pentes sur tous les segments suivants.
+     */
+    private static final class HorizonEnvelope {
+
+        private final double[] clearSlopes, clearSlopesFrom;
+
+        private HorizonEnvelope(ElevationProfile profile,
+                MaxElevationIndex index, double ray0, double maxX) {
+            int segments = (int) Math.ceil(maxX / SKIP_LENGTH);
+            this.clearSlopes = new double[segments];
+            this.clearSlopesFrom = new double[segments + 1];
+            for (int i = 0; i < segments; ++i) {
+                double a = i * SKIP_LENGTH;
+                double b = Math.min(a + SKIP_LENGTH, maxX);
+                clearSlopes[i] = clearSlope(
+                        profile.maxElevationBetween(a, b, index)
+                                + SKIP_MARGIN - ray0,
+                        a, b);
+            }
+            clearSlopesFrom[segments] = Double.NEGATIVE_INFINITY;
+            for (int i = segments - 1; i >= 0; --i)
+                clearSlopesFrom[i] = Math.max(clearSlopes[i],
+                        clearSlopesFrom[i + 1]);
+        }
+
+        /**
+         * Retourne le maximum sur [a, b] de la pente c / x - FACTOR x qu'un
+         * rayon doit dépasser pour être plus haut que c à la distance x, par
+         * rapport à l'observateur. Si c est négatif, ce maximum est atteint en
+         * racine de -c / FACTOR ou à l'extrémité la plus proche ; sinon, la
+         * fonction décroît et il est atteint en a.
+         */
+        private static double clearSlope(double c, double a, double b) {
+            double x = c < 0 ? Math.max(a, Math.min(Math.sqrt(-c / FACTOR), b))
+                    : a;
+            return x == 0 ? POSITIVE_INFINITY : c / x - FACTOR * x;
+        }
+
+        private int segmentAt(double x) {
+            return Math.min((int) (x / SKIP_LENGTH), clearSlopes.length - 1);
+        }
+
+        /**
+         * Retourne la pente au-delà de laquelle un rayon survole le segment
+         * donné.
+         */
+        private double clearSlope(int segment) {
+            return clearSlopes[segment];
+        }
+
+        /**
+         * Retourne la pente au-delà de laquelle un rayon survole le segment
+         * donné et tous les suivants.
+         */
+        private double clearSlopeFrom(int segment) {
+            return clearSlopesFrom[segment];
+        }
+    }
+
+    /**
+     * Retourne le nombre de pas de la recherche de racine sautés grâce à
+     * l'index des altitudes maximales depuis la construction.
+     * 
+     * @return Le nombre de pas sautés, nul si aucun index n'est utilisé.
+     */
+    public long skippedSteps() {
+        return skippedSteps.sum();
+    }
+
+    /**
+     * Retourne le nombre de pas de la recherche de racine pour lesquels la
+     * fonction a été évaluée depuis la construction, lorsqu'un index des
+     * altitudes maximales est utilisé.
+     * 
+     * @return Le nombre de pas évalués, nul si aucun index n'est utilisé.
+     */
+    public long marchedSteps() {
+        return marchedSteps.sum();
+    }
+
+    /**
+     * Retourne la propriété contenant l'avancement du dernier calcul, entre 0
+     * et 1. Elle reçoit les mêmes valeurs que l'auditeur passé à
+     * {@link #computePanorama(PanoramaParameters, ProgressListener)}, depuis
+     * les fils d'exécution du calcul : une interface graphique doit donc
+     * plutôt utiliser un auditeur qui les lui transmet.
+     * 
+     * @return La propriété en lecture seule de l'avancement.
+     */
+    public ReadOnlyDoubleProperty statusProperty() {
+        return status;
+    }
+
+    /**
+     * Trouve le premier intervalle contenant une racine, comme
+     * {@link Math2#firstIntervalContainingRoot(DoubleUnaryOperator, double, double, double)},
+     * mais avec un pas multiplié par le facteur de réduction du niveau de
+     * détail utilisé par le profil à chaque distance : un terrain moins
+     * détaillé est parcouru à plus grands pas. Chaque valeur de la fonction
+     * n'est calculée qu'une fois.
+     * 
+     * @return La borne inférieure de l'intervalle, de taille INTERVAL fois le
+     *         facteur de réduction à cette borne, ou Double.POSITIVE_INFINITY.
+     */
+    private static double firstIntervalWithDetail(DoubleUnaryOperator f,
+            double minX, double maxX, ElevationProfile profile) {
+        double fMin = f.applyAsDouble(minX);
+        while (true) {
+            double dX = INTERVAL * profile.detailFactorAt(minX);
+            if (minX > maxX - dX)
+                return POSITIVE_INFINITY;
+            double fMax = f.applyAsDouble(minX + dX);
+            if (fMin * fMax <= 0)
+                return minX;
+            minX += dX;
+            fMin = fMax;
+        }
+    }
+
+    /**
+     * État d'un calcul de Panorama, partagé par toutes ses tâches.
+     */
+    private static final class Computation {
+
+        private final PanoramaParameters parameters;
+        private final Panorama.Builder pb;
+        private final ProgressTracker progress;
+
+        /**
+         * La génération des colonnes du cache, ou null si aucun cache n'est
+         * utilisé.
+         */
+        private final ColumnCache.Generation columns;
+
+        /**
+         * Indique si le calcul a été annulé. Les tâches le consultent avant
+         * chaque colonne.
+         */
+        private volatile boolean cancelled;
+
+        private Computation(PanoramaParameters parameters,
+                Panorama.Storage storage, ProgressTracker progress,
+                ColumnCache.Generation columns) {
+            this.parameters = parameters;
+            this.pb = new Panorama.Builder(parameters, storage);
+            this.progress = progress;
+            this.columns = columns;
+            this.cancelled = false;
+        }
+    }
+
+    /**
+     * Tâche calculant une plage de colonnes du Panorama. La plage est divisée
+     * récursivement tant que les fils d'exécution du groupe manquent de
+     * travail, afin que le vol de tâches répartisse équitablement les colonnes.
+     */
+    private final class ColumnTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Computation computation;
+        private final int start, stop;
+
+        /**
+         * Construit une tâche calculant les colonnes de <i>start</i> (inclus)
+         * à <i>stop</i> (exclu).
+         */
+        private ColumnTask(Computation computation, int start, int stop) {
+            this.computation = computation;
+            this.start = start;
+            this.stop = stop;
+        }
+
+        @Override
+        protected void compute() {
+            if (computation.cancelled)
+                return;
+            if (stop - start > MIN_COLUMNS_PER_TASK
+                    && getSurplusQueuedTaskCount() <= SURPLUS_THRESHOLD) {
+                int middle = (start + stop) >>> 1;
+                invokeAll(new ColumnTask(computation, start, middle),
+                        new ColumnTask(computation, middle, stop));
+            } else {
+                for (int x = start; x < stop && !computation.cancelled; ++x) {
+                    computeColumn(computation, x);
+                    computation.progress.advance();
                 }
             }
-        };
+        }
     }
 
     /**
@@ -170,8 +813,230 @@ public final class PanoramaComputer {
         return x -> ray0 + x * (raySlope + FACTOR * x) - profile.elevationAt(x);
     }
 
-    public ReadOnlyDoubleProperty statusProperty() {
-        return status;
+    /**
+     * Classe utilitaire non immuable permettant de configurer un
+     * PanoramaComputer. Par défaut, la pente est calculée, les colonnes sont
+     * réparties sur le groupe de fils d'exécution commun, les profils
+     * consultent le MNT à chaque appel et les racines sont affinées par
+     * dichotomie.
+     *
+     * @author Robin Mamie (257234)
+     * @author Maxence Jouve (269716)
+     */
+    public static final class Builder {
+
+        /**
+         * Le MNT continu du futur PanoramaComputer.
+         */
+        private final ContinuousElevationModel dem;
+
+        private boolean slopeNecessary = true;
+
+        private ForkJoinPool pool = DEFAULT_POOL;
+
+        private double profileStep = 0;
+
+        private DemPyramid pyramid = null;
+
+        private MaxElevationIndex maxIndex = null;
+
+        private RootRefinement refinement = RootRefinement.BISECTION;
+
+        private boolean batchColumns = false;
+
+        private ColumnCache cache = null;
+
+        private Panorama.Storage storage = Panorama.Storage.FLOAT;
+
+        /**
+         * Constructeur du Builder de PanoramaComputer. Demande le MNT continu
+         * en argument.
+         * 
+         * @param dem
+         *            Le MNT continu qui permettra de construire les Panoramas.
+         * 
+         * @throws NullPointerException
+         *             si le MNT passé en argument est null.
+         */
+        public Builder(ContinuousElevationModel dem) {
+            this.dem = requireNonNull(dem,
+                    "The given ContinuousElevationModel is null.");
+        }
+
+        /**
+         * Indique si la pente de chaque point doit être calculée.
+         * 
+         * @param slopeNecessary
+         *            Vrai si la pente doit être calculée.
+         * 
+         * @return le Builder courant.
+         */
+        public Builder setSlopeNecessary(boolean slopeNecessary) {
+            this.slopeNecessary = slopeNecessary;
+            return this;
+        }
+
+        /**
+         * Définit le groupe de fils d'exécution calculant les colonnes.
+         * 
+         * @param pool
+         *            Le groupe de fils d'exécution.
+         * 
+         * @return le Builder courant.
+         * 
+         * @throws NullPointerException
+         *             si le groupe passé en argument est null.
+         */
+        public Builder setPool(ForkJoinPool pool) {
+            this.pool = requireNonNull(pool, "The given ForkJoinPool is null.");
+            return this;
+        }
+
+        /**
+         * Active les profils denses : le MNT est échantillonné une seule fois
+         * par colonne, au pas donné, et tous les rayons de la colonne sont
+         * ensuite évalués sur ces échantillons (voir
+         * {@link ElevationProfile#ElevationProfile(ContinuousElevationModel, GeoPoint, double, double, double)}).
+         * Le Panorama obtenu est une approximation de celui calculé sans
+         * profils denses.
+         * 
+         * @param step
+         *            Le pas d'échantillonnage (en mètres), strictement positif.
+         * 
+         * @return le Builder courant.
+         * 
+         * @throws IllegalArgumentException
+         *             si le pas n'est pas strictement positif.
+         */
+        public Builder setDenseProfileStep(double step) {
+            checkArgument(0 < step,
+                    "The given step is not strictly positive.");
+            this.profileStep = step;
+            return this;
+        }
+
+        /**
+         * Active la lecture du terrain lointain dans les niveaux réduits de la
+         * pyramide donnée, construite à partir du même MNT. Le niveau est
+         * choisi selon l'empreinte d'un pixel à chaque distance, et le
+         * terrain moins détaillé est parcouru à plus grands pas. Le Panorama
+         * obtenu est une approximation de celui calculé sans pyramide.
+         * 
+         * @param pyramid
+         *            La pyramide à utiliser, ou null pour la désactiver.
+         * 
+         * @return le Builder courant.
+         */
+        public Builder setPyramid(DemPyramid pyramid) {
+            this.pyramid = pyramid;
+            return this;
+        }
+
+        /**
+         * Active l'enveloppe de l'horizon de chaque colonne, calculée à
+         * l'aide de l'index des altitudes maximales donné, construit à partir
+         * du même MNT : les segments de rayon qui survolent entièrement le
+         * terrain ne sont pas évalués, et la recherche s'arrête dès qu'un
+         * rayon survole toute la suite du profil. Le Panorama obtenu est
+         * identique à celui calculé sans index. Sans effet si une pyramide est
+         * utilisée.
+         * 
+         * @param index
+         *            L'index à utiliser, ou null pour le désactiver.
+         * 
+         * @return le Builder courant.
+         */
+        public Builder setMaxElevationIndex(MaxElevationIndex index) {
+            this.maxIndex = index;
+            return this;
+        }
+
+        /**
+         * Définit la méthode d'affinage des racines. Avec une autre méthode
+         * que la dichotomie, chaque racine est toujours connue à EPSILON
+         * près, mais le Panorama obtenu peut différer légèrement.
+         * 
+         * @param refinement
+         *            La méthode d'affinage.
+         * 
+         * @return le Builder courant.
+         * 
+         * @throws NullPointerException
+         *             si la méthode passée en argument est null.
+         */
+        public Builder setRootRefinement(RootRefinement refinement) {
+            this.refinement = requireNonNull(refinement,
+                    "The given refinement is null.");
+            return this;
+        }
+
+        /**
+         * Indique si les rayons de chaque colonne doivent être avancés
+         * ensemble, par pas alignés sur l'observateur, de manière à ne lire
+         * qu'une fois l'altitude du profil à chaque pas pour tous les rayons.
+         * Chaque rayon cherche alors sa racine depuis l'observateur plutôt
+         * que depuis celle du rayon précédent, et par dichotomie quelle que
+         * soit la méthode d'affinage choisie : le Panorama obtenu peut
+         * différer légèrement. Sans effet si une pyramide est utilisée ; les
+         * colonnes d'un observateur qui n'est pas au-dessus du sol sont
+         * également calculées rayon par rayon.
+         * 
+         * @param batchColumns
+         *            Vrai si les rayons doivent être avancés ensemble.
+         * 
+         * @return le Builder courant.
+         */
+        public Builder setBatchColumns(boolean batchColumns) {
+            this.batchColumns = batchColumns;
+            return this;
+        }
+
+        /**
+         * Définit le cache dans lequel les colonnes calculées sont conservées
+         * et où elles sont cherchées avant d'être calculées (voir
+         * {@link ColumnCache}). Si la tolérance du cache n'est pas nulle, le
+         * Panorama calculé après un déplacement de l'azimut central peut
+         * contenir des colonnes décalées d'une fraction de pixel.
+         * 
+         * @param cache
+         *            Le cache des colonnes, ou null pour n'en utiliser aucun.
+         * 
+         * @return le Builder courant.
+         */
+        public Builder setColumnCache(ColumnCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * Définit le mode de stockage des composantes des Panorama calculés.
+         * Avec un autre mode que {@link Panorama.Storage#FLOAT}, les
+         * composantes sont quantifiées lors de leur stockage.
+         * 
+         * @param storage
+         *            Le mode de stockage.
+         * 
+         * @return le Builder courant.
+         * 
+         * @throws NullPointerException
+         *             si le mode passé en argument est null.
+         */
+        public Builder setStorage(Panorama.Storage storage) {
+            this.storage = requireNonNull(storage,
+                    "The given storage is null.");
+            return this;
+        }
+
+        /**
+         * Construit un PanoramaComputer selon la configuration courante du
+         * Builder. Le Builder peut être réutilisé ensuite.
+         * 
+         * @return Le PanoramaComputer configuré.
+         */
+        public PanoramaComputer build() {
+            return new PanoramaComputer(this);
+        }
+
     }
 
 }
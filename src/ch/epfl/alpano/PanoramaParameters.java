@@ -168,7 +168,7 @@ public final class PanoramaParameters {
      * 
      * @return La valeur de conversion pixel - angle.
      */
-    private double delta() {
+    double delta() {
         return delta;
     }
 
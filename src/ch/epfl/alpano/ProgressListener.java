@@ -0,0 +1,29 @@
+package ch.epfl.alpano;
+
+/**
+ * Interface fonctionnelle permettant d'être informé de l'avancement d'un calcul
+ * de longue durée. Ne dépend pas de JavaFX et peut donc être utilisée pour des
+ * calculs sans interface graphique.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * Auditeur ignorant tout avancement.
+     */
+    ProgressListener NONE = progress -> {
+    };
+
+    /**
+     * Appelée lorsque l'avancement du calcul a changé. Peut être appelée
+     * depuis n'importe quel fil d'exécution.
+     *
+     * @param progress
+     *            L'avancement du calcul, entre 0 et 1.
+     */
+    void progressChanged(double progress);
+
+}
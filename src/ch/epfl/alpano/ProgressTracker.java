@@ -0,0 +1,123 @@
+package ch.epfl.alpano;
+
+import static ch.epfl.alpano.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compte les étapes terminées d'un calcul effectué par plusieurs fils
+ * d'exécution et transmet l'avancement à un auditeur à fréquence limitée.
+ *
+ * <p>
+ * Les étapes sont comptées à l'aide d'un LongAdder, qui ne crée pas de
+ * contention entre les fils d'exécution. L'auditeur est appelé au plus
+ * {@value #MAX_UPDATES_PER_SECOND} fois par seconde, ainsi qu'une dernière fois
+ * à la fin du calcul. Ses appels ne sont jamais simultanés et l'avancement
+ * transmis ne décroît jamais, même lorsque plusieurs fils d'exécution le
+ * transmettent en même temps.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+public final class ProgressTracker {
+
+    /**
+     * Nombre maximal de mises à jour transmises par seconde.
+     */
+    public static final int MAX_UPDATES_PER_SECOND = 30;
+
+    /**
+     * Intervalle minimal entre deux mises à jour, en nanosecondes.
+     */
+    private static final long MIN_UPDATE_INTERVAL = 1_000_000_000L
+            / MAX_UPDATES_PER_SECOND;
+
+    /**
+     * Le nombre total d'étapes du calcul.
+     */
+    private final long total;
+
+    /**
+     * L'auditeur informé de l'avancement.
+     */
+    private final ProgressListener listener;
+
+    /**
+     * Le nombre d'étapes terminées.
+     */
+    private final LongAdder done;
+
+    /**
+     * Le moment de la dernière mise à jour transmise, en nanosecondes.
+     */
+    private final AtomicLong lastUpdate;
+
+    /**
+     * Le nombre d'étapes terminées lors de la dernière mise à jour transmise,
+     * protégé par le verrou de l'instance.
+     */
+    private long reported;
+
+    /**
+     * Construit un ProgressTracker pour un calcul comportant le nombre d'étapes
+     * donné. L'auditeur est immédiatement informé d'un avancement nul.
+     *
+     * @param total
+     *            Le nombre total d'étapes, strictement positif.
+     * @param listener
+     *            L'auditeur à informer de l'avancement.
+     *
+     * @throws IllegalArgumentException
+     *             si le nombre d'étapes n'est pas strictement positif.
+     * @throws NullPointerException
+     *             si l'auditeur est null.
+     */
+    public ProgressTracker(long total, ProgressListener listener) {
+        checkArgument(0 < total, "The given total is not strictly positive.");
+        this.total = total;
+        this.listener = requireNonNull(listener,
+                "The given listener is null.");
+        this.done = new LongAdder();
+        this.lastUpdate = new AtomicLong(System.nanoTime());
+        listener.progressChanged(0);
+    }
+
+    /**
+     * Signale qu'une étape est terminée. Transmet l'avancement à l'auditeur si
+     * la dernière mise à jour est assez ancienne.
+     */
+    public void advance() {
+        done.increment();
+        long now = System.nanoTime();
+        long last = lastUpdate.get();
+        if (now - last >= MIN_UPDATE_INTERVAL
+                && lastUpdate.compareAndSet(last, now))
+            report(done.sum());
+    }
+
+    /**
+     * Signale que le calcul est terminé et transmet un avancement complet à
+     * l'auditeur, même s'il lui a déjà été transmis.
+     */
+    public synchronized void finish() {
+        reported = total;
+        listener.progressChanged(1);
+    }
+
+    /**
+     * Transmet à l'auditeur le nombre d'étapes donné s'il dépasse le dernier
+     * transmis. Le verrou n'est pris qu'au plus
+     * {@value #MAX_UPDATES_PER_SECOND} fois par seconde ; il empêche qu'une
+     * somme lue plus tôt par un autre fil d'exécution soit transmise après
+     * une plus grande.
+     */
+    private synchronized void report(long steps) {
+        if (steps > reported) {
+            reported = steps;
+            listener.progressChanged((double) steps / total);
+        }
+    }
+
+}
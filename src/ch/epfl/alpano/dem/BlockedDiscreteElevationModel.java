@@ -0,0 +1,326 @@
+package ch.epfl.alpano.dem;
+
+import static ch.epfl.alpano.Preconditions.checkArgument;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32;
+
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+
+/**
+ * Représente un MNT discret obtenu d'un fichier au format par blocs. Classe
+ * immuable.
+ *
+ * <p>
+ * Le fichier commence par un en-tête de {@value #HEADER_SIZE} octets
+ * contenant, sous forme d'entiers, un nombre magique, la version du format,
+ * l'index du coin sud-ouest, la largeur et la hauteur de l'étendue, le côté
+ * des blocs et l'empreinte du MNT converti (voir
+ * {@link #fingerprint(DiscreteElevationModel)}). Suivent les blocs carrés de
+ * {@value #BLOCK_SIDE} échantillons de côté, ligne de blocs par ligne de
+ * blocs depuis le sud-ouest ; chaque bloc est stocké ligne par ligne,
+ * également depuis le sud-ouest. Les points d'une interpolation bilinéaire se
+ * trouvent ainsi presque toujours dans le même bloc, sur deux lignes de 128 octets.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+public final class BlockedDiscreteElevationModel
+        implements DiscreteElevationModel {
+
+    /**
+     * Nombre magique identifiant le format ("ALBD").
+     */
+    private static final int MAGIC = 0x414C4244;
+
+    private static final int VERSION = 2;
+
+    /**
+     * Nombre maximal d'échantillons lus sur chaque axe pour calculer
+     * l'empreinte d'un MNT.
+     */
+    private static final int FINGERPRINT_SAMPLES = 64;
+
+    /**
+     * Taille de l'en-tête, en octets.
+     */
+    public static final int HEADER_SIZE = 32;
+
+    /**
+     * Nombre d'échantillons d'un côté d'un bloc.
+     */
+    public static final int BLOCK_SIDE = 64;
+
+    private static final int BLOCK_SHIFT = 6, BLOCK_MASK = BLOCK_SIDE - 1;
+
+    /**
+     * Contient l'élévation de chaque point, bloc par bloc.
+     */
+    private final ShortBuffer source;
+
+    private final Interval2D extent;
+
+    /**
+     * L'index du coin sud-ouest de l'étendue.
+     */
+    private final int baseX, baseY;
+
+    /**
+     * Le nombre de blocs d'une ligne de blocs.
+     */
+    private final int blocksPerRow;
+
+    /**
+     * L'empreinte du MNT converti.
+     */
+    private final int fingerprint;
+
+    /**
+     * Construit un MNT discret qui prend ses valeurs dans un fichier au format
+     * par blocs.
+     *
+     * @param file
+     *            Un fichier créé par
+     *            {@link #convert(DiscreteElevationModel, File)}.
+     *
+     * @throws IllegalArgumentException
+     *             si le fichier est absent ou invalide.
+     */
+    public BlockedDiscreteElevationModel(File file) {
+        checkArgument(file.isFile(), "The file does not exist.");
+        try (FileInputStream stream = new FileInputStream(file)) {
+            MappedByteBuffer buffer = stream.getChannel().map(READ_ONLY, 0,
+                    file.length());
+            checkArgument(buffer.capacity() >= HEADER_SIZE
+                    && buffer.getInt(0) == MAGIC
+                    && buffer.getInt(4) == VERSION
+                    && buffer.getInt(24) == BLOCK_SIDE,
+                    "The file is invalid: its header is unknown.");
+            this.baseX = buffer.getInt(8);
+            this.baseY = buffer.getInt(12);
+            int width = buffer.getInt(16), height = buffer.getInt(20);
+            this.blocksPerRow = blocks(width);
+            this.fingerprint = buffer.getInt(28);
+            checkArgument(
+                    buffer.capacity() == fileSize(width, height),
+                    "The file is invalid: its size does not match its header.");
+            this.extent = new Interval2D(
+                    new Interval1D(baseX, baseX + width - 1),
+                    new Interval1D(baseY, baseY + height - 1));
+            buffer.position(HEADER_SIZE);
+            this.source = buffer.slice().asShortBuffer();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(
+                    "The file is either invalid, corrupt, or not found.");
+        }
+    }
+
+    /**
+     * Écrit dans un fichier au format par blocs les échantillons du MNT donné
+     * sur toute son étendue. Les lignes de blocs sont remplies en parallèle.
+     *
+     * @param dem
+     *            Le MNT à convertir, par exemple un ensemble de fichiers HGT.
+     * @param file
+     *            Le fichier à créer ou à remplacer.
+     *
+     * @throws IOException
+     *             en cas d'erreur d'écriture.
+     * @throws IllegalArgumentException
+     *             si l'étendue du MNT est trop grande pour un seul fichier.
+     */
+    public static void convert(DiscreteElevationModel dem, File file)
+            throws IOException {
+        Interval2D e = dem.extent();
+        int width = e.iX().size(), height = e.iY().size();
+        long size = fileSize(width, height);
+        checkArgument(size <= Integer.MAX_VALUE,
+                "The given DEM is too large for a single file.");
+
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(size);
+            MappedByteBuffer buffer = out.getChannel().map(READ_WRITE, 0,
+                    size);
+            buffer.putInt(0, MAGIC).putInt(4, VERSION)
+                    .putInt(8, e.iX().includedFrom())
+                    .putInt(12, e.iY().includedFrom()).putInt(16, width)
+                    .putInt(20, height).putInt(24, BLOCK_SIDE)
+                    .putInt(28, fingerprint(dem));
+            buffer.position(HEADER_SIZE);
+            ForkJoinPool.commonPool()
+                    .invoke(new ConvertTask(e,
+                            ContinuousElevationModel.samples(dem),
+                            buffer.slice(), 0, blocks(height)));
+            buffer.force();
+        }
+    }
+
+    /**
+     * Retourne l'empreinte du MNT discret donné : la somme de contrôle CRC-32
+     * de son étendue et d'une grille d'au plus {@value #FINGERPRINT_SAMPLES} ×
+     * {@value #FINGERPRINT_SAMPLES} de ses échantillons, répartis sur toute
+     * l'étendue. Deux MNT d'empreintes différentes diffèrent ; l'inverse
+     * n'est que probable, les autres échantillons n'étant pas lus.
+     *
+     * @param dem
+     *            Le MNT discret.
+     *
+     * @return L'empreinte du MNT.
+     */
+    public static int fingerprint(DiscreteElevationModel dem) {
+        Interval2D e = dem.extent();
+        int[] xs = grid(e.iX()), ys = grid(e.iY());
+        ByteBuffer bytes = ByteBuffer.allocate(
+                Integer.BYTES * 4 + Double.BYTES * xs.length * ys.length);
+        bytes.putInt(e.iX().includedFrom()).putInt(e.iX().includedTo())
+                .putInt(e.iY().includedFrom()).putInt(e.iY().includedTo());
+        for (int y : ys)
+            for (int x : xs)
+                bytes.putDouble(dem.elevationSample(x, y));
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Retourne au plus FINGERPRINT_SAMPLES index régulièrement répartis sur
+     * l'intervalle donné, bornes comprises.
+     */
+    private static int[] grid(Interval1D interval) {
+        int n = Math.min(FINGERPRINT_SAMPLES, interval.size());
+        int[] grid = new int[n];
+        for (int i = 0; i < n; ++i)
+            grid[i] = interval.includedFrom() + (int) (n == 1 ? 0
+                    : (long) i * (interval.size() - 1) / (n - 1));
+        return grid;
+    }
+
+    /**
+     * Retourne l'empreinte du MNT converti dans le fichier, calculée lors de
+     * sa conversion.
+     *
+     * @return L'empreinte du MNT converti.
+     *
+     * @see #fingerprint(DiscreteElevationModel)
+     */
+    public int fingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public Interval2D extent() {
+        return extent;
+    }
+
+    @Override
+    public double elevationSample(int x, int y) {
+        checkArgument(extent().contains(x, y),
+                "The BlockedDEM does not contain the given index.");
+        return uncheckedElevationSample(x, y);
+    }
+
+    /**
+     * Retourne l'altitude à l'index donné sans vérifier qu'il appartient à
+     * l'étendue du MNT. Destinée aux appelants qui ont déjà fait cette
+     * vérification.
+     *
+     * @param x
+     *            L'index de la longitude, compris dans l'étendue.
+     * @param y
+     *            L'index de la latitude, compris dans l'étendue.
+     *
+     * @return L'altitude à l'index donné.
+     */
+    double uncheckedElevationSample(int x, int y) {
+        return source.get(sampleIndex(x - baseX, y - baseY, blocksPerRow));
+    }
+
+    /**
+     * Retourne la position d'un échantillon dans la suite des blocs, à partir
+     * de ses coordonnées relatives au coin sud-ouest.
+     */
+    private static int sampleIndex(int dx, int dy, int blocksPerRow) {
+        int block = (dy >> BLOCK_SHIFT) * blocksPerRow + (dx >> BLOCK_SHIFT);
+        return block << 2 * BLOCK_SHIFT | (dy & BLOCK_MASK) << BLOCK_SHIFT
+                | (dx & BLOCK_MASK);
+    }
+
+    /**
+     * Retourne le nombre de blocs nécessaires pour couvrir le nombre
+     * d'échantillons donné.
+     */
+    private static int blocks(int samples) {
+        return (samples + BLOCK_MASK) >> BLOCK_SHIFT;
+    }
+
+    /**
+     * Retourne la taille, en octets, d'un fichier couvrant une étendue des
+     * dimensions données.
+     */
+    private static long fileSize(int width, int height) {
+        return HEADER_SIZE
+                + 2L * blocks(width) * blocks(height) * BLOCK_SIDE * BLOCK_SIDE;
+    }
+
+    /**
+     * Tâche écrivant une plage de lignes de blocs. Une plage est divisée en
+     * deux tant qu'elle comporte plusieurs lignes.
+     */
+    private static final class ConvertTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Interval2D extent;
+        private final ContinuousElevationModel.IndexFunction samples;
+        private final ByteBuffer target;
+        private final int start, stop;
+
+        ConvertTask(Interval2D extent,
+                ContinuousElevationModel.IndexFunction samples,
+                ByteBuffer target, int start, int stop) {
+            this.extent = extent;
+            this.samples = samples;
+            this.target = target;
+            this.start = start;
+            this.stop = stop;
+        }
+
+        @Override
+        protected void compute() {
+            if (stop - start > 1) {
+                int middle = (start + stop) >>> 1;
+                invokeAll(
+                        new ConvertTask(extent, samples, target, start,
+                                middle),
+                        new ConvertTask(extent, samples, target, middle,
+                                stop));
+                return;
+            }
+
+            int width = extent.iX().size(), height = extent.iY().size();
+            int baseX = extent.iX().includedFrom();
+            int baseY = extent.iY().includedFrom();
+            int blocksPerRow = blocks(width);
+            ShortBuffer out = target.asShortBuffer();
+            // Les échantillons hors de l'étendue, qui complètent les derniers
+            // blocs, restent nuls.
+            for (int dy = start * BLOCK_SIDE; dy < Math.min(height,
+                    stop * BLOCK_SIDE); ++dy)
+                for (int dx = 0; dx < width; ++dx)
+                    out.put(sampleIndex(dx, dy, blocksPerRow),
+                            (short) samples.apply(baseX + dx, baseY + dy));
+        }
+    }
+
+}
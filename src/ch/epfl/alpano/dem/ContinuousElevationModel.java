@@ -3,16 +3,15 @@ package ch.epfl.alpano.dem;
 import static ch.epfl.alpano.Distance.toMeters;
 import static ch.epfl.alpano.Math2.bilerp;
 import static ch.epfl.alpano.Math2.sq;
+import static ch.epfl.alpano.Preconditions.checkArgument;
 import static ch.epfl.alpano.dem.DiscreteElevationModel.SAMPLES_PER_RADIAN;
-import static ch.epfl.alpano.dem.DiscreteElevationModel.sampleIndex;
 import static java.lang.Math.acos;
 import static java.lang.Math.floor;
 import static java.lang.Math.sqrt;
 import static java.util.Objects.requireNonNull;
 
-import java.util.function.BiFunction;
-
 import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval2D;
 
 /**
  * Représente un MNT continu. Classe immuable.
@@ -30,9 +29,38 @@ public final class ContinuousElevationModel {
     private static final double D_SQUARED = sq(D);
 
     /**
-     * MNT discret utilisé.
+     * Étendue du MNT discret.
+     */
+    private final Interval2D extent;
+
+    /**
+     * Le nombre d'échantillons du MNT discret par radian.
+     */
+    private final double samplesPerRadian;
+
+    /**
+     * Fonction lisant un échantillon du MNT discret à un index compris dans
+     * son étendue.
+     */
+    private final IndexFunction samples;
+
+    /**
+     * Fonctions d'accès aux altitudes et aux pentes par index, créées une
+     * seule fois afin que l'interpolation n'alloue aucun objet.
+     */
+    private final IndexFunction elevationAtIndex, slopeAtIndex;
+
+    /**
+     * Cache des pentes précalculées, ou null si les pentes sont calculées à
+     * chaque appel.
+     */
+    private final SlopeRasterCache slopeCache;
+
+    /**
+     * Fonction donnant la pente par index utilisée par l'interpolation : lit
+     * le cache s'il existe, calcule la pente sinon.
      */
-    private final DiscreteElevationModel dem;
+    private final IndexFunction slopeSource;
 
     /**
      * Construit un MNT continu à partir d'un MNT discret.
@@ -44,7 +72,102 @@ public final class ContinuousElevationModel {
      *             si le MNT discret donné est null.
      */
     public ContinuousElevationModel(DiscreteElevationModel dem) {
-        this.dem = requireNonNull(dem, "The given DEM is null.");
+        this(dem, SAMPLES_PER_RADIAN, false, 0);
+    }
+
+    /**
+     * Construit un MNT continu à partir d'un MNT discret, dont les pentes sont
+     * précalculées par tuiles de 1° et conservées dans un cache borné (voir
+     * {@link SlopeRasterCache}). Chaque tuile occupe
+     * {@link SlopeRasterCache#BYTES_PER_TILE} octets ; les pentes obtenues
+     * sont arrondies à la précision d'un float.
+     * 
+     * @param dem
+     *            Un MNT discret.
+     * @param maxSlopeTiles
+     *            Le nombre maximal de tuiles de pentes conservées, strictement
+     *            positif.
+     * 
+     * @throws NullPointerException
+     *             si le MNT discret donné est null.
+     * @throws IllegalArgumentException
+     *             si le nombre maximal de tuiles n'est pas strictement positif.
+     */
+    public ContinuousElevationModel(DiscreteElevationModel dem,
+            int maxSlopeTiles) {
+        this(dem, SAMPLES_PER_RADIAN, true, maxSlopeTiles);
+    }
+
+    /**
+     * Construit un MNT continu à partir d'un MNT discret.
+     * 
+     * @param dem
+     *            Un MNT discret.
+     * @param samplesPerRadian
+     *            Le nombre d'échantillons du MNT discret par radian.
+     * @param slopesCached
+     *            Vrai si les pentes doivent être conservées dans un cache.
+     * @param maxSlopeTiles
+     *            Le nombre maximal de tuiles de pentes conservées, ignoré
+     *            sans cache.
+     */
+    private ContinuousElevationModel(DiscreteElevationModel dem,
+            double samplesPerRadian, boolean slopesCached, int maxSlopeTiles) {
+        this.extent = requireNonNull(dem, "The given DEM is null.").extent();
+        this.samplesPerRadian = samplesPerRadian;
+        this.samples = samples(dem);
+        this.elevationAtIndex = this::elevationAtIndex;
+        this.slopeAtIndex = this::slopeAtIndex;
+        if (slopesCached) {
+            this.slopeCache = new SlopeRasterCache(elevationAtIndex,
+                    slopeAtIndex, extent, maxSlopeTiles);
+            this.slopeSource = slopeCache::slopeAt;
+        } else {
+            this.slopeCache = null;
+            this.slopeSource = slopeAtIndex;
+        }
+    }
+
+    /**
+     * Construit un MNT continu à partir d'un MNT discret dont les échantillons
+     * sont plus espacés que ceux des fichiers HGT, par exemple un niveau
+     * réduit d'une {@link DemPyramid}. Seules les altitudes d'un tel MNT ont
+     * un sens : ses pentes sont calculées comme si les échantillons étaient
+     * espacés d'une seconde d'arc.
+     * 
+     * @param dem
+     *            Un MNT discret.
+     * @param samplesPerRadian
+     *            Le nombre d'échantillons du MNT discret par radian.
+     * 
+     * @return Le MNT continu de résolution donnée.
+     * 
+     * @throws NullPointerException
+     *             si le MNT discret donné est null.
+     */
+    static ContinuousElevationModel withResolution(DiscreteElevationModel dem,
+            double samplesPerRadian) {
+        return new ContinuousElevationModel(dem, samplesPerRadian, false, 0);
+    }
+
+    /**
+     * Retourne le nombre d'échantillons par radian du MNT discret.
+     * 
+     * @return Le nombre d'échantillons par radian.
+     */
+    double samplesPerRadian() {
+        return samplesPerRadian;
+    }
+
+    /**
+     * Retourne le cache des pentes de ce MNT continu, qui permet notamment de
+     * connaître sa mémoire occupée et son taux de succès.
+     * 
+     * @return Le cache des pentes, ou null si les pentes ne sont pas mises en
+     *         cache.
+     */
+    public SlopeRasterCache slopeCache() {
+        return slopeCache;
     }
 
     /**
@@ -59,7 +182,24 @@ public final class ContinuousElevationModel {
      *         en-dehors de son champ de définition.
      */
     private double elevationAtIndex(int x, int y) {
-        return dem.extent().contains(x, y) ? dem.elevationSample(x, y) : 0;
+        return extent.contains(x, y) ? samples.apply(x, y) : 0;
+    }
+
+    /**
+     * Retourne la fonction lisant les échantillons du MNT discret donné. Pour
+     * les MNT HGT, l'appartenance à l'étendue étant déjà vérifiée par
+     * elevationAtIndex, les échantillons sont lus sans seconde vérification.
+     */
+    static IndexFunction samples(DiscreteElevationModel dem) {
+        if (dem instanceof SuperHgtDiscreteElevationModel)
+            return ((SuperHgtDiscreteElevationModel) dem)::uncheckedElevationSample;
+        if (dem instanceof HgtDiscreteElevationModel)
+            return ((HgtDiscreteElevationModel) dem)::uncheckedElevationSample;
+        if (dem instanceof TiledHgtDiscreteElevationModel)
+            return ((TiledHgtDiscreteElevationModel) dem)::uncheckedElevationSample;
+        if (dem instanceof BlockedDiscreteElevationModel)
+            return ((BlockedDiscreteElevationModel) dem)::uncheckedElevationSample;
+        return dem::elevationSample;
     }
 
     /**
@@ -73,16 +213,34 @@ public final class ContinuousElevationModel {
      * @return La pente du point à l'index donné.
      */
     private double slopeAtIndex(int x, int y) {
-        double a = elevationAtIndex(x, y);
-        return acos(D / sqrt(sq(elevationAtIndex(x + 1, y) - a)
-                + sq(elevationAtIndex(x, y + 1) - a) + D_SQUARED));
+        return slope(elevationAtIndex(x, y), elevationAtIndex(x + 1, y),
+                elevationAtIndex(x, y + 1));
+    }
+
+    /**
+     * Retourne la pente d'un point à partir de son altitude et de celles de ses
+     * voisins est et nord.
+     * 
+     * @param a
+     *            L'altitude du point.
+     * @param east
+     *            L'altitude du point d'index de longitude suivant.
+     * @param north
+     *            L'altitude du point d'index de latitude suivant.
+     * 
+     * @return La pente du point, en radians.
+     */
+    static double slope(double a, double east, double north) {
+        return acos(D / sqrt(sq(east - a) + sq(north - a) + D_SQUARED));
     }
 
     /**
      * Produit l'interpolation linéaire selon les paramètres donnés.
      * 
-     * @param p
-     *            Un point géographique
+     * @param longitude
+     *            La longitude du point, en radians.
+     * @param latitude
+     *            La latitude du point, en radians.
      * @param par
      *            Determine la fonction à utiliser pour l'interpolation
      *            bilinéaire.
@@ -90,10 +248,10 @@ public final class ContinuousElevationModel {
      * @return L'interpolation bilinéaire des valeurs correspondant à la
      *         fonction passée en paramètre du point donné.
      */
-    private double bilinearInterpolation(GeoPoint p,
-            BiFunction<Integer, Integer, Double> par) {
-        double lon = sampleIndex(p.longitude());
-        double lat = sampleIndex(p.latitude());
+    private double bilinearInterpolation(double longitude, double latitude,
+            IndexFunction par) {
+        double lon = longitude * samplesPerRadian;
+        double lat = latitude * samplesPerRadian;
         int indX = (int) floor(lon);
         int indY = (int) floor(lat);
         
@@ -112,7 +270,50 @@ public final class ContinuousElevationModel {
      * @return L'altitude au point passé en argument.
      */
     public double elevationAt(GeoPoint p) {
-        return bilinearInterpolation(p, (x, y) -> elevationAtIndex(x, y));
+        return elevationAt(p.longitude(), p.latitude());
+    }
+
+    /**
+     * Retourne l'altitude au point de coordonnées données, en mètres. Permet
+     * d'éviter la création d'un GeoPoint lorsque les coordonnées sont déjà
+     * connues.
+     * 
+     * @param longitude
+     *            La longitude du point, en radians.
+     * @param latitude
+     *            La latitude du point, en radians.
+     * 
+     * @return L'altitude au point de coordonnées données.
+     */
+    public double elevationAt(double longitude, double latitude) {
+        return bilinearInterpolation(longitude, latitude,
+                elevationAtIndex);
+    }
+
+    /**
+     * Calcule les altitudes de plusieurs points à la fois, en mètres. Le point
+     * d'index i a pour coordonnées longitudes[i] et latitudes[i], et son
+     * altitude est placée dans out[i]. N'alloue aucun objet.
+     * 
+     * @param longitudes
+     *            Les longitudes des points, en radians.
+     * @param latitudes
+     *            Les latitudes des points, en radians.
+     * @param out
+     *            Le tableau recevant les altitudes.
+     * 
+     * @throws IllegalArgumentException
+     *             si les trois tableaux n'ont pas la même taille.
+     */
+    public void elevationsAt(double[] longitudes, double[] latitudes,
+            double[] out) {
+        checkArgument(
+                longitudes.length == latitudes.length
+                        && latitudes.length == out.length,
+                "The given arrays do not have the same length.");
+        for (int i = 0; i < out.length; ++i)
+            out[i] = bilinearInterpolation(longitudes[i], latitudes[i],
+                    elevationAtIndex);
     }
 
     /**
@@ -125,7 +326,34 @@ public final class ContinuousElevationModel {
      * @return La pente au point passé en argument.
      */
     public double slopeAt(GeoPoint p) {
-        return bilinearInterpolation(p, (x, y) -> slopeAtIndex(x, y));
+        return slopeAt(p.longitude(), p.latitude());
+    }
+
+    /**
+     * Retourne la pente au point de coordonnées données, en radians. Permet
+     * d'éviter la création d'un GeoPoint lorsque les coordonnées sont déjà
+     * connues.
+     * 
+     * @param longitude
+     *            La longitude du point, en radians.
+     * @param latitude
+     *            La latitude du point, en radians.
+     * 
+     * @return La pente au point de coordonnées données.
+     */
+    public double slopeAt(double longitude, double latitude) {
+        return bilinearInterpolation(longitude, latitude,
+                slopeSource);
+    }
+
+    /**
+     * Fonction primitive donnant une valeur réelle pour un index du MNT
+     * discret. Remplace BiFunction&lt;Integer, Integer, Double&gt;, qui
+     * impose d'emballer les index et la valeur à chaque appel.
+     */
+    @FunctionalInterface
+    interface IndexFunction {
+        double apply(int x, int y);
     }
 
 }
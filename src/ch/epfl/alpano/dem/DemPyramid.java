@@ -0,0 +1,201 @@
+package ch.epfl.alpano.dem;
+
+import static ch.epfl.alpano.Distance.toMeters;
+import static ch.epfl.alpano.Preconditions.checkArgument;
+import static ch.epfl.alpano.dem.DiscreteElevationModel.SAMPLES_PER_RADIAN;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+
+/**
+ * Pyramide de MNT de résolutions décroissantes, utilisée pour le terrain
+ * lointain. Le niveau k contient un échantillon tous les 2<sup>k</sup>
+ * échantillons du MNT d'origine, égal à la moyenne des échantillons qui
+ * l'entourent. Les niveaux réduits sont conservés sur le disque au format par
+ * blocs et ne sont calculés que s'ils n'y existent pas encore, ou si le
+ * fichier existant a été créé à partir d'un autre MNT. Classe immuable.
+ *
+ * <p>
+ * Le niveau d'origine n'est pas stocké dans la pyramide : il s'agit du MNT
+ * continu avec lequel elle est utilisée (voir
+ * {@link ElevationProfile#ElevationProfile(ContinuousElevationModel, ch.epfl.alpano.GeoPoint, double, double, double, DemPyramid, double)}).
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+public final class DemPyramid {
+
+    /**
+     * Nombre de niveaux de la pyramide, y compris celui d'origine.
+     */
+    public static final int LEVELS = 4;
+
+    /**
+     * Distance entre deux échantillons du MNT d'origine, en mètres.
+     */
+    static final double BASE_SPACING = toMeters(1 / SAMPLES_PER_RADIAN);
+
+    /**
+     * Les MNT continus des niveaux réduits, d'index 1 à LEVELS - 1. La case
+     * d'index 0 est vide.
+     */
+    private final ContinuousElevationModel[] levels;
+
+    /**
+     * Construit la pyramide du MNT donné, en lisant ses niveaux réduits dans
+     * le répertoire donné ou en les y créant. Les fichiers sont nommés
+     * <i>name</i>-2x.bdem, <i>name</i>-4x.bdem, etc. Un fichier existant est
+     * recréé s'il est invalide, si son étendue diffère de celle du niveau ou
+     * si son empreinte diffère de celle du niveau calculé à partir du MNT
+     * donné (voir
+     * {@link BlockedDiscreteElevationModel#fingerprint(DiscreteElevationModel)}).
+     *
+     * @param dem
+     *            Le MNT d'origine.
+     * @param directory
+     *            Le répertoire contenant les niveaux réduits.
+     * @param name
+     *            Le nom identifiant le MNT d'origine.
+     *
+     * @throws IOException
+     *             en cas d'erreur lors de la création d'un niveau.
+     * @throws NullPointerException
+     *             si l'un des arguments est null.
+     */
+    public DemPyramid(DiscreteElevationModel dem, File directory, String name)
+            throws IOException {
+        requireNonNull(dem, "The given DEM is null.");
+        requireNonNull(directory, "The given directory is null.");
+        requireNonNull(name, "The given name is null.");
+        this.levels = new ContinuousElevationModel[LEVELS];
+        for (int k = 1; k < LEVELS; ++k) {
+            int factor = 1 << k;
+            File file = new File(directory, name + "-" + factor + "x.bdem");
+            DownsampledDEM level = new DownsampledDEM(dem, factor);
+            BlockedDiscreteElevationModel stored = read(file, level);
+            if (stored == null) {
+                write(level, file);
+                stored = new BlockedDiscreteElevationModel(file);
+            }
+            levels[k] = ContinuousElevationModel.withResolution(stored,
+                    SAMPLES_PER_RADIAN / factor);
+        }
+    }
+
+    /**
+     * Écrit le niveau donné dans un nouveau fichier temporaire du même
+     * répertoire, puis le renomme en le fichier donné. Un fichier existant,
+     * éventuellement encore projeté en mémoire par une autre pyramide, n'est
+     * ainsi jamais modifié : ses projections continuent de lire son ancien
+     * contenu. Si le système refuse de le remplacer tant qu'il est projeté,
+     * une exception est levée plutôt que de servir son ancien contenu.
+     */
+    private static void write(DiscreteElevationModel level, File file)
+            throws IOException {
+        Path target = file.toPath();
+        Path temporary = File.createTempFile(file.getName(), ".tmp",
+                file.getAbsoluteFile().getParentFile()).toPath();
+        try {
+            BlockedDiscreteElevationModel.convert(level, temporary.toFile());
+            try {
+                Files.move(temporary, target, REPLACE_EXISTING, ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Retourne le niveau stocké dans le fichier donné s'il a été créé à partir
+     * du niveau donné, null si le fichier est absent, invalide ou provient
+     * d'un autre MNT.
+     */
+    private static BlockedDiscreteElevationModel read(File file,
+            DiscreteElevationModel level) {
+        if (!file.isFile())
+            return null;
+        try {
+            BlockedDiscreteElevationModel stored = new BlockedDiscreteElevationModel(
+                    file);
+            return stored.extent().equals(level.extent())
+                    && stored.fingerprint() == BlockedDiscreteElevationModel
+                            .fingerprint(level) ? stored : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Retourne le MNT continu du niveau réduit donné. Seules ses altitudes ont
+     * un sens.
+     *
+     * @param level
+     *            Le niveau, entre 1 et LEVELS - 1.
+     *
+     * @return Le MNT continu du niveau.
+     */
+    ContinuousElevationModel level(int level) {
+        checkArgument(0 < level && level < LEVELS,
+                "The given level is invalid.");
+        return levels[level];
+    }
+
+    /**
+     * MNT discret dont chaque échantillon est la moyenne des échantillons du
+     * MNT d'origine situés à moins d'un demi-facteur de lui, sur chaque axe.
+     */
+    private static final class DownsampledDEM
+            implements DiscreteElevationModel {
+        private final Interval2D source, extent;
+        private final ContinuousElevationModel.IndexFunction samples;
+        private final int factor;
+
+        DownsampledDEM(DiscreteElevationModel dem, int factor) {
+            this.source = dem.extent();
+            this.samples = ContinuousElevationModel.samples(dem);
+            this.factor = factor;
+            this.extent = new Interval2D(
+                    new Interval1D(
+                            Math.floorDiv(source.iX().includedFrom() + factor
+                                    - 1, factor),
+                            Math.floorDiv(source.iX().includedTo(), factor)),
+                    new Interval1D(
+                            Math.floorDiv(source.iY().includedFrom() + factor
+                                    - 1, factor),
+                            Math.floorDiv(source.iY().includedTo(), factor)));
+        }
+
+        @Override
+        public Interval2D extent() {
+            return extent;
+        }
+
+        @Override
+        public double elevationSample(int x, int y) {
+            int half = factor / 2;
+            int x0 = max(x * factor - half, source.iX().includedFrom());
+            int x1 = min(x * factor + half, source.iX().includedTo());
+            int y0 = max(y * factor - half, source.iY().includedFrom());
+            int y1 = min(y * factor + half, source.iY().includedTo());
+            double sum = 0;
+            for (int j = y0; j <= y1; ++j)
+                for (int i = x0; i <= x1; ++i)
+                    sum += samples.apply(i, j);
+            return Math.rint(sum / ((x1 - x0 + 1) * (y1 - y0 + 1)));
+        }
+    }
+
+}
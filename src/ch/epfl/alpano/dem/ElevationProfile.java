@@ -7,14 +7,15 @@ import static ch.epfl.alpano.Math2.angularDistance;
 import static ch.epfl.alpano.Math2.lerp;
 import static ch.epfl.alpano.Preconditions.checkArgument;
 import static java.lang.Math.asin;
+import static java.lang.Math.ceil;
 import static java.lang.Math.cos;
+import static java.lang.Math.floor;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.Math.scalb;
 import static java.lang.Math.sin;
 import static java.util.Objects.requireNonNull;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import ch.epfl.alpano.GeoPoint;
 
 /**
@@ -42,9 +43,43 @@ public final class ElevationProfile {
     private final double length;
 
     /**
-     * Les points calculés dans le constructeur.
+     * Les longitudes et latitudes des points calculés dans le constructeur. Ils
+     * sont stockés dans des tableaux de valeurs primitives afin que
+     * l'interpolation n'alloue aucun objet.
+     */
+    private final double[] longitudes, latitudes;
+
+    /**
+     * Le pas d'échantillonnage du profil dense (en mètres), ou 0 si le profil
+     * n'est pas dense.
+     */
+    private final double denseStep;
+
+    /**
+     * Les altitudes échantillonnées tous les <i>denseStep</i> mètres si le
+     * profil est dense, null sinon.
+     */
+    private final float[] elevations;
+
+    /**
+     * Les MNT continus de chaque niveau de détail, du plus fin au plus
+     * grossier, ou null si le profil n'utilise pas de pyramide.
+     */
+    private final ContinuousElevationModel[] levels;
+
+    /**
+     * Pour chaque niveau de détail, la distance à partir de laquelle il est
+     * utilisé seul, et celle à partir de laquelle il est mélangé au niveau
+     * précédent.
+     */
+    private final double[] levelStart, blendStart;
+
+    /**
+     * Proportion de la distance de début d'un niveau à partir de laquelle ce
+     * niveau est progressivement mélangé au précédent, afin que l'altitude ne
+     * présente pas de saut au changement de niveau.
      */
-    private final List<GeoPoint> pointsCalculated;
+    private static final double BLEND_START = 0.8;
 
     /**
      * Construit un profil altimétrique.
@@ -69,6 +104,82 @@ public final class ElevationProfile {
      */
     public ElevationProfile(ContinuousElevationModel elevation, GeoPoint origin,
             double azimuth, double length) {
+        this(elevation, origin, azimuth, length, 0);
+    }
+
+    /**
+     * Construit un profil altimétrique dense : le MNT est échantillonné une
+     * seule fois, tous les <i>denseStep</i> mètres, et les altitudes sont
+     * ensuite obtenues par interpolation linéaire de ces échantillons, sans
+     * plus consulter le MNT. Les altitudes sont donc approchées ; l'écart est
+     * faible lorsque le pas est proche de la résolution du MNT (environ 30
+     * mètres).
+     * 
+     * @param elevation
+     *            Le MNT continu dans lequel la classe doit chercher ses
+     *            valeurs.
+     * @param origin
+     *            Le point d'origine du profil altimétrique.
+     * @param azimuth
+     *            L'azimuth (sous forme canonique) qui détermine la direction du
+     *            profil altimétrique.
+     * @param length
+     *            La longueur (strictement positive) du profil altimétrique (en
+     *            mètres).
+     * @param denseStep
+     *            Le pas d'échantillonnage des altitudes (en mètres), positif.
+     *            0 construit un profil non dense, qui consulte le MNT à chaque
+     *            appel.
+     * 
+     * @throws IllegalArgumentException
+     *             si les conditions décrites pour les arguments ne sont pas
+     *             remplies
+     * @throws NullPointerException
+     *             si elevation ou origin sont null.
+     */
+    public ElevationProfile(ContinuousElevationModel elevation, GeoPoint origin,
+            double azimuth, double length, double denseStep) {
+        this(elevation, origin, azimuth, length, denseStep, null, 0);
+    }
+
+    /**
+     * Construit un profil altimétrique dont les altitudes lointaines sont lues
+     * dans les niveaux réduits d'une pyramide. Le niveau k est utilisé dès que
+     * l'empreinte d'un pixel, c'est-à-dire la distance multipliée par l'angle
+     * d'un pixel, atteint l'espacement de ses échantillons ; il est mélangé au
+     * niveau précédent juste avant. Les altitudes sont donc approchées au-delà
+     * de la distance de début du premier niveau réduit.
+     * 
+     * @param elevation
+     *            Le MNT continu d'origine, utilisé pour le terrain proche et
+     *            pour les pentes.
+     * @param origin
+     *            Le point d'origine du profil altimétrique.
+     * @param azimuth
+     *            L'azimuth (sous forme canonique) qui détermine la direction du
+     *            profil altimétrique.
+     * @param length
+     *            La longueur (strictement positive) du profil altimétrique (en
+     *            mètres).
+     * @param denseStep
+     *            Le pas d'échantillonnage des altitudes (en mètres), positif,
+     *            ou 0 pour un profil non dense.
+     * @param pyramid
+     *            La pyramide de ce MNT, ou null pour n'utiliser que le MNT
+     *            d'origine.
+     * @param pixelAngle
+     *            L'angle couvert par un pixel (en radians), strictement
+     *            positif si une pyramide est donnée.
+     * 
+     * @throws IllegalArgumentException
+     *             si les conditions décrites pour les arguments ne sont pas
+     *             remplies
+     * @throws NullPointerException
+     *             si elevation ou origin sont null.
+     */
+    public ElevationProfile(ContinuousElevationModel elevation, GeoPoint origin,
+            double azimuth, double length, double denseStep,
+            DemPyramid pyramid, double pixelAngle) {
 
         this.cem = requireNonNull(elevation, "The given CEM is null.");
         requireNonNull(origin, "The given origin is null.");
@@ -80,29 +191,200 @@ public final class ElevationProfile {
                 "The given azimuth is not in canonical form.");
         azimuth = toMath(azimuth);
 
-        this.pointsCalculated = new ArrayList<>();
+        int size = (int) ceil(length / STEP) + 1;
+        this.longitudes = new double[size];
+        this.latitudes = new double[size];
+
+        double sinLat = sin(origin.latitude()), cosLat = cos(origin.latitude());
+        double sinA = sin(azimuth), cosA = cos(azimuth);
+        for (int i = 0; i < size; ++i) {
+            double x = toRadians(i * STEP);
+            double lat = asin(sinLat * cos(x) + cosLat * sin(x) * cosA);
+            latitudes[i] = lat;
+            longitudes[i] = angularDistance(asin(sinA * sin(x) / cos(lat)),
+                    origin.longitude());
+        }
+
+        if (pyramid == null) {
+            this.levels = null;
+            this.levelStart = null;
+            this.blendStart = null;
+        } else {
+            checkArgument(0 < pixelAngle,
+                    "The given pixel angle is not strictly positive.");
+            this.levels = new ContinuousElevationModel[DemPyramid.LEVELS];
+            this.levelStart = new double[DemPyramid.LEVELS];
+            this.blendStart = new double[DemPyramid.LEVELS];
+            levels[0] = cem;
+            for (int k = 1; k < levels.length; ++k) {
+                levels[k] = pyramid.level(k);
+                levelStart[k] = DemPyramid.BASE_SPACING * (1 << k) / pixelAngle;
+                blendStart[k] = BLEND_START * levelStart[k];
+            }
+        }
 
-        for (int i = 0; i < length + STEP; i += STEP)
-            pointsCalculated.add(newPoint(origin, azimuth, toRadians(i)));
+        checkArgument(0 <= denseStep,
+                "The given dense step is negative.");
+        this.denseStep = denseStep;
+        if (denseStep == 0) {
+            this.elevations = null;
+        } else {
+            // Le dernier échantillon se trouve au-delà de la longueur, afin que
+            // toute distance valide soit encadrée par deux échantillons. Sa
+            // position est limitée au dernier point calculé.
+            this.elevations = new float[(int) ceil(length / denseStep) + 1];
+            double maxX = (size - 1) * STEP;
+            for (int i = 0; i < elevations.length; ++i) {
+                elevations[i] = (float) groundElevationAt(
+                        min(i * denseStep, maxX));
+            }
+        }
     }
 
     /**
-     * Calcule les points utiles pour l'interpolation linéaire.
+     * Retourne l'altitude du terrain à la distance donnée, sans vérifier cette
+     * dernière, en choisissant le niveau de détail selon la distance.
+     */
+    private double groundElevationAt(double x) {
+        double lon = longitudeAt(x), lat = latitudeAt(x);
+        if (levels == null || x < blendStart[1])
+            return cem.elevationAt(lon, lat);
+
+        int k = levels.length - 1;
+        while (x < blendStart[k])
+            --k;
+        double e = levels[k].elevationAt(lon, lat);
+        if (x >= levelStart[k])
+            return e;
+        return lerp(levels[k - 1].elevationAt(lon, lat), e,
+                (x - blendStart[k]) / (levelStart[k] - blendStart[k]));
+    }
+
+    /**
+     * Retourne le rapport entre l'espacement des échantillons du niveau de
+     * détail utilisé à la distance donnée et celui du MNT d'origine. Vaut 1 si
+     * le profil n'utilise pas de pyramide.
+     * 
+     * @param x
+     *            La distance (en mètres).
+     * 
+     * @return Le facteur de réduction du niveau de détail, une puissance de 2.
+     */
+    public int detailFactorAt(double x) {
+        if (levels == null)
+            return 1;
+        int k = levels.length - 1;
+        while (k > 0 && x < levelStart[k])
+            --k;
+        return 1 << k;
+    }
+
+    /**
+     * Retourne un majorant de l'altitude du terrain entre les deux distances
+     * données, lu dans l'index des altitudes maximales du MNT du profil. Le
+     * majorant couvre tous les échantillons qui interviennent dans
+     * l'interpolation des altitudes de cet intervalle, y compris celles d'un
+     * profil dense. Les niveaux réduits d'une pyramide n'étant pas indexés,
+     * le majorant est infini si le profil en utilise une.
      * 
-     * @param p
-     *            Point d'origine du profil.
      * @param a
-     *            Azimuth du profil (angle mathématique).
+     *            La distance de début (en mètres).
+     * @param b
+     *            La distance de fin (en mètres), supérieure ou égale à a.
+     * @param index
+     *            L'index des altitudes maximales du MNT du profil.
+     * 
+     * @return Un majorant de l'altitude du terrain entre a et b.
+     * 
+     * @throws IllegalArgumentException
+     *             si l'intervalle n'est pas défini dans le profil
+     *             altimétrique.
+     * @throws NullPointerException
+     *             si l'index est null.
+     */
+    public double maxElevationBetween(double a, double b,
+            MaxElevationIndex index) {
+        checkArgument(0 <= a && a <= b && b <= length,
+                "The interval is not defined in the ElevationProfile.");
+        requireNonNull(index, "The given index is null.");
+        if (levels != null)
+            return Double.POSITIVE_INFINITY;
+
+        // Une altitude dense interpole deux échantillons distants d'un pas.
+        a = max(0, a - denseStep);
+        b = min(b + denseStep, (longitudes.length - 1) * STEP);
+        double minLon = min(longitudeAt(a), longitudeAt(b));
+        double maxLon = max(longitudeAt(a), longitudeAt(b));
+        double minLat = min(latitudeAt(a), latitudeAt(b));
+        double maxLat = max(latitudeAt(a), latitudeAt(b));
+        for (int i = (int) ceil(a / STEP); i * STEP < b; ++i) {
+            minLon = min(minLon, longitudes[i]);
+            maxLon = max(maxLon, longitudes[i]);
+            minLat = min(minLat, latitudes[i]);
+            maxLat = max(maxLat, latitudes[i]);
+        }
+        // Le profil traverse l'antiméridien : le rectangle serait trop grand.
+        if (maxLon - minLon > 1)
+            return Double.POSITIVE_INFINITY;
+
+        double s = cem.samplesPerRadian();
+        return index.maxElevation((int) floor(minLon * s) - 1,
+                (int) floor(maxLon * s) + 2, (int) floor(minLat * s) - 1,
+                (int) floor(maxLat * s) + 2);
+    }
+
+    /**
+     * Indique si le profil est dense, c'est-à-dire si ses altitudes ont été
+     * échantillonnées à sa construction.
+     * 
+     * @return vrai si le profil est dense.
+     */
+    public boolean isDense() {
+        return elevations != null;
+    }
+
+    /**
+     * Calcule la longitude du point dans le profil altimétrique situé à la
+     * distance donnée de l'origine, sans vérifier cette dernière.
+     * 
      * @param x
-     *            Distance du point par rapport à l'origine (en radians).
+     *            La distance (en mètres), définie dans le profil.
      * 
-     * @return Point utile pour l'interpolation linéaire.
+     * @return La longitude du point après interpolation linéaire.
      */
-    private GeoPoint newPoint(GeoPoint p, double a, double x) {
-        double lat = asin(sin(p.latitude()) * cos(x)
-                + cos(p.latitude()) * sin(x) * cos(a));
-        return new GeoPoint(angularDistance(asin(sin(a) * sin(x) / cos(lat)),
-                p.longitude()), lat);
+    private double longitudeAt(double x) {
+        return interpolate(longitudes, x);
+    }
+
+    /**
+     * Calcule la latitude du point dans le profil altimétrique situé à la
+     * distance donnée de l'origine, sans vérifier cette dernière.
+     * 
+     * @param x
+     *            La distance (en mètres), définie dans le profil.
+     * 
+     * @return La latitude du point après interpolation linéaire.
+     */
+    private double latitudeAt(double x) {
+        return interpolate(latitudes, x);
+    }
+
+    /**
+     * Interpole linéairement les valeurs calculées dans le constructeur.
+     * 
+     * @param values
+     *            Les longitudes ou les latitudes calculées.
+     * @param x
+     *            La distance (en mètres), définie dans le profil.
+     * 
+     * @return La valeur interpolée à la distance donnée.
+     */
+    private static double interpolate(double[] values, double x) {
+        double div = scalb(x, -12);
+        int v = (int) div;
+        if (v == values.length - 1)
+            return values[v];
+        return lerp(values[v], values[v + 1], div % 1);
     }
 
     /**
@@ -121,21 +403,14 @@ public final class ElevationProfile {
     public GeoPoint positionAt(double x) {
         checkArgument(0 <= x && x <= length,
                 "The position is not defined in the ElevationProfile.");
-        double div = scalb(x, -12);
-        int v = (int) div;
-        if (v == pointsCalculated.size() - 1)
-            return pointsCalculated.get(v);
-        double s = div % 1;
-        return new GeoPoint(
-                lerp(pointsCalculated.get(v).longitude(),
-                        pointsCalculated.get(v + 1).longitude(), s),
-                lerp(pointsCalculated.get(v).latitude(),
-                        pointsCalculated.get(v + 1).latitude(), s));
+        return new GeoPoint(longitudeAt(x), latitudeAt(x));
     }
 
     /**
      * Retourne l'altitude du point dans le profil altimétrique situé à la
-     * distance demandée de l'origine.
+     * distance demandée de l'origine. N'alloue aucun objet. Si le profil est
+     * dense, l'altitude est interpolée entre les échantillons calculés à la
+     * construction.
      * 
      * @param x
      *            La distance demandée (en mètres).
@@ -149,7 +424,13 @@ public final class ElevationProfile {
     public double elevationAt(double x) {
         checkArgument(0 <= x && x <= length,
                 "The position is not defined in the ElevationProfile.");
-        return cem.elevationAt(positionAt(x));
+        if (elevations != null) {
+            double div = x / denseStep;
+            int i = (int) div;
+            return i == elevations.length - 1 ? elevations[i]
+                    : lerp(elevations[i], elevations[i + 1], div - i);
+        }
+        return groundElevationAt(x);
     }
 
     /**
@@ -168,7 +449,7 @@ public final class ElevationProfile {
     public double slopeAt(double x) {
         checkArgument(0 <= x && x <= length,
                 "The position is not defined in the ElevationProfile.");
-        return cem.slopeAt(positionAt(x));
+        return cem.slopeAt(longitudeAt(x), latitudeAt(x));
     }
 
 }
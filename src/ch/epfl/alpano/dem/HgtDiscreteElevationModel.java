@@ -35,6 +35,13 @@ public final class HgtDiscreteElevationModel implements DiscreteElevationModel {
      */
     private final Interval2D extent;
 
+    /**
+     * Index de longitude du bord ouest et index de latitude du bord nord du
+     * MNT, conservés pour calculer la position d'un échantillon sans passer
+     * par l'étendue.
+     */
+    private final int westIndex, northIndex;
+
     /**
      * Construit un MNT discret qui prend ses valeurs, des altitudes, dans un
      * fichier.
@@ -111,6 +118,30 @@ public final class HgtDiscreteElevationModel implements DiscreteElevationModel {
         this.extent = new Interval2D(
                 new Interval1D(lonIndex, lonIndex + SAMPLES_PER_DEGREE),
                 new Interval1D(latIndex, latIndex + SAMPLES_PER_DEGREE));
+        this.westIndex = lonIndex;
+        this.northIndex = latIndex + SAMPLES_PER_DEGREE;
+    }
+
+    /**
+     * Retourne le nom du fichier HGT couvrant le degré dont le coin sud-ouest
+     * a les coordonnées données, par exemple "N46E007.hgt" ou "S01W072.hgt".
+     * 
+     * @param lon
+     *            La longitude du coin sud-ouest, en degrés.
+     * @param lat
+     *            La latitude du coin sud-ouest, en degrés.
+     * 
+     * @return Le nom du fichier HGT correspondant.
+     * 
+     * @throws IllegalArgumentException
+     *             si les coordonnées ne désignent pas un degré du globe.
+     */
+    public static String fileName(int lon, int lat) {
+        checkArgument(-180 <= lon && lon < 180,
+                "The given longitude is invalid.");
+        checkArgument(-90 <= lat && lat < 90, "The given latitude is invalid.");
+        return String.format("%c%02d%c%03d.hgt", lat < 0 ? 'S' : 'N',
+                Math.abs(lat), lon < 0 ? 'W' : 'E', Math.abs(lon));
     }
 
     @Override
@@ -122,8 +153,23 @@ public final class HgtDiscreteElevationModel implements DiscreteElevationModel {
     public double elevationSample(int x, int y) {
         checkArgument(extent().contains(x, y),
                 "The HgtDEM does not contain the given index.");
-        return source.get((extent().iY().includedTo() - y) * SIDE + x
-                - extent().iX().includedFrom());
+        return uncheckedElevationSample(x, y);
+    }
+
+    /**
+     * Retourne l'altitude à l'index donné sans vérifier qu'il appartient à
+     * l'étendue du MNT. Destinée aux appelants qui ont déjà fait cette
+     * vérification.
+     * 
+     * @param x
+     *            L'index de la longitude, compris dans l'étendue.
+     * @param y
+     *            L'index de la latitude, compris dans l'étendue.
+     * 
+     * @return L'altitude à l'index donné.
+     */
+    double uncheckedElevationSample(int x, int y) {
+        return source.get((northIndex - y) * SIDE + x - westIndex);
     }
 
 }
@@ -2,56 +2,222 @@ package ch.epfl.alpano.dem;
 
 import static ch.epfl.alpano.Preconditions.checkArgument;
 import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.util.Objects.requireNonNull;
 import static ch.epfl.alpano.dem.SuperHgtDiscreteElevationModel.*;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
 import java.nio.ShortBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
 
 import ch.epfl.alpano.Interval1D;
 import ch.epfl.alpano.Interval2D;
 
+/**
+ * Représente un MNT discret de 8192 × 8192 échantillons couvrant une partie
+ * des Alpes, rangés dans un fichier selon une courbe remplissant le plan. Le
+ * fichier est créé à partir du MNT complet des Alpes s'il est absent ou s'il
+ * ne correspond pas au MNT demandé.
+ *
+ * <p>
+ * Le fichier commence par un en-tête de {@value #HEADER_SIZE} octets
+ * contenant, sous forme d'entiers, un nombre magique, la version du format,
+ * l'ordre des échantillons, l'index du coin sud-ouest et le côté de
+ * l'étendue. L'en-tête n'est écrit qu'une fois tous les échantillons écrits,
+ * si bien qu'un fichier dont la création a été interrompue est recréé.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
 public class HilbertDiscreteElevationModel implements DiscreteElevationModel {
 
     private final static int N = 8192;
     private final static int N_SQUARED = N * N;
 
+    /**
+     * Nombre magique identifiant le format ("ALHC").
+     */
+    private static final int MAGIC = 0x414C4843;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Taille de l'en-tête, en octets.
+     */
+    static final int HEADER_SIZE = 32;
+
+    private static final long FILE_SIZE = HEADER_SIZE + N_SQUARED * 2L;
+
     private final static int BASE_LON = SuperHgtDiscreteElevationModel.BASE_LON
             * SAMPLES_PER_DEGREE;
     private final static int BASE_LAT = SuperHgtDiscreteElevationModel.BASE_LAT
             * SAMPLES_PER_DEGREE;
 
+    /**
+     * Table de la courbe de Hilbert traitant 4 bits de chaque coordonnée à la
+     * fois. L'entrée d'index (état &lt;&lt; 8 | x &lt;&lt; 4 | y) contient les 8
+     * bits correspondants de l'index sur la courbe, et le nouvel état dans ses
+     * bits suivants. L'état est l'orientation du sous-carré courant : son bit
+     * 1 indique que les coordonnées sont complémentées, son bit 0 qu'elles
+     * sont échangées.
+     */
+    private static final int[] HILBERT_NIBBLES = hilbertNibbles();
+
+    /**
+     * Ordre dans lequel les échantillons sont rangés dans le fichier.
+     */
+    public enum Layout {
+
+        /**
+         * Ordre de la courbe de Hilbert, qui préserve le mieux la localité.
+         */
+        HILBERT("hhgt") {
+            @Override
+            int index(int x, int y) {
+                // N = 2^13 : le bit de poids fort est traité seul, les 12
+                // suivants par quartets.
+                int rx = (x >> 12) & 1, ry = (y >> 12) & 1;
+                int d = ((3 * rx) ^ ry) << 24;
+                int state = ry == 0 ? rx << 1 | 1 : 0;
+                for (int shift = 8; shift >= 0; shift -= 4) {
+                    int e = HILBERT_NIBBLES[state << 8
+                            | ((x >> shift) & 0xF) << 4 | ((y >> shift) & 0xF)];
+                    d |= (e & 0xFF) << (2 * shift);
+                    state = e >> 8;
+                }
+                return d;
+            }
+
+            @Override
+            int position(int d) {
+                int rx, ry, s, t = d, x = 0, y = 0;
+                for (s = 1; s < N; s *= 2) {
+                    rx = 1 & (t / 2);
+                    ry = 1 & (t ^ rx);
+
+                    // ROT
+                    if (ry == 0) {
+                        if (rx == 1) {
+                            x = s - 1 - x;
+                            y = s - 1 - y;
+                        }
+
+                        // Swap x and y
+                        int temp = x;
+                        x = y;
+                        y = temp;
+                    }
+
+                    x += s * rx;
+                    y += s * ry;
+                    t /= 4;
+                }
+                return y << 16 | x;
+            }
+        },
+
+        /**
+         * Ordre de Morton (courbe en Z) : les bits de x et de y sont
+         * entrelacés, ce qui se calcule sans boucle ni branchement.
+         */
+        MORTON("zhgt") {
+            @Override
+            int index(int x, int y) {
+                return spread(x) | spread(y) << 1;
+            }
+
+            @Override
+            int position(int d) {
+                return compact(d >> 1) << 16 | compact(d);
+            }
+        };
+
+        private final String extension;
+
+        private Layout(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * Retourne la position dans le fichier de l'échantillon de coordonnées
+         * données, relatives au coin sud-ouest du MNT.
+         */
+        abstract int index(int x, int y);
+
+        /**
+         * Retourne les coordonnées de l'échantillon à la position donnée dans
+         * le fichier, sous la forme (y &lt;&lt; 16 | x).
+         */
+        abstract int position(int d);
+    }
+
     private final File hilbertHGT;
     private final ShortBuffer source;
     private final Interval2D extent;
+    private final Layout layout;
+
+    /**
+     * Le coin sud-ouest de l'étendue.
+     */
+    private final int baseX, baseY;
 
     public HilbertDiscreteElevationModel(int x, int y) {
+        this(x, y, Layout.HILBERT);
+    }
+
+    public HilbertDiscreteElevationModel(int x, int y, Layout layout) {
+        this(x, y, layout, null, SuperHgtDiscreteElevationModel::full);
+    }
+
+    /**
+     * Construit le MNT du fichier donné, en le créant à partir du MNT fourni
+     * s'il est absent ou si son en-tête ne correspond pas.
+     *
+     * @param file
+     *            Le fichier, ou null pour celui du dossier courant nommé
+     *            d'après les numéros et l'ordre donnés.
+     * @param dem
+     *            Le fournisseur du MNT dont le fichier est créé, qui n'est
+     *            appelé que si le fichier doit l'être.
+     */
+    HilbertDiscreteElevationModel(int x, int y, Layout layout, File file,
+            Supplier<DiscreteElevationModel> dem) {
         checkArgument(
                 0 <= x && x <= (MAX_LON * SAMPLES_PER_DEGREE - BASE_LON) / N
                         && 0 <= y
                         && y <= (MAX_LAT * SAMPLES_PER_DEGREE - BASE_LAT) / N,
                 "Invalid .hhgt file number.");
-        hilbertHGT = new File(getFileName(x, y));
+        this.layout = requireNonNull(layout, "The given layout is null.");
+        hilbertHGT = file == null ? new File(getFileName(x, y)) : file;
         Interval1D iX = new Interval1D(BASE_LON + x * N,
                 BASE_LON + (x + 1) * N - 1);
         Interval1D iY = new Interval1D(BASE_LAT + y * N,
                 BASE_LAT + (y + 1) * N - 1);
         this.extent = new Interval2D(iX, iY);
+        this.baseX = iX.includedFrom();
+        this.baseY = iY.includedFrom();
 
-        if (!hilbertHGT.exists() || hilbertHGT.length() != N_SQUARED * 2) {
+        if (!hasValidHeader()) {
             try {
-                createFile();
+                createFile(dem.get());
             } catch (IOException e1) {
                 e1.printStackTrace();
             }
         }
 
         try (FileInputStream stream = new FileInputStream(hilbertHGT)) {
-            source = stream.getChannel().map(READ_ONLY, 0, N_SQUARED * 2)
-                    .asShortBuffer();
+            checkArgument(hasValidHeader(),
+                    "The file is invalid: its header is unknown.");
+            MappedByteBuffer buffer = stream.getChannel().map(READ_ONLY, 0,
+                    FILE_SIZE);
+            buffer.position(HEADER_SIZE);
+            this.source = buffer.slice().asShortBuffer();
         } catch (IOException e) {
             throw new IllegalArgumentException(
                     "The file is either invalid, corrupt, or not found.");
@@ -59,8 +225,26 @@ public class HilbertDiscreteElevationModel implements DiscreteElevationModel {
 
     }
 
+    /**
+     * Indique si le fichier existe, a la bonne taille et si son en-tête
+     * décrit l'ordre et l'étendue de ce MNT. L'en-tête est lu sans projection
+     * pour que le fichier puisse être recréé sur place.
+     */
+    private boolean hasValidHeader() {
+        if (!hilbertHGT.isFile() || hilbertHGT.length() != FILE_SIZE)
+            return false;
+        try (RandomAccessFile file = new RandomAccessFile(hilbertHGT, "r")) {
+            return file.readInt() == MAGIC && file.readInt() == VERSION
+                    && file.readInt() == layout.ordinal()
+                    && file.readInt() == baseX && file.readInt() == baseY
+                    && file.readInt() == N;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     private String getFileName(int x, int y) {
-        return String.format("alpano%d%d.hhgt", x, y);
+        return String.format("alpano%d%d.%s", x, y, layout.extension);
     }
 
     @Override
@@ -72,67 +256,158 @@ public class HilbertDiscreteElevationModel implements DiscreteElevationModel {
     public double elevationSample(int x, int y) {
         checkArgument(extent().contains(x, y),
                 "The HilbertDEM does not contain the given index.");
-        x -= extent().iX().includedFrom();
-        y -= extent().iY().includedFrom();
-        int rx, ry, s, d = 0;
-        for (s = N / 2; s > 0; s /= 2) {
-            rx = (x & s) > 0 ? 1 : 0;
-            ry = (y & s) > 0 ? 1 : 0;
-            d += s * s * ((3 * rx) ^ ry);
-            if (ry == 0) {
-                if (rx == 1) {
-                    x = s - 1 - x;
-                    y = s - 1 - y;
-                }
+        return source.get(layout.index(x - baseX, y - baseY));
+    }
+
+    /**
+     * Répartit les 16 bits de poids faible de l'entier donné sur ses bits
+     * pairs.
+     */
+    private static int spread(int v) {
+        v &= 0xFFFF;
+        v = (v | v << 8) & 0x00FF00FF;
+        v = (v | v << 4) & 0x0F0F0F0F;
+        v = (v | v << 2) & 0x33333333;
+        return (v | v << 1) & 0x55555555;
+    }
+
+    /**
+     * Rassemble les bits pairs de l'entier donné sur ses 16 bits de poids
+     * faible. Inverse de spread.
+     */
+    private static int compact(int v) {
+        v &= 0x55555555;
+        v = (v | v >> 1) & 0x33333333;
+        v = (v | v >> 2) & 0x0F0F0F0F;
+        v = (v | v >> 4) & 0x00FF00FF;
+        return (v | v >> 8) & 0xFFFF;
+    }
 
-                // Swap x and y
-                int t = x;
-                x = y;
-                y = t;
+    /**
+     * Construit la table HILBERT_NIBBLES en appliquant, pour chaque état et
+     * chaque quartet de x et de y, quatre étapes du calcul bit à bit de
+     * l'index de Hilbert.
+     */
+    private static int[] hilbertNibbles() {
+        int[] table = new int[4 << 8];
+        for (int state = 0; state < 4; ++state) {
+            for (int x0 = 0; x0 < 16; ++x0) {
+                for (int y0 = 0; y0 < 16; ++y0) {
+                    int x = x0, y = y0;
+                    if ((state & 2) != 0) {
+                        x = 15 - x;
+                        y = 15 - y;
+                    }
+                    if ((state & 1) != 0) {
+                        int t = x;
+                        x = y;
+                        y = t;
+                    }
+                    int d = 0, next = state;
+                    for (int s = 8; s > 0; s /= 2) {
+                        int rx = (x & s) > 0 ? 1 : 0;
+                        int ry = (y & s) > 0 ? 1 : 0;
+                        d += s * s * ((3 * rx) ^ ry);
+                        if (ry == 0) {
+                            if (rx == 1) {
+                                x = s - 1 - x;
+                                y = s - 1 - y;
+                            }
+                            int t = x;
+                            x = y;
+                            y = t;
+                            next ^= rx << 1 | 1;
+                        }
+                    }
+                    table[state << 8 | x0 << 4 | y0] = next << 8 | d;
+                }
             }
         }
-        return source.get(d);
+        return table;
     }
 
-    private void createFile() throws FileNotFoundException, IOException {
-        DiscreteElevationModel dem = SuperHgtDiscreteElevationModel.FULL;
+    /**
+     * Crée le fichier à partir du MNT donné. Les échantillons sont écrits
+     * dans une projection en écriture du fichier, par plusieurs fils
+     * d'exécution traitant chacun une suite de quadrants de la courbe.
+     * Parcourir le MNT dans l'ordre de la courbe conserve la localité des
+     * lectures. L'en-tête est écrit en dernier.
+     */
+    private void createFile(DiscreteElevationModel dem) throws IOException {
         long start = System.nanoTime();
-        try (FileOutputStream stream = new FileOutputStream(hilbertHGT)) {
-            System.out.println("Creating the file " + hilbertHGT.getName());
-            for (int i = 0; i < N_SQUARED; ++i) {
-                int rx, ry, s, t = i, x = 0, y = 0;
-                for (s = 1; s < N; s *= 2) {
-                    rx = 1 & (t / 2);
-                    ry = 1 & (t ^ rx);
+        System.out.println("Creating the file " + hilbertHGT.getName());
+        try (RandomAccessFile file = new RandomAccessFile(hilbertHGT, "rw")) {
+            file.setLength(FILE_SIZE);
+            MappedByteBuffer buffer = file.getChannel().map(READ_WRITE, 0,
+                    FILE_SIZE);
+            // Invalide l'en-tête d'un fichier recréé sur place.
+            buffer.putInt(0, 0);
+            buffer.force();
+            buffer.position(HEADER_SIZE);
+            ForkJoinPool.commonPool().invoke(new FillTask(dem.extent(),
+                    ContinuousElevationModel.samples(dem),
+                    buffer.slice().asShortBuffer(), 0, N_SQUARED));
+            buffer.force();
+            buffer.putInt(0, MAGIC).putInt(4, VERSION)
+                    .putInt(8, layout.ordinal()).putInt(12, baseX)
+                    .putInt(16, baseY).putInt(20, N);
+            buffer.force();
+        }
+        double seconds = (System.nanoTime() - start) * 1e-9;
+        System.out.println(String.format(
+                "%s created in %.3f seconds (%.1f million samples per second).",
+                hilbertHGT.getName(), seconds, N_SQUARED * 1e-6 / seconds));
+    }
 
-                    // ROT
-                    if (ry == 0) {
-                        if (rx == 1) {
-                            x = s - 1 - x;
-                            y = s - 1 - y;
-                        }
+    /**
+     * Tâche écrivant les échantillons d'une plage de positions du fichier.
+     * Une plage est divisée en ses quatre quadrants tant qu'elle dépasse
+     * {@value #MIN_SAMPLES_PER_TASK} échantillons.
+     */
+    private final class FillTask extends RecursiveAction {
 
-                        // Swap x and y
-                        int temp = x;
-                        x = y;
-                        y = temp;
-                    }
+        private static final long serialVersionUID = 1L;
 
-                    x += s * rx;
-                    y += s * ry;
-                    t /= 4;
-                }
-                x += BASE_LON;
-                y += BASE_LAT;
-                short elevation = dem.extent().contains(x, y)
-                        ? (short) dem.elevationSample(x, y) : 0;
-                byte[] b = new byte[2];
-                b[0] = (byte) (elevation >> 8);
-                b[1] = (byte) (elevation & 0xff);
-                stream.write(b);
+        private static final int MIN_SAMPLES_PER_TASK = 1 << 16;
+
+        private final Interval2D sourceExtent;
+        private final ContinuousElevationModel.IndexFunction samples;
+        private final ShortBuffer target;
+        private final int start, stop;
+
+        FillTask(Interval2D sourceExtent,
+                ContinuousElevationModel.IndexFunction samples,
+                ShortBuffer target, int start, int stop) {
+            this.sourceExtent = sourceExtent;
+            this.samples = samples;
+            this.target = target;
+            this.start = start;
+            this.stop = stop;
+        }
+
+        @Override
+        protected void compute() {
+            int size = stop - start;
+            if (size > MIN_SAMPLES_PER_TASK) {
+                int q = size / 4;
+                invokeAll(
+                        new FillTask(sourceExtent, samples, target, start,
+                                start + q),
+                        new FillTask(sourceExtent, samples, target, start + q,
+                                start + 2 * q),
+                        new FillTask(sourceExtent, samples, target,
+                                start + 2 * q, start + 3 * q),
+                        new FillTask(sourceExtent, samples, target,
+                                start + 3 * q, stop));
+                return;
+            }
+
+            for (int i = start; i < stop; ++i) {
+                int p = layout.position(i);
+                int x = baseX + (p & 0xFFFF), y = baseY + (p >> 16);
+                target.put(i, sourceExtent.contains(x, y)
+                        ? (short) samples.apply(x, y) : 0);
             }
-            System.out.println(String.format("%s created in %.3f seconds.",
-                    hilbertHGT.getName(), (System.nanoTime() - start) * 1e-9));
         }
     }
 
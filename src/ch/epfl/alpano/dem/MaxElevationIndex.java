@@ -0,0 +1,190 @@
+package ch.epfl.alpano.dem;
+
+import static ch.epfl.alpano.dem.DiscreteElevationModel.SAMPLES_PER_DEGREE;
+import static java.lang.Math.floorDiv;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import ch.epfl.alpano.Interval2D;
+
+/**
+ * Index hiérarchique des altitudes maximales d'un MNT discret, permettant de
+ * borner rapidement l'altitude de tout point d'un rectangle d'échantillons.
+ *
+ * <p>
+ * Chaque tuile de 1° est divisée en blocs de {@value #BLOCK_SIDE} échantillons
+ * de côté, dont on conserve l'altitude maximale ; les niveaux suivants
+ * contiennent le maximum de 2×2 cases du niveau précédent, à la manière d'un
+ * arbre quaternaire. Une tuile est calculée lors de la première requête qui la
+ * concerne. Les index hors de l'étendue du MNT ont une altitude nulle, comme
+ * dans {@link ContinuousElevationModel}. Peut être utilisé par plusieurs fils
+ * d'exécution à la fois.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+public final class MaxElevationIndex {
+
+    /**
+     * Nombre d'échantillons d'un côté d'un bloc du premier niveau.
+     */
+    public static final int BLOCK_SIDE = 16;
+
+    /**
+     * Nombre de blocs d'un côté d'une tuile.
+     */
+    private static final int BLOCKS = SAMPLES_PER_DEGREE / BLOCK_SIDE;
+
+    /**
+     * Nombre de tuiles sur l'ensemble des longitudes et des latitudes.
+     */
+    private static final int TILES_X = 360, TILES_Y = 180;
+
+    private final Interval2D extent;
+
+    private final ContinuousElevationModel.IndexFunction samples;
+
+    /**
+     * Les tuiles calculées, indexées par leur position sur le globe.
+     */
+    private final AtomicReferenceArray<float[][]> tiles;
+
+    /**
+     * Construit l'index du MNT discret donné. Aucune tuile n'est calculée à la
+     * construction.
+     *
+     * @param dem
+     *            Le MNT discret à indexer.
+     *
+     * @throws NullPointerException
+     *             si le MNT discret est null.
+     */
+    public MaxElevationIndex(DiscreteElevationModel dem) {
+        this.extent = requireNonNull(dem, "The given DEM is null.").extent();
+        this.samples = ContinuousElevationModel.samples(dem);
+        this.tiles = new AtomicReferenceArray<>(TILES_X * TILES_Y);
+    }
+
+    /**
+     * Retourne un majorant de l'altitude des échantillons du rectangle
+     * d'index donné, bornes comprises.
+     *
+     * @param x0
+     *            L'index de longitude minimal.
+     * @param x1
+     *            L'index de longitude maximal.
+     * @param y0
+     *            L'index de latitude minimal.
+     * @param y1
+     *            L'index de latitude maximal.
+     *
+     * @return Un majorant de l'altitude dans le rectangle.
+     */
+    public double maxElevation(int x0, int x1, int y0, int y1) {
+        double max = Double.NEGATIVE_INFINITY;
+        int tX0 = floorDiv(x0, SAMPLES_PER_DEGREE);
+        int tX1 = floorDiv(x1, SAMPLES_PER_DEGREE);
+        int tY0 = floorDiv(y0, SAMPLES_PER_DEGREE);
+        int tY1 = floorDiv(y1, SAMPLES_PER_DEGREE);
+        for (int tY = tY0; tY <= tY1; ++tY) {
+            for (int tX = tX0; tX <= tX1; ++tX) {
+                int bX = tX * SAMPLES_PER_DEGREE, bY = tY * SAMPLES_PER_DEGREE;
+                max = max(max, tileMax(tX, tY,
+                        (max(x0, bX) - bX) / BLOCK_SIDE,
+                        (min(x1, bX + SAMPLES_PER_DEGREE - 1) - bX)
+                                / BLOCK_SIDE,
+                        (max(y0, bY) - bY) / BLOCK_SIDE,
+                        (min(y1, bY + SAMPLES_PER_DEGREE - 1) - bY)
+                                / BLOCK_SIDE));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Retourne un majorant de l'altitude des blocs donnés d'une tuile, en
+     * lisant au plus 2×2 cases du premier niveau où ils y tiennent.
+     */
+    private double tileMax(int tX, int tY, int bX0, int bX1, int bY0,
+            int bY1) {
+        int i = (tY + TILES_Y / 2) * TILES_X + tX + TILES_X / 2;
+        if (i < 0 || i >= tiles.length())
+            return 0;
+        float[][] levels = tiles.get(i);
+        if (levels == null) {
+            levels = computeTile(tX, tY);
+            tiles.compareAndSet(i, null, levels);
+        }
+
+        int l = 0;
+        while ((bX1 >> l) - (bX0 >> l) > 1 || (bY1 >> l) - (bY0 >> l) > 1)
+            ++l;
+        float[] level = levels[l];
+        int side = side(l);
+        float max = Float.NEGATIVE_INFINITY;
+        for (int y = bY0 >> l; y <= bY1 >> l; ++y)
+            for (int x = bX0 >> l; x <= bX1 >> l; ++x)
+                max = Math.max(max, level[y * side + x]);
+        return max;
+    }
+
+    /**
+     * Calcule tous les niveaux d'une tuile.
+     */
+    private float[][] computeTile(int tX, int tY) {
+        int levelCount = 1;
+        while (side(levelCount - 1) > 1)
+            ++levelCount;
+        float[][] levels = new float[levelCount][];
+
+        float[] first = new float[BLOCKS * BLOCKS];
+        int x0 = tX * SAMPLES_PER_DEGREE, y0 = tY * SAMPLES_PER_DEGREE;
+        for (int bY = 0; bY < BLOCKS; ++bY) {
+            for (int bX = 0; bX < BLOCKS; ++bX) {
+                double max = Double.NEGATIVE_INFINITY;
+                for (int y = 0; y < BLOCK_SIDE; ++y) {
+                    for (int x = 0; x < BLOCK_SIDE; ++x) {
+                        int sX = x0 + bX * BLOCK_SIDE + x;
+                        int sY = y0 + bY * BLOCK_SIDE + y;
+                        max = max(max, extent.contains(sX, sY)
+                                ? samples.apply(sX, sY) : 0);
+                    }
+                }
+                // Arrondi vers le haut afin que la valeur reste un majorant.
+                float m = (float) max;
+                first[bY * BLOCKS + bX] = m < max ? Math.nextUp(m) : m;
+            }
+        }
+        levels[0] = first;
+
+        for (int l = 1; l < levelCount; ++l) {
+            int side = side(l), previousSide = side(l - 1);
+            float[] previous = levels[l - 1], level = new float[side * side];
+            for (int y = 0; y < side; ++y) {
+                for (int x = 0; x < side; ++x) {
+                    float max = Float.NEGATIVE_INFINITY;
+                    for (int dy = 0; dy < 2; ++dy)
+                        for (int dx = 0; dx < 2; ++dx)
+                            if (2 * x + dx < previousSide
+                                    && 2 * y + dy < previousSide)
+                                max = Math.max(max, previous[(2 * y + dy)
+                                        * previousSide + 2 * x + dx]);
+                    level[y * side + x] = max;
+                }
+            }
+            levels[l] = level;
+        }
+        return levels;
+    }
+
+    /**
+     * Retourne le nombre de cases d'un côté du niveau donné.
+     */
+    private static int side(int level) {
+        return ((BLOCKS - 1) >> level) + 1;
+    }
+
+}
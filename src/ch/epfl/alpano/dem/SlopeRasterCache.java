@@ -0,0 +1,281 @@
+package ch.epfl.alpano.dem;
+
+import static ch.epfl.alpano.Preconditions.checkArgument;
+import static ch.epfl.alpano.dem.DiscreteElevationModel.SAMPLES_PER_DEGREE;
+import static java.lang.Math.floorDiv;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.dem.ContinuousElevationModel.IndexFunction;
+
+/**
+ * Cache des pentes d'un MNT discret, précalculées par tuiles de 1° de côté.
+ * Une tuile est calculée entièrement lors du premier accès à l'un de ses
+ * points, puis conservée tant que le nombre maximal de tuiles n'est pas
+ * dépassé ; la tuile utilisée le moins récemment est alors évincée.
+ *
+ * <p>
+ * Les pentes sont stockées sous forme de float et sont donc arrondies. Les
+ * index en dehors de l'étendue du MNT ne sont pas mis en cache. Peut être
+ * utilisé par plusieurs fils d'exécution à la fois.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+public final class SlopeRasterCache {
+
+    /**
+     * Nombre d'échantillons d'un côté d'une tuile.
+     */
+    public static final int TILE_SIDE = SAMPLES_PER_DEGREE;
+
+    /**
+     * Mémoire occupée par une tuile, en octets.
+     */
+    public static final long BYTES_PER_TILE = (long) TILE_SIDE * TILE_SIDE
+            * Float.BYTES;
+
+    /**
+     * Nombre de tuiles sur l'ensemble des longitudes et des latitudes.
+     */
+    private static final int TILES_X = 360, TILES_Y = 180;
+
+    /**
+     * Fonctions calculant l'altitude et la pente à un index donné.
+     */
+    private final IndexFunction elevationAtIndex, slopeAtIndex;
+
+    /**
+     * Étendue du MNT discret dont les pentes sont mises en cache.
+     */
+    private final Interval2D extent;
+
+    private final int maxTiles;
+
+    /**
+     * Les tuiles, indexées par leur position sur le globe. Une case vide
+     * correspond à une tuile jamais calculée ou évincée.
+     */
+    private final AtomicReferenceArray<Tile> tiles;
+
+    /**
+     * Les tuiles actuellement calculées, protégées par leur propre verrou.
+     */
+    private final List<Tile> resident;
+
+    /**
+     * Horloge logique, avancée à chaque calcul ou éviction de tuile. Une tuile
+     * lue depuis le dernier calcul porte la valeur courante de l'horloge, ce
+     * qui suffit à distinguer les tuiles récemment utilisées sans ajouter
+     * d'écriture partagée aux lectures.
+     */
+    private final AtomicLong clock;
+
+    private final LongAdder hits, misses;
+
+    /**
+     * Construit un cache vide.
+     *
+     * @param elevationAtIndex
+     *            La fonction donnant l'altitude à un index du MNT discret.
+     * @param slopeAtIndex
+     *            La fonction calculant la pente à un index du MNT discret.
+     * @param extent
+     *            L'étendue du MNT discret.
+     * @param maxTiles
+     *            Le nombre maximal de tuiles conservées, strictement positif.
+     *
+     * @throws IllegalArgumentException
+     *             si le nombre maximal de tuiles n'est pas strictement positif.
+     */
+    SlopeRasterCache(IndexFunction elevationAtIndex,
+            IndexFunction slopeAtIndex, Interval2D extent, int maxTiles) {
+        checkArgument(0 < maxTiles,
+                "The given number of tiles is not strictly positive.");
+        this.elevationAtIndex = elevationAtIndex;
+        this.slopeAtIndex = slopeAtIndex;
+        this.extent = extent;
+        this.maxTiles = maxTiles;
+        this.tiles = new AtomicReferenceArray<>(TILES_X * TILES_Y);
+        this.resident = new ArrayList<>();
+        this.clock = new AtomicLong();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Retourne la pente à l'index donné, en la lisant dans sa tuile si
+     * l'index appartient à l'étendue du MNT. La tuile est calculée si elle ne
+     * se trouve pas dans le cache.
+     *
+     * @param x
+     *            L'index de la longitude.
+     * @param y
+     *            L'index de la latitude.
+     *
+     * @return La pente à l'index donné.
+     */
+    double slopeAt(int x, int y) {
+        int tX = floorDiv(x, TILE_SIDE), tY = floorDiv(y, TILE_SIDE);
+        int i = (tY + TILES_Y / 2) * TILES_X + tX + TILES_X / 2;
+        if (!extent.contains(x, y) || i < 0 || i >= tiles.length())
+            return slopeAtIndex.apply(x, y);
+
+        Tile tile = tiles.get(i);
+        float[] values = tile == null ? null : tile.values;
+        if (values == null) {
+            misses.increment();
+            values = load(i, tX, tY);
+        } else {
+            hits.increment();
+            tile.lastAccess = clock.get();
+        }
+        return values[(y - tY * TILE_SIDE) * TILE_SIDE + x - tX * TILE_SIDE];
+    }
+
+    /**
+     * Retourne les pentes de la tuile donnée, en la calculant si nécessaire,
+     * puis évince les tuiles en surplus.
+     */
+    private float[] load(int i, int tX, int tY) {
+        Tile tile = tiles.get(i);
+        while (tile == null) {
+            tiles.compareAndSet(i, null, new Tile(i));
+            tile = tiles.get(i);
+        }
+
+        // Un seul fil calcule la tuile, les autres attendent le résultat.
+        synchronized (tile) {
+            if (tile.values == null) {
+                tile.values = computeTile(tX, tY);
+                tile.lastAccess = clock.incrementAndGet();
+                synchronized (resident) {
+                    resident.add(tile);
+                    while (resident.size() > maxTiles)
+                        evictLeastRecentlyUsed();
+                }
+            }
+            return tile.values;
+        }
+    }
+
+    /**
+     * Calcule les pentes de la tuile donnée. Les altitudes sont lues une seule
+     * fois, ligne par ligne : chaque ligne sert ensuite de ligne courante puis
+     * de ligne voisine au nord.
+     */
+    private float[] computeTile(int tX, int tY) {
+        float[] values = new float[TILE_SIDE * TILE_SIDE];
+        int x0 = tX * TILE_SIDE, y0 = tY * TILE_SIDE;
+        double[] row = elevationRow(x0, y0), next;
+        for (int y = 0; y < TILE_SIDE; ++y) {
+            next = elevationRow(x0, y0 + y + 1);
+            for (int x = 0; x < TILE_SIDE; ++x)
+                values[y * TILE_SIDE + x] = (float) ContinuousElevationModel
+                        .slope(row[x], row[x + 1], next[x]);
+            row = next;
+        }
+        return values;
+    }
+
+    /**
+     * Retourne les altitudes d'une ligne de la tuile commençant à l'index
+     * donné, y compris celle de l'index suivant la fin de la tuile.
+     */
+    private double[] elevationRow(int x0, int y) {
+        double[] row = new double[TILE_SIDE + 1];
+        for (int x = 0; x <= TILE_SIDE; ++x)
+            row[x] = elevationAtIndex.apply(x0 + x, y);
+        return row;
+    }
+
+    /**
+     * Évince la tuile utilisée le moins récemment. Les fils d'exécution qui
+     * possèdent encore une référence vers ses pentes peuvent continuer à les
+     * lire.
+     */
+    private void evictLeastRecentlyUsed() {
+        Tile lru = resident.get(0);
+        for (Tile t : resident)
+            if (t.lastAccess < lru.lastAccess)
+                lru = t;
+        resident.remove(lru);
+        tiles.compareAndSet(lru.index, lru, null);
+        clock.incrementAndGet();
+    }
+
+    /**
+     * Retourne le nombre de tuiles actuellement dans le cache.
+     *
+     * @return Le nombre de tuiles dans le cache.
+     */
+    public int residentTiles() {
+        synchronized (resident) {
+            return resident.size();
+        }
+    }
+
+    /**
+     * Retourne la mémoire occupée par les tuiles du cache, en octets.
+     *
+     * @return La mémoire occupée par le cache.
+     */
+    public long memoryUsage() {
+        return residentTiles() * BYTES_PER_TILE;
+    }
+
+    /**
+     * Retourne le nombre de pentes lues dans une tuile déjà calculée.
+     *
+     * @return Le nombre de succès du cache.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Retourne le nombre de pentes qui ont nécessité le calcul d'une tuile.
+     *
+     * @return Le nombre d'échecs du cache.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Retourne la proportion des accès au cache qui ont été des succès, ou 0
+     * si le cache n'a jamais été consulté.
+     *
+     * @return Le taux de succès du cache, entre 0 et 1.
+     */
+    public double hitRate() {
+        long h = hits(), total = h + misses();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Une tuile du cache. Ses pentes sont null tant qu'elles n'ont pas été
+     * calculées.
+     */
+    private static final class Tile {
+        final int index;
+        volatile float[] values;
+
+        /**
+         * Moment du dernier accès selon l'horloge du cache. Les écritures
+         * concurrentes ne sont pas synchronisées : une valeur légèrement
+         * ancienne ne fait que rendre l'éviction moins précise.
+         */
+        long lastAccess;
+
+        Tile(int index) {
+            this.index = index;
+        }
+    }
+
+}
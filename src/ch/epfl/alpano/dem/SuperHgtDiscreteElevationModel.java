@@ -1,6 +1,8 @@
 package ch.epfl.alpano.dem;
 
 import static ch.epfl.alpano.Preconditions.checkArgument;
+import static java.lang.Math.floorDiv;
+import static java.lang.Math.max;
 
 import java.io.File;
 
@@ -8,7 +10,8 @@ import ch.epfl.alpano.Interval1D;
 import ch.epfl.alpano.Interval2D;
 
 /**
- * Représente un MNT discret obtenu d'un fichier au format HGT. Classe immuable.
+ * Représente un MNT discret obtenu d'un ensemble de fichiers au format HGT
+ * couvrant un rectangle de degrés entiers. Classe immuable.
  *
  * @author Robin Mamie (257234)
  * @author Maxence Jouve (269716)
@@ -16,17 +19,38 @@ import ch.epfl.alpano.Interval2D;
 public final class SuperHgtDiscreteElevationModel
         implements DiscreteElevationModel {
 
-    public static final SuperHgtDiscreteElevationModel FULL = new SuperHgtDiscreteElevationModel();
-
     protected static final int BASE_LON = 6;
     protected static final int MAX_LON = 12;
     protected static final int BASE_LAT = 45;
     protected static final int MAX_LAT = 48;
 
-    private final HgtDiscreteElevationModel[] sources;
+    /**
+     * Le MNT couvrant les Alpes, de {@value #BASE_LON}° à {@value #MAX_LON}°
+     * de longitude et de {@value #BASE_LAT}° à {@value #MAX_LAT}° de latitude,
+     * à partir des fichiers HGT du répertoire courant. Ses fichiers ne sont
+     * ouverts que lors de la première lecture d'une altitude, si bien que
+     * l'initialisation de la classe ne lit aucun fichier ; un fichier absent
+     * n'est donc signalé qu'à ce moment.
+     */
+    public static final SuperHgtDiscreteElevationModel FULL = new SuperHgtDiscreteElevationModel();
+
+    /**
+     * Le répertoire contenant les fichiers HGT et les degrés de l'étendue.
+     */
+    private final File directory;
+    private final int lonMin, latMin, sizeVer;
+
+    /**
+     * Les MNT de chaque degré, ligne par ligne depuis le coin sud-ouest, ou
+     * null tant que les fichiers n'ont pas été ouverts.
+     */
+    private volatile HgtDiscreteElevationModel[] sources;
+
+    /**
+     * Les index du coin sud-ouest de l'étendue.
+     */
+    private final int lonIndex, latIndex;
 
-    private final int baseLonIndex;
-    private final int baseLatIndex;
     private final int sizeHor;
 
     /**
@@ -34,36 +58,112 @@ public final class SuperHgtDiscreteElevationModel
      */
     private final Interval2D extent;
 
+    /**
+     * Construit un MNT discret à partir des fichiers HGT du répertoire donné
+     * couvrant les longitudes [lonMin, lonMax] et les latitudes [latMin,
+     * latMax]. Les fichiers doivent être nommés selon
+     * {@link HgtDiscreteElevationModel#fileName(int, int)}.
+     * 
+     * @param directory
+     *            Le répertoire contenant les fichiers HGT.
+     * @param lonMin
+     *            La longitude ouest, en degrés.
+     * @param lonMax
+     *            La longitude est, en degrés, strictement supérieure à lonMin.
+     * @param latMin
+     *            La latitude sud, en degrés.
+     * @param latMax
+     *            La latitude nord, en degrés, strictement supérieure à latMin.
+     * 
+     * @throws IllegalArgumentException
+     *             si les bornes ne décrivent pas un rectangle du globe, ou si
+     *             l'un des fichiers est absent ou invalide.
+     */
+    public SuperHgtDiscreteElevationModel(File directory, int lonMin,
+            int lonMax, int latMin, int latMax) {
+        this(directory, lonMin, lonMax, latMin, latMax, false);
+    }
+
+    /**
+     * Construit un MNT discret à partir des fichiers HGT du répertoire courant
+     * couvrant les longitudes [lonMin, lonMax] et les latitudes [latMin,
+     * latMax].
+     * 
+     * @see #SuperHgtDiscreteElevationModel(File, int, int, int, int)
+     */
     public SuperHgtDiscreteElevationModel(int lonMin, int lonMax, int latMin,
             int latMax) {
+        this(null, lonMin, lonMax, latMin, latMax);
+    }
+
+    private SuperHgtDiscreteElevationModel() {
+        this(null, BASE_LON, MAX_LON, BASE_LAT, MAX_LAT, true);
+    }
 
+    /**
+     * Construit le MNT des bornes données, dont les fichiers sont ouverts
+     * immédiatement ou lors de la première lecture d'une altitude.
+     */
+    private SuperHgtDiscreteElevationModel(File directory, int lonMin,
+            int lonMax, int latMin, int latMax, boolean lazy) {
+        checkArgument(-180 <= lonMin && lonMin < lonMax && lonMax <= 180,
+                "The given longitudes are invalid.");
+        checkArgument(-90 <= latMin && latMin < latMax && latMax <= 90,
+                "The given latitudes are invalid.");
+
+        this.directory = directory;
+        this.lonMin = lonMin;
+        this.latMin = latMin;
         this.sizeHor = lonMax - lonMin;
-        int sizeVer = latMax - latMin;
-        int size = sizeHor * sizeVer;
-        checkArgument(lonMin < lonMax && latMin < latMax);
-        checkArgument(BASE_LON <= lonMin && lonMax <= MAX_LON);
-        checkArgument(BASE_LAT <= latMin && latMax <= MAX_LAT);
-        sources = new HgtDiscreteElevationModel[size];
-        for (int i = 0; i < size; ++i)
-            sources[i] = new HgtDiscreteElevationModel(
-                    new File("N" + (latMin + i / sizeHor) + "E"
-                            + String.format("%03d", (lonMin + (i % sizeHor)))
-                            + ".hgt"));
-
-        int lonIndex = lonMin * SAMPLES_PER_DEGREE;
-        this.baseLonIndex = lonIndex + SAMPLES_PER_DEGREE;
-        int latIndex = latMin * SAMPLES_PER_DEGREE;
-        this.baseLatIndex = latIndex + SAMPLES_PER_DEGREE;
+        this.sizeVer = latMax - latMin;
+        if (!lazy)
+            this.sources = open();
+
+        this.lonIndex = lonMin * SAMPLES_PER_DEGREE;
+        this.latIndex = latMin * SAMPLES_PER_DEGREE;
         this.extent = new Interval2D(
                 new Interval1D(lonIndex,
                         lonIndex + SAMPLES_PER_DEGREE * sizeHor),
                 new Interval1D(latIndex,
                         latIndex + SAMPLES_PER_DEGREE * sizeVer));
+    }
 
+    /**
+     * Retourne le MNT couvrant les Alpes, {@link #FULL}.
+     * 
+     * @return Le MNT couvrant les Alpes.
+     */
+    public static SuperHgtDiscreteElevationModel full() {
+        return FULL;
     }
 
-    private SuperHgtDiscreteElevationModel() {
-        this(BASE_LON, MAX_LON, BASE_LAT, MAX_LAT);
+    /**
+     * Ouvre les fichiers de chaque degré.
+     */
+    private HgtDiscreteElevationModel[] open() {
+        HgtDiscreteElevationModel[] opened = new HgtDiscreteElevationModel[sizeHor
+                * sizeVer];
+        for (int i = 0; i < opened.length; ++i)
+            opened[i] = new HgtDiscreteElevationModel(new File(directory,
+                    HgtDiscreteElevationModel.fileName(lonMin + i % sizeHor,
+                            latMin + i / sizeHor)));
+        return opened;
+    }
+
+    /**
+     * Retourne les MNT de chaque degré, en ouvrant leurs fichiers s'ils ne le
+     * sont pas encore.
+     */
+    private HgtDiscreteElevationModel[] sources() {
+        HgtDiscreteElevationModel[] s = sources;
+        if (s == null) {
+            synchronized (this) {
+                s = sources;
+                if (s == null)
+                    sources = s = open();
+            }
+        }
+        return s;
     }
 
     @Override
@@ -71,24 +171,38 @@ public final class SuperHgtDiscreteElevationModel
         return extent;
     }
 
+    /**
+     * Retourne l'index, dans sources, du MNT contenant l'index donné, qui doit
+     * appartenir à l'étendue. Un index situé sur la frontière entre deux
+     * degrés est attribué au degré ouest, respectivement sud.
+     */
     private int getArray(int x, int y) {
-        int i = 0;
-        while (x > baseLonIndex) {
-            x -= SAMPLES_PER_DEGREE;
-            i += 1;
-        }
-        while (y > baseLatIndex) {
-            y -= SAMPLES_PER_DEGREE;
-            i += sizeHor;
-        }
-        return i;
+        int tX = max(0, floorDiv(x - lonIndex - 1, SAMPLES_PER_DEGREE));
+        int tY = max(0, floorDiv(y - latIndex - 1, SAMPLES_PER_DEGREE));
+        return tY * sizeHor + tX;
     }
 
     @Override
     public double elevationSample(int x, int y) {
         checkArgument(extent().contains(x, y),
                 "The HgtDEM does not contain the given index.");
-        return sources[getArray(x, y)].elevationSample(x, y);
+        return uncheckedElevationSample(x, y);
+    }
+
+    /**
+     * Retourne l'altitude à l'index donné sans vérifier qu'il appartient à
+     * l'étendue du MNT. Destinée aux appelants qui ont déjà fait cette
+     * vérification.
+     * 
+     * @param x
+     *            L'index de la longitude, compris dans l'étendue.
+     * @param y
+     *            L'index de la latitude, compris dans l'étendue.
+     * 
+     * @return L'altitude à l'index donné.
+     */
+    double uncheckedElevationSample(int x, int y) {
+        return sources()[getArray(x, y)].uncheckedElevationSample(x, y);
     }
 
 }
@@ -0,0 +1,274 @@
+package ch.epfl.alpano.dem;
+
+import static ch.epfl.alpano.Preconditions.checkArgument;
+import static java.lang.Math.floorDiv;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+
+/**
+ * Représente un MNT discret formé des fichiers HGT d'un répertoire. Les
+ * fichiers sont découverts à la construction mais ne sont projetés en mémoire
+ * que lors de la première lecture d'un de leurs échantillons. Au-delà d'un
+ * nombre donné de fichiers projetés, celui lu le moins récemment est
+ * abandonné.
+ *
+ * <p>
+ * L'étendue du MNT est le plus petit rectangle contenant tous les fichiers
+ * trouvés. Les degrés sans fichier, par exemple en mer, ont une altitude
+ * nulle. Java ne permettant pas de libérer explicitement une projection, la
+ * mémoire d'un fichier abandonné est rendue par le ramasse-miettes. Peut être
+ * utilisé par plusieurs fils d'exécution à la fois.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+public final class TiledHgtDiscreteElevationModel
+        implements DiscreteElevationModel {
+
+    /**
+     * Forme du nom d'un fichier HGT.
+     */
+    private static final Pattern FILE_NAME = Pattern
+            .compile("([NS])(\\d{2})([EW])(\\d{3})\\.hgt");
+
+    /**
+     * Taille d'un fichier HGT valide, en octets.
+     */
+    private static final long FILE_SIZE = 2L * (SAMPLES_PER_DEGREE + 1)
+            * (SAMPLES_PER_DEGREE + 1);
+
+    /**
+     * Les fichiers de chaque degré, ligne par ligne depuis le coin sud-ouest,
+     * ou null pour un degré sans fichier.
+     */
+    private final File[] files;
+
+    /**
+     * Les MNT actuellement projetés en mémoire, aux mêmes positions que les
+     * fichiers.
+     */
+    private final AtomicReferenceArray<HgtDiscreteElevationModel> tiles;
+
+    /**
+     * Moment de la dernière lecture de chaque degré selon l'horloge. Les
+     * écritures concurrentes ne sont pas synchronisées : une valeur légèrement
+     * ancienne ne fait que rendre l'abandon moins précis.
+     */
+    private final long[] lastAccess;
+
+    /**
+     * Horloge logique, avancée à chaque projection ou abandon de fichier et
+     * à chaque lecture d'un degré autre que le dernier lu.
+     */
+    private final AtomicLong clock;
+
+    /**
+     * Les positions des degrés actuellement projetés, protégées par leur
+     * propre verrou.
+     */
+    private final List<Integer> mapped;
+
+    private final int maxMappedTiles;
+
+    /**
+     * Les index du coin sud-ouest de l'étendue.
+     */
+    private final int lonIndex, latIndex;
+
+    private final int sizeHor;
+
+    private final Interval2D extent;
+
+    /**
+     * Construit un MNT discret à partir des fichiers HGT du répertoire donné.
+     * Aucun fichier n'est projeté en mémoire à la construction.
+     *
+     * @param directory
+     *            Le répertoire contenant les fichiers HGT.
+     * @param maxMappedTiles
+     *            Le nombre maximal de fichiers projetés en même temps,
+     *            strictement positif.
+     *
+     * @throws NullPointerException
+     *             si le répertoire est null.
+     * @throws IllegalArgumentException
+     *             si le répertoire ne contient aucun fichier HGT valide ou si
+     *             le nombre maximal de fichiers n'est pas strictement positif.
+     */
+    public TiledHgtDiscreteElevationModel(File directory, int maxMappedTiles) {
+        requireNonNull(directory, "The given directory is null.");
+        checkArgument(0 < maxMappedTiles,
+                "The given number of tiles is not strictly positive.");
+
+        List<File> found = new ArrayList<>();
+        List<int[]> corners = new ArrayList<>();
+        int lonMin = Integer.MAX_VALUE, lonMax = Integer.MIN_VALUE;
+        int latMin = Integer.MAX_VALUE, latMax = Integer.MIN_VALUE;
+        File[] candidates = directory.listFiles();
+        for (File f : candidates == null ? new File[0] : candidates) {
+            int[] corner = corner(f);
+            if (corner == null)
+                continue;
+            found.add(f);
+            corners.add(corner);
+            lonMin = min(lonMin, corner[0]);
+            lonMax = max(lonMax, corner[0] + 1);
+            latMin = min(latMin, corner[1]);
+            latMax = max(latMax, corner[1] + 1);
+        }
+        checkArgument(!found.isEmpty(),
+                "The given directory does not contain any HGT file.");
+
+        this.sizeHor = lonMax - lonMin;
+        int sizeVer = latMax - latMin;
+        this.files = new File[sizeHor * sizeVer];
+        for (int i = 0; i < found.size(); ++i) {
+            int[] corner = corners.get(i);
+            files[(corner[1] - latMin) * sizeHor + corner[0] - lonMin] = found
+                    .get(i);
+        }
+
+        this.tiles = new AtomicReferenceArray<>(files.length);
+        this.lastAccess = new long[files.length];
+        this.clock = new AtomicLong();
+        this.mapped = new ArrayList<>();
+        this.maxMappedTiles = maxMappedTiles;
+
+        this.lonIndex = lonMin * SAMPLES_PER_DEGREE;
+        this.latIndex = latMin * SAMPLES_PER_DEGREE;
+        this.extent = new Interval2D(
+                new Interval1D(lonIndex,
+                        lonIndex + SAMPLES_PER_DEGREE * sizeHor),
+                new Interval1D(latIndex,
+                        latIndex + SAMPLES_PER_DEGREE * sizeVer));
+    }
+
+    /**
+     * Retourne la longitude et la latitude, en degrés, du coin sud-ouest
+     * couvert par le fichier donné, ou null s'il ne s'agit pas d'un fichier
+     * HGT valide.
+     */
+    private static int[] corner(File f) {
+        Matcher m = FILE_NAME.matcher(f.getName());
+        if (!m.matches() || !f.isFile() || f.length() != FILE_SIZE)
+            return null;
+        int lat = Integer.parseInt(m.group(2)) * (m.group(1).equals("N") ? 1 : -1);
+        int lon = Integer.parseInt(m.group(4)) * (m.group(3).equals("E") ? 1 : -1);
+        return -180 <= lon && lon < 180 && -90 <= lat && lat < 90
+                ? new int[] { lon, lat } : null;
+    }
+
+    @Override
+    public Interval2D extent() {
+        return extent;
+    }
+
+    @Override
+    public double elevationSample(int x, int y) {
+        checkArgument(extent().contains(x, y),
+                "The HgtDEM does not contain the given index.");
+        return uncheckedElevationSample(x, y);
+    }
+
+    /**
+     * Retourne l'altitude à l'index donné sans vérifier qu'il appartient à
+     * l'étendue du MNT, en projetant son fichier si nécessaire. Destinée aux
+     * appelants qui ont déjà fait cette vérification.
+     *
+     * @param x
+     *            L'index de la longitude, compris dans l'étendue.
+     * @param y
+     *            L'index de la latitude, compris dans l'étendue.
+     *
+     * @return L'altitude à l'index donné, ou 0 si aucun fichier ne couvre
+     *         l'index.
+     */
+    double uncheckedElevationSample(int x, int y) {
+        int tX = max(0, floorDiv(x - lonIndex - 1, SAMPLES_PER_DEGREE));
+        int tY = max(0, floorDiv(y - latIndex - 1, SAMPLES_PER_DEGREE));
+        int i = tY * sizeHor + tX;
+        if (files[i] == null)
+            return 0;
+
+        HgtDiscreteElevationModel tile = tiles.get(i);
+        if (tile == null)
+            tile = map(i);
+        else if (lastAccess[i] != clock.get())
+            // Seul le passage d'un degré à l'autre fait avancer l'horloge.
+            lastAccess[i] = clock.incrementAndGet();
+        return tile.uncheckedElevationSample(x, y);
+    }
+
+    /**
+     * Retourne le MNT du degré donné, en projetant son fichier s'il ne l'est
+     * pas encore, puis abandonne les fichiers en surplus.
+     */
+    private HgtDiscreteElevationModel map(int i) {
+        synchronized (mapped) {
+            HgtDiscreteElevationModel tile = tiles.get(i);
+            if (tile == null) {
+                tile = new HgtDiscreteElevationModel(files[i]);
+                tiles.set(i, tile);
+                lastAccess[i] = clock.incrementAndGet();
+                mapped.add(i);
+                while (mapped.size() > maxMappedTiles)
+                    unmapLeastRecentlyUsed();
+            }
+            return tile;
+        }
+    }
+
+    /**
+     * Abandonne le fichier lu le moins récemment. Les fils d'exécution qui
+     * possèdent encore une référence vers son MNT peuvent continuer à le lire.
+     */
+    private void unmapLeastRecentlyUsed() {
+        int lru = 0;
+        for (int j = 1; j < mapped.size(); ++j)
+            if (lastAccess[mapped.get(j)] < lastAccess[mapped.get(lru)])
+                lru = j;
+        tiles.set(mapped.remove(lru), null);
+        clock.incrementAndGet();
+    }
+
+    /**
+     * Indique si le fichier couvrant l'index donné est actuellement projeté
+     * en mémoire.
+     *
+     * @param x
+     *            L'index de la longitude, compris dans l'étendue.
+     * @param y
+     *            L'index de la latitude, compris dans l'étendue.
+     *
+     * @return Vrai si un fichier couvre l'index et est projeté.
+     */
+    boolean isMapped(int x, int y) {
+        int tX = max(0, floorDiv(x - lonIndex - 1, SAMPLES_PER_DEGREE));
+        int tY = max(0, floorDiv(y - latIndex - 1, SAMPLES_PER_DEGREE));
+        return tiles.get(tY * sizeHor + tX) != null;
+    }
+
+    /**
+     * Retourne le nombre de fichiers actuellement projetés en mémoire.
+     *
+     * @return Le nombre de fichiers projetés.
+     */
+    public int mappedTiles() {
+        synchronized (mapped) {
+            return mapped.size();
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package ch.epfl.alpano.draw;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.toRadians;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.Panorama;
+import ch.epfl.alpano.PanoramaComputer;
+import ch.epfl.alpano.PanoramaParameters;
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+import ch.epfl.alpano.dem.DiscreteElevationModel;
+import ch.epfl.alpano.dem.MaxElevationIndex;
+
+/**
+ * Compare le calcul d'un panorama rayon par rayon et par colonnes entières,
+ * avec et sans index des altitudes maximales : durée du calcul et écart entre
+ * les distances obtenues. Utilise un MNT synthétique afin de ne dépendre
+ * d'aucun fichier.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class BenchBatchColumns {
+
+    final static int IMAGE_WIDTH = 1000;
+    final static int IMAGE_HEIGHT = 300;
+
+    final static double ORIGIN_LON = toRadians(1);
+    final static double ORIGIN_LAT = toRadians(1);
+    final static int ELEVATION = 1200;
+    final static double CENTER_AZIMUTH = toRadians(0);
+    final static double HORIZONTAL_FOV = toRadians(120);
+    final static int MAX_DISTANCE = 150_000;
+
+    final static int MEASURED_RUNS = 3;
+
+    final static PanoramaParameters PARAMS = new PanoramaParameters(
+            new GeoPoint(ORIGIN_LON, ORIGIN_LAT), ELEVATION, CENTER_AZIMUTH,
+            HORIZONTAL_FOV, MAX_DISTANCE, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+    public static void main(String[] as) throws Exception {
+        DiscreteElevationModel dDEM = new WavyDEM(new Interval2D(
+                new Interval1D(0, 3600 * 2), new Interval1D(0, 3600 * 2)));
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(dDEM);
+        MaxElevationIndex index = new MaxElevationIndex(dDEM);
+
+        Panorama reference = measure("per ray", new PanoramaComputer(cDEM));
+        compare(reference, measure("batch", new PanoramaComputer.Builder(cDEM)
+                .setBatchColumns(true).build()));
+        Panorama indexed = measure("per ray + index",
+                new PanoramaComputer.Builder(cDEM).setMaxElevationIndex(index)
+                        .build());
+        compare(indexed, measure("batch + index",
+                new PanoramaComputer.Builder(cDEM).setMaxElevationIndex(index)
+                        .setBatchColumns(true).build()));
+    }
+
+    private static Panorama measure(String name, PanoramaComputer pc)
+            throws InterruptedException {
+        Panorama p = pc.computePanorama(PARAMS);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; ++i) {
+            long start = System.nanoTime();
+            p = pc.computePanorama(PARAMS);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-16s %10.3f s%n", name, best * 1e-9);
+        return p;
+    }
+
+    private static void compare(Panorama reference, Panorama p) {
+        int differing = 0;
+        for (int x = 0; x < IMAGE_WIDTH; ++x) {
+            for (int y = 0; y < IMAGE_HEIGHT; ++y) {
+                float d0 = reference.distanceAt(x, y);
+                float d1 = p.distanceAt(x, y);
+                if (Float.isInfinite(d0) != Float.isInfinite(d1)
+                        || !Float.isInfinite(d0) && abs(d0 - d1) > 8)
+                    ++differing;
+            }
+        }
+        System.out.printf("%.3f%% of pixels differ by more than 8 m%n",
+                100.0 * differing / (IMAGE_WIDTH * IMAGE_HEIGHT));
+    }
+}
@@ -0,0 +1,97 @@
+package ch.epfl.alpano.draw;
+
+import static java.lang.Math.PI;
+import static java.lang.Math.toRadians;
+
+import java.util.Arrays;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.Panorama;
+import ch.epfl.alpano.PanoramaComputer;
+import ch.epfl.alpano.PanoramaParameters;
+import ch.epfl.alpano.ProgressListener;
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+import ch.epfl.alpano.gui.ChannelPainter;
+import ch.epfl.alpano.gui.ImagePainter;
+import ch.epfl.alpano.gui.PanoramaChannels;
+import ch.epfl.alpano.gui.PanoramaRenderer;
+
+/**
+ * Compare le dessin successif d'un même panorama dans ses deux styles
+ * (standard puis contours) à partir de peintres de canal évalués à chaque
+ * pixel, comme initialement, puis à partir des canaux dérivés matérialisés
+ * et partagés entre les styles par un même {@link PanoramaChannels}. Vérifie
+ * que les images obtenues sont identiques.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class BenchChannelRaster {
+
+    final static int IMAGE_WIDTH = 2500;
+    final static int IMAGE_HEIGHT = 800;
+
+    final static PanoramaParameters PARAMS = new PanoramaParameters(
+            new GeoPoint(toRadians(1), toRadians(1)), 1200, toRadians(0),
+            toRadians(120), 100_000, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+    final static int MEASURED_RUNS = 5;
+
+    public static void main(String[] as) throws Exception {
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(
+                new WavyDEM(new Interval2D(new Interval1D(0, 3600 * 2),
+                        new Interval1D(0, 3600 * 2))));
+        PanoramaComputer computer = new PanoramaComputer(cDEM);
+
+        int[][] lazy = null, materialized = null;
+        long bestLazy = Long.MAX_VALUE, bestMaterialized = Long.MAX_VALUE;
+        for (int i = 0; i <= MEASURED_RUNS; ++i) {
+            // Un nouveau Panorama et de nouveaux canaux à chaque passe.
+            Panorama p = computer.computePanorama(PARAMS);
+            long start = System.nanoTime();
+            lazy = new int[][] { render(p, lazyStd(p)),
+                    render(p, lazyOutline(p)) };
+            long middle = System.nanoTime();
+            PanoramaChannels channels = new PanoramaChannels(p);
+            materialized = new int[][] {
+                    render(p, ImagePainter.stdPanorama(channels)),
+                    render(p, ImagePainter.outlinePanorama(channels)) };
+            long stop = System.nanoTime();
+            if (i > 0) {
+                bestLazy = Math.min(bestLazy, middle - start);
+                bestMaterialized = Math.min(bestMaterialized, stop - middle);
+            }
+        }
+        System.out.printf("lazy channels          %8.3f s%n", bestLazy * 1e-9);
+        System.out.printf("materialized channels  %8.3f s%n",
+                bestMaterialized * 1e-9);
+        System.out.printf("identical images: %b%n",
+                Arrays.deepEquals(lazy, materialized));
+    }
+
+    private static int[] render(Panorama p, ImagePainter painter) {
+        return PanoramaRenderer.renderArgb(p, painter, ProgressListener.NONE);
+    }
+
+    private static ImagePainter lazyStd(Panorama p) {
+        ChannelPainter distance = p::distanceAt;
+        ChannelPainter slope = p::slopeAt;
+        ChannelPainter h = distance.div(100_000).cycle().mul(360);
+        ChannelPainter s = distance.div(200_000).clamp().invert();
+        ChannelPainter b = slope.mul(2).div((float) PI).invert().mul(0.7f)
+                .add(0.3f);
+        ChannelPainter o = distance
+                .map(d -> d == Float.POSITIVE_INFINITY ? 0 : 1);
+        return ImagePainter.hsb(h, s, b, o);
+    }
+
+    private static ImagePainter lazyOutline(Panorama p) {
+        ChannelPainter gray = ChannelPainter.maxDistanceToNeighbors(p)
+                .sub(500).div(4500).clamp().invert();
+        ChannelPainter distance = p::distanceAt;
+        return ImagePainter.gray(gray,
+                distance.map(d -> d == Float.POSITIVE_INFINITY ? 0 : 1));
+    }
+}
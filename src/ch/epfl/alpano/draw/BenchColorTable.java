@@ -0,0 +1,82 @@
+package ch.epfl.alpano.draw;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.toRadians;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.Panorama;
+import ch.epfl.alpano.PanoramaComputer;
+import ch.epfl.alpano.PanoramaParameters;
+import ch.epfl.alpano.ProgressListener;
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+import ch.epfl.alpano.gui.ImagePainter;
+import ch.epfl.alpano.gui.PanoramaRenderer;
+
+/**
+ * Compare le dessin d'un panorama dans ses styles standard et contours en
+ * passant par un objet Color par pixel, puis directement en entiers ARGB à
+ * l'aide de la table des teintes. Mesure l'écart maximal entre les
+ * composantes obtenues.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class BenchColorTable {
+
+    final static int IMAGE_WIDTH = 2500;
+    final static int IMAGE_HEIGHT = 800;
+
+    final static PanoramaParameters PARAMS = new PanoramaParameters(
+            new GeoPoint(toRadians(1), toRadians(1)), 1200, toRadians(0),
+            toRadians(120), 100_000, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+    final static int MEASURED_RUNS = 5;
+
+    public static void main(String[] as) throws Exception {
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(
+                new WavyDEM(new Interval2D(new Interval1D(0, 3600 * 2),
+                        new Interval1D(0, 3600 * 2))));
+        Panorama p = new PanoramaComputer(cDEM).computePanorama(PARAMS);
+
+        compare("standard", p, ImagePainter.stdPanorama(p));
+        compare("outline", p, ImagePainter.outlinePanorama(p));
+    }
+
+    private static void compare(String name, Panorama p,
+            ImagePainter painter) {
+        // Ce peintre ne redéfinit pas argbAt : il passe par colorAt.
+        ImagePainter withColors = painter::colorAt;
+        int[] reference = null, argb = null;
+        long bestColors = Long.MAX_VALUE, bestTable = Long.MAX_VALUE;
+        for (int i = 0; i <= MEASURED_RUNS; ++i) {
+            long start = System.nanoTime();
+            reference = PanoramaRenderer.renderArgb(p, withColors,
+                    ProgressListener.NONE);
+            long middle = System.nanoTime();
+            argb = PanoramaRenderer.renderArgb(p, painter,
+                    ProgressListener.NONE);
+            long stop = System.nanoTime();
+            if (i > 0) {
+                bestColors = Math.min(bestColors, middle - start);
+                bestTable = Math.min(bestTable, stop - middle);
+            }
+        }
+
+        int differing = 0, maxError = 0;
+        for (int i = 0; i < argb.length; ++i) {
+            if (argb[i] == reference[i])
+                continue;
+            ++differing;
+            for (int shift = 0; shift < 32; shift += 8)
+                maxError = max(maxError, abs((argb[i] >>> shift & 0xFF)
+                        - (reference[i] >>> shift & 0xFF)));
+        }
+        System.out.printf(
+                "%-9s Color %7.3f s, table %7.3f s, %.3f%% of pixels differ, by at most %d%n",
+                name, bestColors * 1e-9, bestTable * 1e-9,
+                100.0 * differing / argb.length, maxError);
+    }
+}
@@ -0,0 +1,88 @@
+package ch.epfl.alpano.draw;
+
+import static java.lang.Math.toRadians;
+
+import ch.epfl.alpano.ColumnCache;
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.Panorama;
+import ch.epfl.alpano.PanoramaComputer;
+import ch.epfl.alpano.PanoramaParameters;
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+
+/**
+ * Mesure la durée du calcul des Panoramas successifs d'un déplacement de
+ * l'azimut central, avec et sans cache des colonnes, et vérifie que les
+ * colonnes réutilisées sans tolérance sont identiques à celles calculées.
+ * Utilise un MNT synthétique afin de ne dépendre d'aucun fichier.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class BenchColumnCache {
+
+    final static int IMAGE_WIDTH = 601;
+    final static int IMAGE_HEIGHT = 200;
+
+    final static double ORIGIN_LON = toRadians(1);
+    final static double ORIGIN_LAT = toRadians(1);
+    final static int ELEVATION = 1200;
+    final static int HORIZONTAL_FOV = 60;
+    final static int MAX_DISTANCE = 100_000;
+
+    /**
+     * Déplacements successifs de l'azimut central, en degrés : un degré
+     * correspond à 10 pixels.
+     */
+    final static int PANS = 10;
+
+    public static void main(String[] as) throws Exception {
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(
+                new WavyDEM(new Interval2D(new Interval1D(0, 3600 * 2),
+                        new Interval1D(0, 3600 * 2))));
+        PanoramaComputer plain = new PanoramaComputer(cDEM);
+        ColumnCache exact = new ColumnCache(0, 10_000L * IMAGE_HEIGHT);
+        PanoramaComputer cached = new PanoramaComputer.Builder(cDEM)
+                .setColumnCache(exact).build();
+        PanoramaComputer tolerant = new PanoramaComputer.Builder(cDEM)
+                .setColumnCache(new ColumnCache(0.5, 10_000L * IMAGE_HEIGHT)).build();
+
+        // Échauffement, qui remplit aussi les caches pour l'azimut initial.
+        plain.computePanorama(parameters(0));
+        cached.computePanorama(parameters(0));
+        tolerant.computePanorama(parameters(0));
+
+        long tPlain = 0, tCached = 0, tTolerant = 0;
+        int differing = 0;
+        for (int pan = 1; pan <= PANS; ++pan) {
+            long start = System.nanoTime();
+            Panorama reference = plain.computePanorama(parameters(pan));
+            tPlain += System.nanoTime() - start;
+            start = System.nanoTime();
+            Panorama p = cached.computePanorama(parameters(pan));
+            tCached += System.nanoTime() - start;
+            start = System.nanoTime();
+            tolerant.computePanorama(parameters(pan + 0.37));
+            tTolerant += System.nanoTime() - start;
+
+            for (int x = 0; x < IMAGE_WIDTH; ++x)
+                for (int y = 0; y < IMAGE_HEIGHT; ++y)
+                    if (reference.distanceAt(x, y) != p.distanceAt(x, y))
+                        ++differing;
+        }
+        System.out.printf("%-22s %8.3f s/pan%n", "no cache", tPlain * 1e-9 / PANS);
+        System.out.printf("%-22s %8.3f s/pan%n", "cache, 1 degree pans",
+                tCached * 1e-9 / PANS);
+        System.out.printf("%-22s %8.3f s/pan%n", "cache, tolerance 0.5",
+                tTolerant * 1e-9 / PANS);
+        System.out.printf("%d hits, %d misses, %d differing pixels%n",
+                exact.hits(), exact.misses(), differing);
+    }
+
+    private static PanoramaParameters parameters(double azimuth) {
+        return new PanoramaParameters(new GeoPoint(ORIGIN_LON, ORIGIN_LAT),
+                ELEVATION, toRadians(azimuth), toRadians(HORIZONTAL_FOV),
+                MAX_DISTANCE, IMAGE_WIDTH, IMAGE_HEIGHT);
+    }
+}
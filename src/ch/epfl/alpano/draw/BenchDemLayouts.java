@@ -0,0 +1,128 @@
+package ch.epfl.alpano.draw;
+
+import static java.lang.Math.toRadians;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.PanoramaComputer;
+import ch.epfl.alpano.PanoramaParameters;
+import ch.epfl.alpano.dem.BlockedDiscreteElevationModel;
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+import ch.epfl.alpano.dem.DiscreteElevationModel;
+import ch.epfl.alpano.dem.HilbertDiscreteElevationModel;
+import ch.epfl.alpano.dem.HilbertDiscreteElevationModel.Layout;
+import ch.epfl.alpano.dem.SuperHgtDiscreteElevationModel;
+
+/**
+ * Compare les dispositions des échantillons d'un MNT (lignes des fichiers
+ * HGT, courbe de Hilbert, courbe en Z et blocs) en rejouant les accès
+ * effectués lors du calcul d'un panorama réel. Nécessite les fichiers HGT des
+ * Alpes ; les fichiers .hhgt, .zhgt et par blocs sont créés au besoin.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class BenchDemLayouts {
+
+    final static int IMAGE_WIDTH = 500;
+    final static int IMAGE_HEIGHT = 200;
+
+    final static double ORIGIN_LON = toRadians(7.65);
+    final static double ORIGIN_LAT = toRadians(46.73);
+    final static int ELEVATION = 600;
+    final static double CENTER_AZIMUTH = toRadians(180);
+    final static double HORIZONTAL_FOV = toRadians(60);
+    final static int MAX_DISTANCE = 100_000;
+
+    final static int MEASURED_RUNS = 5;
+
+    final static File BLOCKED_FILE = new File("alps.bdem");
+
+    final static PanoramaParameters PARAMS = new PanoramaParameters(
+            new GeoPoint(ORIGIN_LON, ORIGIN_LAT), ELEVATION, CENTER_AZIMUTH,
+            HORIZONTAL_FOV, MAX_DISTANCE, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+    public static void main(String[] as) throws Exception {
+        DiscreteElevationModel rowMajor = SuperHgtDiscreteElevationModel
+                .full();
+        DiscreteElevationModel hilbert = new HilbertDiscreteElevationModel(0,
+                0, Layout.HILBERT);
+        DiscreteElevationModel morton = new HilbertDiscreteElevationModel(0,
+                0, Layout.MORTON);
+        if (!BLOCKED_FILE.exists()) {
+            long start = System.nanoTime();
+            BlockedDiscreteElevationModel.convert(rowMajor, BLOCKED_FILE);
+            System.out.printf("%s created in %.3f seconds%n",
+                    BLOCKED_FILE.getName(), (System.nanoTime() - start) * 1e-9);
+        }
+        DiscreteElevationModel blocked = new BlockedDiscreteElevationModel(
+                BLOCKED_FILE);
+
+        // Un seul fil d'exécution, afin que la trace suive l'ordre réel des
+        // accès d'une colonne.
+        TraceDEM trace = new TraceDEM(rowMajor, hilbert.extent());
+        ForkJoinPool pool = new ForkJoinPool(1);
+        new PanoramaComputer.Builder(new ContinuousElevationModel(trace))
+                .setPool(pool).build().computePanorama(PARAMS);
+        pool.shutdown();
+        System.out.printf("%d samples read in the trace%n", trace.size);
+
+        System.out.printf("%-10s %12s%n", "layout", "ns/sample");
+        replay("row-major", rowMajor, trace);
+        replay("hilbert", hilbert, trace);
+        replay("morton", morton, trace);
+        replay("blocked", blocked, trace);
+    }
+
+    private static void replay(String name, DiscreteElevationModel dem,
+            TraceDEM trace) {
+        double sum = 0;
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < MEASURED_RUNS; ++r) {
+            long start = System.nanoTime();
+            for (int i = 0; i < trace.size; ++i)
+                sum += dem.elevationSample(trace.xs[i], trace.ys[i]);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-10s %12.2f   (%s)%n", name,
+                (double) best / trace.size, sum);
+    }
+
+    /**
+     * MNT enregistrant les index lus dans une étendue donnée.
+     */
+    private static final class TraceDEM implements DiscreteElevationModel {
+        private final DiscreteElevationModel dem;
+        private final Interval2D recorded;
+        private int[] xs = new int[1 << 20], ys = new int[1 << 20];
+        private int size;
+
+        TraceDEM(DiscreteElevationModel dem, Interval2D recorded) {
+            this.dem = dem;
+            this.recorded = recorded;
+        }
+
+        @Override
+        public Interval2D extent() {
+            return dem.extent();
+        }
+
+        @Override
+        public double elevationSample(int x, int y) {
+            if (recorded.contains(x, y)) {
+                if (size == xs.length) {
+                    xs = Arrays.copyOf(xs, 2 * size);
+                    ys = Arrays.copyOf(ys, 2 * size);
+                }
+                xs[size] = x;
+                ys[size] = y;
+                ++size;
+            }
+            return dem.elevationSample(x, y);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ch.epfl.alpano.draw;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.toRadians;
+
+import java.io.File;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.Panorama;
+import ch.epfl.alpano.PanoramaComputer;
+import ch.epfl.alpano.PanoramaParameters;
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+import ch.epfl.alpano.dem.DemPyramid;
+import ch.epfl.alpano.dem.DiscreteElevationModel;
+
+/**
+ * Compare le calcul d'un panorama large avec et sans pyramide de MNT : durée
+ * du calcul et écart entre les distances obtenues. Utilise un MNT synthétique
+ * afin de ne dépendre d'aucun fichier ; les niveaux réduits sont créés dans le
+ * répertoire courant.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class BenchDemPyramid {
+
+    final static int IMAGE_WIDTH = 1000;
+    final static int IMAGE_HEIGHT = 300;
+
+    final static double ORIGIN_LON = toRadians(1);
+    final static double ORIGIN_LAT = toRadians(1);
+    final static int ELEVATION = 1200;
+    final static double CENTER_AZIMUTH = toRadians(0);
+    final static double HORIZONTAL_FOV = toRadians(120);
+    final static int MAX_DISTANCE = 100_000;
+
+    final static int MEASURED_RUNS = 3;
+
+    final static PanoramaParameters PARAMS = new PanoramaParameters(
+            new GeoPoint(ORIGIN_LON, ORIGIN_LAT), ELEVATION, CENTER_AZIMUTH,
+            HORIZONTAL_FOV, MAX_DISTANCE, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+    public static void main(String[] as) throws Exception {
+        DiscreteElevationModel dDEM = new WavyDEM(new Interval2D(
+                new Interval1D(0, 3600 * 2), new Interval1D(0, 3600 * 2)));
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(dDEM);
+
+        long start = System.nanoTime();
+        DemPyramid pyramid = new DemPyramid(dDEM, new File("."), "wavy");
+        System.out.printf("pyramid ready in %.3f seconds%n",
+                (System.nanoTime() - start) * 1e-9);
+
+        PanoramaComputer exact = new PanoramaComputer(cDEM);
+        PanoramaComputer coarse = new PanoramaComputer.Builder(cDEM)
+                .setPyramid(pyramid).build();
+        Panorama reference = measure("exact", exact);
+        Panorama approximation = measure("pyramid", coarse);
+
+        int differing = 0;
+        double error = 0;
+        for (int x = 0; x < IMAGE_WIDTH; ++x) {
+            for (int y = 0; y < IMAGE_HEIGHT; ++y) {
+                float d0 = reference.distanceAt(x, y);
+                float d1 = approximation.distanceAt(x, y);
+                if (Float.isInfinite(d0) != Float.isInfinite(d1)) {
+                    ++differing;
+                } else if (!Float.isInfinite(d0)) {
+                    error += abs(d0 - d1) / d0;
+                    if (abs(d0 - d1) > 0.01 * d0)
+                        ++differing;
+                }
+            }
+        }
+        int pixels = IMAGE_WIDTH * IMAGE_HEIGHT;
+        System.out.printf(
+                "mean relative distance error %.5f, %.2f%% of pixels differ by more than 1%%%n",
+                error / pixels, 100.0 * differing / pixels);
+    }
+
+    private static Panorama measure(String name, PanoramaComputer pc)
+            throws InterruptedException {
+        Panorama p = pc.computePanorama(PARAMS);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; ++i) {
+            long start = System.nanoTime();
+            p = pc.computePanorama(PARAMS);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-8s %10.3f s%n", name, best * 1e-9);
+        return p;
+    }
+}
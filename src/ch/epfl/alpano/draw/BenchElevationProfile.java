@@ -0,0 +1,85 @@
+package ch.epfl.alpano.draw;
+
+import static java.lang.Math.toRadians;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.function.DoubleSupplier;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+import ch.epfl.alpano.dem.ElevationProfile;
+
+/**
+ * Compare le calcul de l'altitude le long d'un profil de 100 km en passant par
+ * un GeoPoint (positionAt, comme le faisait l'ancienne version du profil) et à
+ * l'aide du chemin sans allocation (elevationAt). Affiche le temps par appel et
+ * la mémoire allouée.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class BenchElevationProfile {
+
+    final static double ORIGIN_LON = toRadians(1);
+    final static double ORIGIN_LAT = toRadians(1);
+    final static double AZIMUTH = toRadians(45);
+    final static int LENGTH = 100_000;
+
+    final static double STEP = 64;
+    final static int RUNS = 200;
+
+    public static void main(String[] as) {
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(
+                new WavyDEM(new Interval2D(new Interval1D(0, 3600 * 10),
+                        new Interval1D(0, 3600 * 10))));
+        ElevationProfile profile = new ElevationProfile(cDEM,
+                new GeoPoint(ORIGIN_LON, ORIGIN_LAT), AZIMUTH, LENGTH);
+
+        for (int i = 0; i < 2; ++i) {
+            measure("positionAt ", () -> {
+                double sum = 0;
+                for (double x = 0; x <= LENGTH; x += STEP)
+                    sum += cDEM.elevationAt(profile.positionAt(x));
+                return sum;
+            });
+            measure("elevationAt", () -> {
+                double sum = 0;
+                for (double x = 0; x <= LENGTH; x += STEP)
+                    sum += profile.elevationAt(x);
+                return sum;
+            });
+        }
+    }
+
+    /**
+     * Mesure et affiche le temps moyen par appel et la mémoire allouée par la
+     * tâche donnée.
+     */
+    private static void measure(String name, DoubleSupplier task) {
+        int calls = (int) (LENGTH / STEP + 1) * RUNS;
+        long bytes = allocatedBytes();
+        double sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; ++i)
+            sink += task.getAsDouble();
+        long time = System.nanoTime() - start;
+        bytes = allocatedBytes() - bytes;
+        System.out.printf("%s: %7.1f ns/call, %6.1f bytes/call (%.0f)%n", name,
+                (double) time / calls, (double) bytes / calls, sink);
+    }
+
+    /**
+     * Retourne la mémoire allouée par le fil d'exécution courant, ou 0 si la
+     * machine virtuelle ne la mesure pas.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        return 0;
+    }
+}
@@ -0,0 +1,81 @@
+package ch.epfl.alpano.draw;
+
+import static java.lang.Math.toRadians;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.Panorama;
+import ch.epfl.alpano.PanoramaComputer;
+import ch.epfl.alpano.PanoramaParameters;
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+import ch.epfl.alpano.dem.DiscreteElevationModel;
+import ch.epfl.alpano.dem.MaxElevationIndex;
+
+/**
+ * Compare le calcul d'un panorama avec et sans index des altitudes maximales :
+ * durée du calcul, proportion de pas sautés et égalité des résultats.
+ * Utilise un MNT synthétique, entouré de mer, afin de ne dépendre d'aucun
+ * fichier.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class BenchMaxElevationIndex {
+
+    final static int IMAGE_WIDTH = 1000;
+    final static int IMAGE_HEIGHT = 300;
+
+    final static double ORIGIN_LON = toRadians(1);
+    final static double ORIGIN_LAT = toRadians(1);
+    final static int ELEVATION = 1200;
+    final static double CENTER_AZIMUTH = toRadians(0);
+    final static double HORIZONTAL_FOV = toRadians(120);
+    final static int MAX_DISTANCE = 150_000;
+
+    final static int MEASURED_RUNS = 3;
+
+    final static PanoramaParameters PARAMS = new PanoramaParameters(
+            new GeoPoint(ORIGIN_LON, ORIGIN_LAT), ELEVATION, CENTER_AZIMUTH,
+            HORIZONTAL_FOV, MAX_DISTANCE, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+    public static void main(String[] as) throws Exception {
+        DiscreteElevationModel dDEM = new WavyDEM(new Interval2D(
+                new Interval1D(0, 3600 * 2), new Interval1D(0, 3600 * 2)));
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(dDEM);
+
+        PanoramaComputer plain = new PanoramaComputer(cDEM);
+        PanoramaComputer indexed = new PanoramaComputer.Builder(cDEM)
+                .setMaxElevationIndex(new MaxElevationIndex(dDEM)).build();
+        Panorama reference = measure("plain", plain);
+        Panorama result = measure("indexed", indexed);
+
+        long skipped = indexed.skippedSteps();
+        long marched = indexed.marchedSteps();
+        System.out.printf("%d steps skipped, %d evaluated (%.1f%% skipped)%n",
+                skipped, marched, 100.0 * skipped / (skipped + marched));
+
+        int differing = 0;
+        for (int x = 0; x < IMAGE_WIDTH; ++x)
+            for (int y = 0; y < IMAGE_HEIGHT; ++y)
+                if (Float.floatToIntBits(reference.distanceAt(x, y)) != Float
+                        .floatToIntBits(result.distanceAt(x, y))
+                        || reference.elevationAt(x, y) != result
+                                .elevationAt(x, y))
+                    ++differing;
+        System.out.printf("%d differing pixels%n", differing);
+    }
+
+    private static Panorama measure(String name, PanoramaComputer pc)
+            throws InterruptedException {
+        Panorama p = pc.computePanorama(PARAMS);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; ++i) {
+            long start = System.nanoTime();
+            p = pc.computePanorama(PARAMS);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-8s %10.3f s%n", name, best * 1e-9);
+        return p;
+    }
+}
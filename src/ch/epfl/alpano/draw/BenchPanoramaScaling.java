@@ -0,0 +1,69 @@
+package ch.epfl.alpano.draw;
+
+import static java.lang.Math.toRadians;
+
+import java.util.concurrent.ForkJoinPool;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.PanoramaComputer;
+import ch.epfl.alpano.PanoramaParameters;
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+
+/**
+ * Mesure le débit de calcul d'un panorama (en colonnes par seconde) selon le
+ * nombre de fils d'exécution utilisés, de 1 jusqu'au nombre de cœurs. Utilise
+ * un MNT synthétique afin de ne dépendre d'aucun fichier.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class BenchPanoramaScaling {
+
+    final static int IMAGE_WIDTH = 800;
+    final static int IMAGE_HEIGHT = 300;
+
+    final static double ORIGIN_LON = toRadians(1);
+    final static double ORIGIN_LAT = toRadians(1);
+    final static int ELEVATION = 1200;
+    final static double CENTER_AZIMUTH = toRadians(45);
+    final static double HORIZONTAL_FOV = toRadians(60);
+    final static int MAX_DISTANCE = 100_000;
+
+    final static int WARMUP_RUNS = 2;
+    final static int MEASURED_RUNS = 5;
+
+    final static PanoramaParameters PARAMS = new PanoramaParameters(
+            new GeoPoint(ORIGIN_LON, ORIGIN_LAT), ELEVATION, CENTER_AZIMUTH,
+            HORIZONTAL_FOV, MAX_DISTANCE, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+    public static void main(String[] as) throws Exception {
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(
+                new WavyDEM(new Interval2D(new Interval1D(0, 3600 * 10),
+                        new Interval1D(0, 3600 * 10))));
+        int cores = Runtime.getRuntime().availableProcessors();
+        double reference = 0;
+
+        System.out.printf("%8s %14s %10s%n", "threads", "columns/s",
+                "speedup");
+        for (int n = 1; n <= cores; ++n) {
+            ForkJoinPool pool = new ForkJoinPool(n);
+            PanoramaComputer pc = new PanoramaComputer(cDEM, true, pool);
+            for (int i = 0; i < WARMUP_RUNS; ++i)
+                pc.computePanorama(PARAMS);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_RUNS; ++i)
+                pc.computePanorama(PARAMS);
+            double seconds = (System.nanoTime() - start) * 1e-9;
+            pool.shutdown();
+
+            double throughput = MEASURED_RUNS * IMAGE_WIDTH / seconds;
+            if (n == 1)
+                reference = throughput;
+            System.out.printf("%8d %14.1f %10.2f%n", n, throughput,
+                    throughput / reference);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ch.epfl.alpano.draw;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.toRadians;
+
+import ch.epfl.alpano.Distance;
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.Panorama;
+import ch.epfl.alpano.PanoramaComputer;
+import ch.epfl.alpano.PanoramaParameters;
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+
+/**
+ * Compare un panorama stocké en float au même panorama stocké sous forme
+ * compacte : mémoire occupée et erreur maximale de chaque composante.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class BenchPanoramaStorage {
+
+    final static int IMAGE_WIDTH = 2500;
+    final static int IMAGE_HEIGHT = 800;
+
+    final static PanoramaParameters PARAMS = new PanoramaParameters(
+            new GeoPoint(toRadians(1), toRadians(1)), 1200, toRadians(0),
+            toRadians(120), 100_000, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+    public static void main(String[] as) throws Exception {
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(
+                new WavyDEM(new Interval2D(new Interval1D(0, 3600 * 2),
+                        new Interval1D(0, 3600 * 2))));
+        Panorama full = new PanoramaComputer.Builder(cDEM)
+                .setStorage(Panorama.Storage.FLOAT).build()
+                .computePanorama(PARAMS);
+        Panorama compact = new PanoramaComputer.Builder(cDEM)
+                .setStorage(Panorama.Storage.COMPACT).build()
+                .computePanorama(PARAMS);
+
+        System.out.printf("float   %8.1f MB%ncompact %8.1f MB (%.0f%% saved)%n",
+                full.memoryUsage() / 1e6, compact.memoryUsage() / 1e6,
+                100 * compact.storage().savings());
+
+        double distance = 0, position = 0, elevation = 0, slope = 0;
+        int skyMismatches = 0;
+        for (int x = 0; x < IMAGE_WIDTH; ++x) {
+            for (int y = 0; y < IMAGE_HEIGHT; ++y) {
+                float d0 = full.distanceAt(x, y);
+                float d1 = compact.distanceAt(x, y);
+                if (Float.isInfinite(d0) || Float.isInfinite(d1)) {
+                    if (d0 != d1)
+                        ++skyMismatches;
+                    continue;
+                }
+                distance = max(distance, abs(d0 - d1) / d0);
+                position = max(position, abs(
+                        full.longitudeAt(x, y) - compact.longitudeAt(x, y)));
+                position = max(position, abs(
+                        full.latitudeAt(x, y) - compact.latitudeAt(x, y)));
+                elevation = max(elevation, abs(
+                        full.elevationAt(x, y) - compact.elevationAt(x, y)));
+                slope = max(slope,
+                        abs(full.slopeAt(x, y) - compact.slopeAt(x, y)));
+            }
+        }
+        System.out.printf(
+                "max errors: distance %.5f%%, position %.2f m, elevation %.2f m, slope %.3f deg, %d sky mismatches%n",
+                100 * distance, Distance.toMeters(position), elevation,
+                Math.toDegrees(slope), skyMismatches);
+    }
+}
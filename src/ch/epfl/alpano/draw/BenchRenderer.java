@@ -0,0 +1,73 @@
+package ch.epfl.alpano.draw;
+
+import static java.lang.Math.toRadians;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.Panorama;
+import ch.epfl.alpano.PanoramaComputer;
+import ch.epfl.alpano.PanoramaParameters;
+import ch.epfl.alpano.ProgressListener;
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+import ch.epfl.alpano.gui.ImagePainter;
+import ch.epfl.alpano.gui.PanoramaRenderer;
+
+/**
+ * Compare le dessin d'un panorama pixel par pixel, colonne après colonne comme
+ * le faisait le dessin initial, à son dessin par bandes de lignes dans un
+ * tableau ARGB. Ne mesure que l'évaluation du peintre, sans JavaFX, et vérifie
+ * que les deux dessins sont identiques.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class BenchRenderer {
+
+    final static int IMAGE_WIDTH = 2500;
+    final static int IMAGE_HEIGHT = 800;
+
+    final static PanoramaParameters PARAMS = new PanoramaParameters(
+            new GeoPoint(toRadians(1), toRadians(1)), 1200, toRadians(0),
+            toRadians(120), 100_000, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+    final static int MEASURED_RUNS = 5;
+
+    public static void main(String[] as) throws Exception {
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(
+                new WavyDEM(new Interval2D(new Interval1D(0, 3600 * 2),
+                        new Interval1D(0, 3600 * 2))));
+        Panorama p = new PanoramaComputer(cDEM).computePanorama(PARAMS);
+        ImagePainter painter = ImagePainter.stdPanorama(p);
+
+        int[] reference = new int[IMAGE_WIDTH * IMAGE_HEIGHT];
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i <= MEASURED_RUNS; ++i) {
+            long start = System.nanoTime();
+            for (int x = 0; x < IMAGE_WIDTH; ++x)
+                for (int y = 0; y < IMAGE_HEIGHT; ++y)
+                    reference[y * IMAGE_WIDTH + x] = painter.argbAt(x, y);
+            if (i > 0)
+                best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("per pixel  %8.3f s%n", best * 1e-9);
+
+        int[] argb = null;
+        best = Long.MAX_VALUE;
+        for (int i = 0; i <= MEASURED_RUNS; ++i) {
+            long start = System.nanoTime();
+            argb = PanoramaRenderer.renderArgb(p, painter,
+                    ProgressListener.NONE);
+            if (i > 0)
+                best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("row bands  %8.3f s (%d threads)%n", best * 1e-9,
+                Runtime.getRuntime().availableProcessors());
+
+        int differing = 0;
+        for (int i = 0; i < argb.length; ++i)
+            if (argb[i] != reference[i])
+                ++differing;
+        System.out.printf("%d differing pixels%n", differing);
+    }
+}
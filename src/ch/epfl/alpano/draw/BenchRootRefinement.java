@@ -0,0 +1,116 @@
+package ch.epfl.alpano.draw;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.tan;
+import static java.lang.Math.toRadians;
+
+import java.util.function.DoubleUnaryOperator;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.Math2;
+import ch.epfl.alpano.PanoramaComputer;
+import ch.epfl.alpano.PanoramaParameters;
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+import ch.epfl.alpano.dem.ElevationProfile;
+
+/**
+ * Compare les méthodes d'affinage des racines sur les rayons d'un panorama :
+ * nombre moyen d'évaluations du profil par pixel et écart moyen à la racine
+ * exacte. Les intervalles de recherche sont ceux du calcul d'un panorama.
+ * Utilise un MNT synthétique afin de ne dépendre d'aucun fichier.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class BenchRootRefinement {
+
+    final static int IMAGE_WIDTH = 500;
+    final static int IMAGE_HEIGHT = 300;
+
+    final static double ORIGIN_LON = toRadians(1);
+    final static double ORIGIN_LAT = toRadians(1);
+    final static int ELEVATION = 1200;
+    final static double CENTER_AZIMUTH = toRadians(0);
+    final static double HORIZONTAL_FOV = toRadians(120);
+    final static int MAX_DISTANCE = 100_000;
+
+    final static double INTERVAL = PanoramaComputer.INTERVAL;
+    final static double EPSILON = 4;
+
+    final static PanoramaParameters PARAMS = new PanoramaParameters(
+            new GeoPoint(ORIGIN_LON, ORIGIN_LAT), ELEVATION, CENTER_AZIMUTH,
+            HORIZONTAL_FOV, MAX_DISTANCE, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+    /**
+     * Affinage évalué par le banc d'essai.
+     */
+    @FunctionalInterface
+    private interface Refinement {
+        double improve(DoubleUnaryOperator f, double x1, double x2,
+                double epsilon);
+    }
+
+    public static void main(String[] as) {
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(
+                new WavyDEM(new Interval2D(new Interval1D(0, 3600 * 2),
+                        new Interval1D(0, 3600 * 2))));
+
+        System.out.printf("%-16s %12s %12s%n", "refinement", "evals/pixel",
+                "mean error");
+        run("bisection (old)", cDEM, BenchRootRefinement::improveRootUncached);
+        run("bisection", cDEM, Math2::improveRoot);
+        run("illinois", cDEM, Math2::improveRootIllinois);
+    }
+
+    private static void run(String name, ContinuousElevationModel cDEM,
+            Refinement refinement) {
+        long evaluations = 0, pixels = 0;
+        double error = 0;
+        for (int x = 0; x < IMAGE_WIDTH; ++x) {
+            ElevationProfile profile = new ElevationProfile(cDEM,
+                    PARAMS.observerPosition(), PARAMS.azimuthForX(x),
+                    MAX_DISTANCE);
+            double dist = 0;
+            for (int y = IMAGE_HEIGHT - 1; y >= 0; --y) {
+                DoubleUnaryOperator f = PanoramaComputer.rayToGroundDistance(
+                        profile, ELEVATION, tan(PARAMS.altitudeForY(y)));
+                dist = Math2.firstIntervalContainingRoot(f, dist, MAX_DISTANCE,
+                        INTERVAL);
+                if (dist == Double.POSITIVE_INFINITY)
+                    break;
+                long[] count = new long[1];
+                double root = refinement.improve(z -> {
+                    ++count[0];
+                    return f.applyAsDouble(z);
+                }, dist, dist + INTERVAL, EPSILON);
+                error += abs(root
+                        - Math2.improveRoot(f, dist, dist + INTERVAL, 1e-6));
+                evaluations += count[0];
+                ++pixels;
+                dist = root;
+            }
+        }
+        System.out.printf("%-16s %12.3f %12.3f%n", name,
+                (double) evaluations / pixels, error / pixels);
+    }
+
+    /**
+     * Dichotomie telle qu'elle était écrite avant la conservation de la
+     * valeur de la borne inférieure.
+     */
+    private static double improveRootUncached(DoubleUnaryOperator f,
+            double x1, double x2, double epsilon) {
+        if (f.applyAsDouble(x1) * f.applyAsDouble(x2) > 0)
+            throw new IllegalArgumentException();
+        while (x2 - x1 > epsilon) {
+            double mid = (x1 + x2) / 2.0;
+            if (f.applyAsDouble(x1) * f.applyAsDouble(mid) <= 0)
+                x2 = mid;
+            else
+                x1 = mid;
+        }
+        return x1;
+    }
+}
@@ -17,8 +17,6 @@ import ch.epfl.alpano.dem.HgtDiscreteElevationModel;
 import ch.epfl.alpano.gui.ChannelPainter;
 import ch.epfl.alpano.gui.ImagePainter;
 import ch.epfl.alpano.gui.PanoramaRenderer;
-import javafx.embed.swing.SwingFXUtils;
-import javafx.scene.image.Image;
 
 /**
  * Dessine un panorama en couleurs.
@@ -71,8 +69,7 @@ final class DrawPanoramaColor {
 
         ImagePainter l = ImagePainter.hsb(h, s, b, o);
 
-        Image i = PanoramaRenderer.renderPanorama(p, l, null);
-        ImageIO.write(SwingFXUtils.fromFXImage(i, null), "png",
+        ImageIO.write(PanoramaRenderer.renderBufferedImage(p, l), "png",
                 new File("niesen-shaded.png"));
         long stop = System.nanoTime();
         System.out.printf("DrawPanoramaColor took %.3f ms.%n",
@@ -16,8 +16,6 @@ import ch.epfl.alpano.dem.HgtDiscreteElevationModel;
 import ch.epfl.alpano.gui.ChannelPainter;
 import ch.epfl.alpano.gui.ImagePainter;
 import ch.epfl.alpano.gui.PanoramaRenderer;
-import javafx.embed.swing.SwingFXUtils;
-import javafx.scene.image.Image;
 
 /**
  * Dessine un panorama en niveaux de gris.
@@ -57,8 +55,7 @@ final class DrawPanoramaGray {
 
         ImagePainter l = ImagePainter.gray(gray, opacity);
 
-        Image i = PanoramaRenderer.renderPanorama(p, l, null);
-        ImageIO.write(SwingFXUtils.fromFXImage(i, null), "png",
+        ImageIO.write(PanoramaRenderer.renderBufferedImage(p, l), "png",
                 new File("niesen-profile.png"));
 
         long stop = System.nanoTime();
@@ -38,7 +38,7 @@ import ch.epfl.alpano.Panorama;
 import ch.epfl.alpano.dem.ContinuousElevationModel;
 import ch.epfl.alpano.dem.DiscreteElevationModel;
 import ch.epfl.alpano.dem.HilbertDiscreteElevationModel;
-import ch.epfl.alpano.dem.SuperHgtDiscreteElevationModel;
+import ch.epfl.alpano.dem.TiledHgtDiscreteElevationModel;
 import ch.epfl.alpano.summit.GazetteerParser;
 import ch.epfl.alpano.summit.Labelizable;
 import ch.epfl.alpano.summit.Place;
@@ -138,6 +138,16 @@ public final class Alpano extends Application {
      */
     private final static double WINDOW_PREF_HEIGHT = 700;
 
+    /**
+     * Nombre maximal de fichiers HGT projetés en mémoire en même temps.
+     */
+    private final static int MAX_MAPPED_TILES = 32;
+
+    /**
+     * MNT discret formé des fichiers HGT du répertoire courant.
+     */
+    private final static DiscreteElevationModel DEM;
+
     /**
      * MNT continu chargé.
      */
@@ -212,11 +222,12 @@ public final class Alpano extends Application {
 
         System.out.println(" - Summits and labels loaded.");
 
-        DiscreteElevationModel dem = SuperHgtDiscreteElevationModel.FULL;
+        DEM = new TiledHgtDiscreteElevationModel(new File("."),
+                MAX_MAPPED_TILES);
 
         System.out.println(" - DEMs loaded.");
 
-        CEM = new ContinuousElevationModel(dem);
+        CEM = new ContinuousElevationModel(DEM);
         PARAMETERS_B = new PanoramaParametersBean(PRELOAD);
         COMPUTER_B = new PanoramaComputerBean(CEM, labels);
 
@@ -310,14 +321,16 @@ public final class Alpano extends Application {
      */
     private void setMouseMove(ImageView panoView, TextArea areaInfo) {
         panoView.setOnMouseMoved(e -> {
+            Panorama p = COMPUTER_B.getPanorama();
+            if (p == null)
+                return;
             int x = getSampledIndex(e.getX());
             int y = getSampledIndex(e.getY());
 
-            double lat = toDegrees(COMPUTER_B.getPanorama().latitudeAt(x, y));
-            double lon = toDegrees(COMPUTER_B.getPanorama().longitudeAt(x, y));
+            double lat = toDegrees(p.latitudeAt(x, y));
+            double lon = toDegrees(p.longitudeAt(x, y));
 
-            double azimuth = COMPUTER_B.getParameters().panoramaParameters()
-                    .azimuthForX(x);
+            double azimuth = p.parameters().azimuthForX(x);
             char northOrSouth = lat >= 0.0 ? 'N' : 'S';
             char eastOrWest = lon >= 0.0 ? 'E' : 'W';
 
@@ -325,14 +338,12 @@ public final class Alpano extends Application {
             sb.append(format("Position : %.4f°%c %.4f°%c%n", abs(lat),
                     northOrSouth, abs(lon), eastOrWest));
             sb.append(format("Distance : %.1f km%n",
-                    COMPUTER_B.getPanorama().distanceAt(x, y) / M_PER_KM));
-            sb.append(format("Altitude : %d m%n",
-                    (int) COMPUTER_B.getPanorama().elevationAt(x, y)));
+                    p.distanceAt(x, y) / M_PER_KM));
+            sb.append(format("Altitude : %d m%n", (int) p.elevationAt(x, y)));
             sb.append(format("Azimut : %.1f° (%s)  Élévation : %.1f°",
                     toDegrees(azimuth),
                     toOctantString(azimuth, "N", "E", "S", "W"),
-                    toDegrees(COMPUTER_B.getParameters().panoramaParameters()
-                            .altitudeForY(y))));
+                    toDegrees(p.parameters().altitudeForY(y))));
             areaInfo.setText(sb.toString());
         });
     }
@@ -346,13 +357,14 @@ public final class Alpano extends Application {
      */
     private void setMouseClick(ImageView panoView) {
         panoView.setOnMouseClicked(e -> {
+            Panorama p = COMPUTER_B.getPanorama();
+            if (p == null)
+                return;
             int x = getSampledIndex(e.getX());
             int y = getSampledIndex(e.getY());
             if (e.getButton() == MouseButton.PRIMARY) {
-                double lat = toDegrees(
-                        COMPUTER_B.getPanorama().latitudeAt(x, y));
-                double lon = toDegrees(
-                        COMPUTER_B.getPanorama().longitudeAt(x, y));
+                double lat = toDegrees(p.latitudeAt(x, y));
+                double lon = toDegrees(p.longitudeAt(x, y));
                 String qy = format((Locale) null, "mlat=%.4f&mlon=%.4f", lat,
                         lon);
                 String fg = format((Locale) null, "map=15/%.4f/%.4f", lat, lon);
@@ -367,7 +379,6 @@ public final class Alpano extends Application {
                     System.err.println("Could not get to browser.");
                 }
             } else if (e.getButton() == MouseButton.SECONDARY) {
-                Panorama p = COMPUTER_B.getPanorama();
                 PARAMETERS_B.observerLongitudeProperty()
                         .set((int) (10_000 * toDegrees(p.longitudeAt(x, y))));
                 PARAMETERS_B.observerLatitudeProperty()
@@ -376,23 +387,24 @@ public final class Alpano extends Application {
                         .set((int) p.elevationAt(x, y) + 20);
                 PARAMETERS_B.centerAzimuthProperty()
                         .set((int) toDegrees(Azimuth.canonicalize(
-                                COMPUTER_B.getParameters().panoramaParameters()
-                                        .azimuthForX(x) + Math.PI)));
+                                p.parameters().azimuthForX(x) + Math.PI)));
             }
         });
     }
 
     /**
-     * Retourne l'index en prenant en compte le suréchantillonage.
+     * Retourne l'index dans le Panorama affiché correspondant à l'index donné
+     * dans l'image, en prenant en compte le suréchantillonage ou, pour un
+     * aperçu, sa résolution réduite.
      * 
      * @param index
      *            L'index de base.
      * 
-     * @return l'index prenant en compte le suréchantillonage.
+     * @return l'index prenant en compte la résolution du Panorama affiché.
      */
     private int getSampledIndex(double index) {
-        return (int) Math.scalb(index,
-                COMPUTER_B.getParameters().superSamplingExponent());
+        return (int) (index * COMPUTER_B.getPanorama().parameters().width()
+                / COMPUTER_B.getParameters().width());
     }
 
     /**
@@ -850,9 +862,12 @@ public final class Alpano extends Application {
         RadioMenuItem lightweight = new RadioMenuItem("Graphismes allégés");
         COMPUTER_B.slopeNecessaryProperty()
                 .bind(lightweight.selectedProperty().not());
+        RadioMenuItem progressive = new RadioMenuItem("Aperçu progressif");
+        progressive.setSelected(true);
+        COMPUTER_B.progressiveProperty().bind(progressive.selectedProperty());
         menuParameters.getItems().addAll(addLabel, changeCem,
                 new SeparatorMenuItem(), autoAltitude, hideNonSummits,
-                lightweight);
+                lightweight, progressive);
         try {
             addLabel.setGraphic(new ImageView(
                     new Image(new FileInputStream(new File("res/globe.png")))));
@@ -981,7 +996,7 @@ public final class Alpano extends Application {
 
         ToggleGroup group = new ToggleGroup();
         RadioButton superHGT = new RadioButton("Option standard");
-        superHGT.setUserData(SuperHgtDiscreteElevationModel.FULL);
+        superHGT.setUserData(DEM);
         superHGT.setToggleGroup(group);
         superHGT.setSelected(false);
         RadioButton hilbertHGT = new RadioButton("Option Hilbert");
@@ -0,0 +1,133 @@
+package ch.epfl.alpano.gui;
+
+import static ch.epfl.alpano.Preconditions.checkArgument;
+
+/**
+ * Conversion de couleurs en entiers ARGB sans passer par des objets
+ * {@link javafx.scene.paint.Color}, pour les peintres d'image évalués en
+ * chaque pixel.
+ *
+ * <p>
+ * La conversion TSV (HSB) est factorisée : chaque composante vaut
+ * b · (1 − s · (1 − c(h))), où c(h) est la composante de la teinte pure h
+ * (saturation et luminosité maximales). Seule c(h) est tabulée, par pas de
+ * 1/{@value #HUE_STEPS_PER_DEGREE} de degré ; le reste du calcul se fait sans
+ * branchement. Une composante peut ainsi différer au plus d'une unité de celle
+ * de {@link javafx.scene.paint.Color#hsb(double, double, double, double)}.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+interface ArgbColors {
+
+    /**
+     * Nombre d'entrées de la table des teintes par degré.
+     */
+    int HUE_STEPS_PER_DEGREE = 16;
+
+    /**
+     * Nombre d'entrées de la table des teintes.
+     */
+    int HUE_STEPS = 360 * HUE_STEPS_PER_DEGREE;
+
+    /**
+     * Composantes rouge, verte et bleue de chaque teinte pure tabulée, à la
+     * suite les unes des autres.
+     */
+    float[] HUES = hueTable();
+
+    /**
+     * Calcule la table des teintes pures, selon le découpage en six secteurs
+     * de {@link javafx.scene.paint.Color#hsb(double, double, double)}.
+     * 
+     * @return La table des teintes pures.
+     */
+    static float[] hueTable() {
+        float[] hues = new float[3 * HUE_STEPS];
+        for (int i = 0; i < HUE_STEPS; ++i) {
+            double h = i * 6d / HUE_STEPS;
+            float f = (float) (h - Math.floor(h));
+            float[] rgb;
+            switch ((int) h) {
+            case 0: rgb = new float[] { 1, f, 0 }; break;
+            case 1: rgb = new float[] { 1 - f, 1, 0 }; break;
+            case 2: rgb = new float[] { 0, 1, f }; break;
+            case 3: rgb = new float[] { 0, 1 - f, 1 }; break;
+            case 4: rgb = new float[] { f, 0, 1 }; break;
+            default: rgb = new float[] { 1, 0, 1 - f }; break;
+            }
+            System.arraycopy(rgb, 0, hues, 3 * i, 3);
+        }
+        return hues;
+    }
+
+    /**
+     * Retourne la couleur ARGB de teinte, saturation, luminosité et opacité
+     * données.
+     * 
+     * @param hue
+     *            La teinte, en degrés, ramenée entre 0 et 360.
+     * @param saturation
+     *            La saturation, entre 0 et 1.
+     * @param brightness
+     *            La luminosité, entre 0 et 1.
+     * @param opacity
+     *            L'opacité, entre 0 et 1.
+     * 
+     * @return La couleur ARGB correspondante.
+     * 
+     * @throws IllegalArgumentException
+     *             si la saturation, la luminosité ou l'opacité n'est pas entre
+     *             0 et 1.
+     */
+    static int hsb(float hue, float saturation, float brightness,
+            float opacity) {
+        checkArgument(!(saturation < 0 || saturation > 1 || brightness < 0
+                || brightness > 1),
+                "The given saturation or brightness is not between 0 and 1.");
+        // Une teinte infinie ou NaN donne un index quelconque mais valide.
+        int i = (int) (hue * HUE_STEPS_PER_DEGREE + 0.5f) % HUE_STEPS;
+        if (i < 0)
+            i += HUE_STEPS;
+        float grey = brightness * (1 - saturation);
+        float chroma = brightness * saturation;
+        return argb(grey + chroma * HUES[3 * i],
+                grey + chroma * HUES[3 * i + 1],
+                grey + chroma * HUES[3 * i + 2], opacity);
+    }
+
+    /**
+     * Retourne la couleur ARGB grise de niveau et d'opacité donnés.
+     * 
+     * @param gray
+     *            Le niveau de gris, entre 0 et 1.
+     * @param opacity
+     *            L'opacité, entre 0 et 1.
+     * 
+     * @return La couleur ARGB correspondante.
+     * 
+     * @throws IllegalArgumentException
+     *             si le niveau de gris ou l'opacité n'est pas entre 0 et 1.
+     */
+    static int gray(float gray, float opacity) {
+        checkArgument(!(gray < 0 || gray > 1),
+                "The given gray level is not between 0 and 1.");
+        return argb(gray, gray, gray, opacity);
+    }
+
+    /**
+     * Retourne la couleur ARGB de composantes données, arrondies comme par
+     * {@link ImagePainter#argbAt(int, int)}.
+     * 
+     * @throws IllegalArgumentException
+     *             si l'opacité n'est pas entre 0 et 1.
+     */
+    static int argb(float red, float green, float blue, float opacity) {
+        checkArgument(!(opacity < 0 || opacity > 1),
+                "The given opacity is not between 0 and 1.");
+        return (int) (opacity * 255 + 0.5f) << 24
+                | (int) (red * 255 + 0.5f) << 16
+                | (int) (green * 255 + 0.5f) << 8
+                | (int) (blue * 255 + 0.5f);
+    }
+}
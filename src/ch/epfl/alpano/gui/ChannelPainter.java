@@ -4,6 +4,7 @@ import static ch.epfl.alpano.Math2.floorMod;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.DoubleUnaryOperator;
 
 import ch.epfl.alpano.Panorama;
@@ -51,24 +52,53 @@ public interface ChannelPainter {
 
     /**
      * Permet de calculer la pente des voisins afin d'obtenir une approximation
-     * des lacs si = 0.
+     * des lacs si = 0. Somme les valeurs absolues des pentes du carré de côté
+     * 2 × FLATNESS_MARGIN + 1 centré sur chaque pixel. Le canal n'est
+     * matérialisé qu'à la première lecture d'une valeur, et chaque appel en
+     * matérialise un nouveau.
      * 
      * @param p
      *            Le panorama.
      *            
      * @return la pente des voisins afin d'obtenir une approximation des lacs si
      *         = 0.
+     * 
+     * @deprecated Utiliser {@link PanoramaChannels#totalSlopeOfNeighbors()},
+     *             dont le canal est partagé par tous les peintres utilisant la
+     *             même instance.
      */
+    @Deprecated
     static ChannelPainter totalSlopeOfNeigbors(Panorama p) {
+        PanoramaChannels channels = new PanoramaChannels(p);
+        AtomicReference<ChannelRaster> raster = new AtomicReference<>();
         return (x, y) -> {
-            float value = 0;
-            for(int i = -FLATNESS_MARGIN; i <= FLATNESS_MARGIN; ++i)
-                for(int j = -FLATNESS_MARGIN; j <= FLATNESS_MARGIN; ++j)
-                    value += p.absSlopeeAt(x + i, y + i, 0);
-            return value;
+            ChannelRaster r = raster.get();
+            if (r == null) {
+                r = channels.totalSlopeOfNeighbors();
+                raster.set(r);
+            }
+            return r.valueAt(x, y);
         };
     }
 
+    /**
+     * Matérialise le peintre de canal sur un rectangle de pixels, en
+     * parallèle : ses valeurs sont calculées une seule fois, puis lues dans un
+     * tableau.
+     * 
+     * @param width
+     *            La largeur du rectangle, strictement positive.
+     * @param height
+     *            La hauteur du rectangle, strictement positive.
+     * 
+     * @return Le peintre de canal matérialisé.
+     * 
+     * @see ChannelRaster#of(ChannelPainter, int, int)
+     */
+    default ChannelRaster materialize(int width, int height) {
+        return ChannelRaster.of(this, width, height);
+    }
+
     /**
      * Permet d'additionner une certaine valeur au peintre de canal.
      * 
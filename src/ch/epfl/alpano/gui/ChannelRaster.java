@@ -0,0 +1,121 @@
+package ch.epfl.alpano.gui;
+
+import static ch.epfl.alpano.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Peintre de canal matérialisé : ses valeurs sont calculées une fois pour
+ * toutes, en parallèle, et conservées dans un tableau. Contrairement à une
+ * composition de peintres de canal, dont chaque pixel est réévalué à travers
+ * toute la chaîne d'appels à chaque lecture, la lecture d'une valeur ne coûte
+ * qu'un accès au tableau.
+ *
+ * <p>
+ * Les canaux dérivés d'un Panorama sont matérialisés et partagés entre les
+ * peintres d'image par {@link PanoramaChannels}.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+public final class ChannelRaster implements ChannelPainter {
+
+    private final int width, height;
+    private final float[] values;
+
+    private ChannelRaster(int width, int height, float[] values) {
+        this.width = width;
+        this.height = height;
+        this.values = values;
+    }
+
+    /**
+     * Matérialise le peintre de canal donné sur un rectangle de pixels, en
+     * parallèle par bandes de lignes.
+     * 
+     * @param painter
+     *            Le peintre de canal à évaluer.
+     * @param width
+     *            La largeur du rectangle, strictement positive.
+     * @param height
+     *            La hauteur du rectangle, strictement positive.
+     * 
+     * @return Le canal matérialisé.
+     * 
+     * @throws NullPointerException
+     *             si le peintre de canal est null.
+     * @throws IllegalArgumentException
+     *             si la largeur ou la hauteur n'est pas strictement positive.
+     */
+    public static ChannelRaster of(ChannelPainter painter, int width,
+            int height) {
+        requireNonNull(painter, "The given channel painter is null.");
+        checkArgument(width > 0 && height > 0,
+                "The given width or height is not strictly positive.");
+        float[] values = new float[width * height];
+        RowTask.forEachRow(height, y -> {
+            for (int x = 0; x < width; ++x)
+                values[y * width + x] = painter.valueAt(x, y);
+        });
+        return new ChannelRaster(width, height, values);
+    }
+
+    /**
+     * Retourne la largeur du canal.
+     * 
+     * @return La largeur du canal.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Retourne la hauteur du canal.
+     * 
+     * @return La hauteur du canal.
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException
+     *             si les index sont hors du canal.
+     */
+    @Override
+    public float valueAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            throw new IndexOutOfBoundsException(
+                    "The given index is out of the channel.");
+        return values[y * width + x];
+    }
+
+    /**
+     * Combine ce canal et le canal donné, pixel par pixel, en un nouveau canal
+     * matérialisé.
+     * 
+     * @param that
+     *            L'autre canal, de mêmes dimensions.
+     * @param f
+     *            La fonction combinant une valeur de ce canal (premier
+     *            argument) et une valeur de l'autre (second argument).
+     * 
+     * @return Le canal matérialisé combiné.
+     * 
+     * @throws IllegalArgumentException
+     *             si les deux canaux n'ont pas les mêmes dimensions.
+     */
+    public ChannelRaster combine(ChannelRaster that, DoubleBinaryOperator f) {
+        checkArgument(width == that.width && height == that.height,
+                "The given channel does not have the same dimensions.");
+        requireNonNull(f, "The given function is null.");
+        float[] combined = new float[values.length];
+        RowTask.forEachRow(height, y -> {
+            for (int i = y * width; i < (y + 1) * width; ++i)
+                combined[i] = (float) f.applyAsDouble(values[i],
+                        that.values[i]);
+        });
+        return new ChannelRaster(width, height, combined);
+    }
+}
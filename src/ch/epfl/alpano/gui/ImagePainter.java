@@ -1,6 +1,5 @@
 package ch.epfl.alpano.gui;
 
-import static java.lang.Float.POSITIVE_INFINITY;
 import static java.lang.Math.PI;
 
 import ch.epfl.alpano.Panorama;
@@ -29,7 +28,29 @@ public interface ImagePainter {
     abstract Color colorAt(int x, int y);
 
     /**
-     * Permet d'obtenir la valeur TSV (HSB) de l'image.
+     * Couleur du peintre d'image aux index spécifiés, sous forme d'entier
+     * ARGB : 8 bits par composante, de l'opacité (bits de poids fort) au
+     * bleu. Les composantes sont arrondies comme le fait
+     * {@link javafx.scene.image.PixelWriter#setColor(int, int, Color)}.
+     * 
+     * @param x
+     *            L'index horizontal.
+     * @param y
+     *            L'index vertical.
+     * 
+     * @return La couleur ARGB du peintre d'image aux index <i>(x,y)</i>.
+     */
+    default int argbAt(int x, int y) {
+        Color c = colorAt(x, y);
+        return (int) Math.round(c.getOpacity() * 255) << 24
+                | (int) Math.round(c.getRed() * 255) << 16
+                | (int) Math.round(c.getGreen() * 255) << 8
+                | (int) Math.round(c.getBlue() * 255);
+    }
+
+    /**
+     * Permet d'obtenir la valeur TSV (HSB) de l'image. Sa couleur ARGB est
+     * obtenue à l'aide d'une table des teintes, sans créer de Color.
      * 
      * @param h
      *            La teinte de chaque pixel de l'image (hue).
@@ -44,12 +65,24 @@ public interface ImagePainter {
      */
     static ImagePainter hsb(ChannelPainter h, ChannelPainter s,
             ChannelPainter b, ChannelPainter o) {
-        return (x, y) -> Color.hsb(h.valueAt(x, y), s.valueAt(x, y),
-                b.valueAt(x, y), o.valueAt(x, y));
+        return new ImagePainter() {
+            @Override
+            public Color colorAt(int x, int y) {
+                return Color.hsb(h.valueAt(x, y), s.valueAt(x, y),
+                        b.valueAt(x, y), o.valueAt(x, y));
+            }
+
+            @Override
+            public int argbAt(int x, int y) {
+                return ArgbColors.hsb(h.valueAt(x, y), s.valueAt(x, y),
+                        b.valueAt(x, y), o.valueAt(x, y));
+            }
+        };
     }
 
     /**
-     * Permet d'obtenir la valeur en niveaux de gris de l'image.
+     * Permet d'obtenir la valeur en niveaux de gris de l'image. Sa couleur
+     * ARGB est obtenue sans créer de Color.
      * 
      * @param g
      *            Le niveau de gris de chaque pixel de l'image.
@@ -59,7 +92,17 @@ public interface ImagePainter {
      * @return Une image définie à l'aide de niveaux de gris.
      */
     static ImagePainter gray(ChannelPainter g, ChannelPainter o) {
-        return (x, y) -> Color.gray(g.valueAt(x, y), o.valueAt(x, y));
+        return new ImagePainter() {
+            @Override
+            public Color colorAt(int x, int y) {
+                return Color.gray(g.valueAt(x, y), o.valueAt(x, y));
+            }
+
+            @Override
+            public int argbAt(int x, int y) {
+                return ArgbColors.gray(g.valueAt(x, y), o.valueAt(x, y));
+            }
+        };
     }
 
     /**
@@ -71,14 +114,26 @@ public interface ImagePainter {
      * @return The corresponding standard colouring of the given Panorama.
      */
     static ImagePainter stdPanorama(Panorama panorama) {
-        ChannelPainter distance = panorama::distanceAt;
-        ChannelPainter slope = panorama::slopeAt;
+        return stdPanorama(new PanoramaChannels(panorama));
+    }
+
+    /**
+     * Computes the standard colouring of a Panorama from its channels, which
+     * it shares with the other painters given the same channels.
+     * 
+     * @param channels
+     *            The channels of the Panorama which we want to colour.
+     * 
+     * @return The corresponding standard colouring of the Panorama.
+     */
+    static ImagePainter stdPanorama(PanoramaChannels channels) {
+        ChannelPainter distance = channels.distance();
+        ChannelPainter slope = channels.slope();
         ChannelPainter h = distance.div(100_000).cycle().mul(360);
         ChannelPainter s = distance.div(200_000).clamp().invert();
         ChannelPainter b = slope.mul(2).div((float) PI).invert().mul(0.7f)
                 .add(0.3f);
-        ChannelPainter o = distance.map(d -> d == POSITIVE_INFINITY ? 0 : 1);
-        return hsb(h, s, b, o);
+        return hsb(h, s, b, channels.opacity());
     }
 
     /**
@@ -88,30 +143,40 @@ public interface ImagePainter {
      * @return
      */
     static ImagePainter outlinePanorama(Panorama panorama) {
-        ChannelPainter gray = ChannelPainter.maxDistanceToNeighbors(panorama)
-                .sub(500).div(4500).clamp().invert();
+        return outlinePanorama(new PanoramaChannels(panorama));
+    }
 
-        ChannelPainter distance = panorama::distanceAt;
-        ChannelPainter opacity = distance
-                .map(d -> d == Float.POSITIVE_INFINITY ? 0 : 1);
+    /**
+     * Returns the outline of a Panorama from its channels, which it shares
+     * with the other painters given the same channels.
+     * 
+     * @param channels
+     *            The channels of the Panorama.
+     * 
+     * @return The outline of the Panorama.
+     */
+    static ImagePainter outlinePanorama(PanoramaChannels channels) {
+        ChannelPainter gray = channels.maxDistanceToNeighbors().sub(500)
+                .div(4500).clamp().invert();
 
-        return gray(gray, opacity);
+        return gray(gray, channels.opacity());
     }
 
     static ImagePainter outlineWithLakesPanorama(Panorama panorama) {
-        ChannelPainter gray = ChannelPainter.maxDistanceToNeighbors(panorama)
-                .sub(500).div(4500).clamp().invert();
-        ChannelPainter distance = panorama::distanceAt;
-        ChannelPainter slopes = ChannelPainter.totalSlopeOfNeigbors(panorama);
+        return outlineWithLakesPanorama(new PanoramaChannels(panorama));
+    }
+
+    static ImagePainter outlineWithLakesPanorama(PanoramaChannels channels) {
+        ChannelPainter gray = channels.maxDistanceToNeighbors().sub(500)
+                .div(4500).clamp().invert();
+        ChannelPainter slopes = channels.totalSlopeOfNeighbors();
 
         ChannelPainter h = (x, y) -> slopes.valueAt(x, y) == 0 ? 210
                 : gray.valueAt(x, y);
         ChannelPainter s = slopes.map(v -> v == 0 ? 0.77f : 0);
         ChannelPainter b = (x, y) -> slopes.valueAt(x, y) == 0 ? 0.4f
                 : gray.valueAt(x, y);
-        ChannelPainter o = distance
-                .map(d -> d == Float.POSITIVE_INFINITY ? 0 : 1);
 
-        return hsb(h, s, b, o);
+        return hsb(h, s, b, channels.opacity());
     }
 }
@@ -0,0 +1,125 @@
+package ch.epfl.alpano.gui;
+
+import static java.util.Objects.requireNonNull;
+
+import ch.epfl.alpano.Panorama;
+
+/**
+ * Canaux d'un Panorama utilisés par les peintres d'image. La distance et la
+ * pente sont lues directement dans le Panorama ; les canaux qui en dérivent
+ * (opacité, distance maximale aux voisins, pente totale des voisins) sont
+ * matérialisés à leur première demande et conservés par l'instance, de sorte
+ * que plusieurs peintres d'image dessinant le même Panorama à l'aide de la
+ * même instance partagent les mêmes tableaux. Ceux-ci disparaissent avec
+ * l'instance : il appartient à l'appelant de la conserver aussi longtemps
+ * qu'il dessine le Panorama, typiquement le temps d'un rendu.
+ *
+ * <p>
+ * Peut être utilisée par plusieurs fils d'exécution à la fois.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+public final class PanoramaChannels {
+
+    private final Panorama panorama;
+
+    private ChannelRaster opacity, maxDistanceToNeighbors,
+            totalSlopeOfNeighbors;
+
+    /**
+     * Construit les canaux du Panorama donné. Aucun canal n'est matérialisé à
+     * la construction.
+     * 
+     * @param panorama
+     *            Le Panorama.
+     * 
+     * @throws NullPointerException
+     *             si le Panorama est null.
+     */
+    public PanoramaChannels(Panorama panorama) {
+        this.panorama = requireNonNull(panorama,
+                "The given panorama is null.");
+    }
+
+    /**
+     * Retourne le Panorama dont proviennent les canaux.
+     * 
+     * @return Le Panorama.
+     */
+    public Panorama panorama() {
+        return panorama;
+    }
+
+    /**
+     * Retourne le canal des distances du Panorama, lu directement dans
+     * celui-ci.
+     * 
+     * @return Le canal des distances.
+     */
+    public ChannelPainter distance() {
+        return panorama::distanceAt;
+    }
+
+    /**
+     * Retourne le canal des pentes du Panorama, lu directement dans celui-ci.
+     * 
+     * @return Le canal des pentes.
+     */
+    public ChannelPainter slope() {
+        return panorama::slopeAt;
+    }
+
+    /**
+     * Retourne le canal matérialisé d'opacité du Panorama : 0 pour le ciel, 1
+     * ailleurs.
+     * 
+     * @return Le canal matérialisé d'opacité.
+     */
+    public synchronized ChannelRaster opacity() {
+        if (opacity == null)
+            opacity = materialize(distance()
+                    .map(d -> d == Float.POSITIVE_INFINITY ? 0 : 1));
+        return opacity;
+    }
+
+    /**
+     * Retourne le canal matérialisé de
+     * {@link ChannelPainter#maxDistanceToNeighbors(Panorama)}.
+     * 
+     * @return Le canal matérialisé de la distance au voisin le plus éloigné.
+     */
+    public synchronized ChannelRaster maxDistanceToNeighbors() {
+        if (maxDistanceToNeighbors == null)
+            maxDistanceToNeighbors = materialize(
+                    ChannelPainter.maxDistanceToNeighbors(panorama));
+        return maxDistanceToNeighbors;
+    }
+
+    /**
+     * Retourne le canal matérialisé de la somme des valeurs absolues des
+     * pentes de chaque pixel et de ses voisins, sur un carré de côté 2 ×
+     * {@link ChannelPainter#FLATNESS_MARGIN} + 1 centré sur lui ; les voisins
+     * hors du Panorama ont une pente nulle. Le canal est calculé à l'aide d'une
+     * table des sommes cumulées, en un temps par pixel indépendant de la
+     * taille du carré, et vaut exactement 0 là où toutes ces pentes sont
+     * nulles.
+     * 
+     * @return Le canal matérialisé de la pente totale des voisins.
+     */
+    public synchronized ChannelRaster totalSlopeOfNeighbors() {
+        if (totalSlopeOfNeighbors == null) {
+            SummedAreaTable table = new SummedAreaTable(
+                    slope().map(Math::abs), panorama.parameters().width(),
+                    panorama.parameters().height());
+            totalSlopeOfNeighbors = materialize((x, y) -> table.boxSum(x, y,
+                    ChannelPainter.FLATNESS_MARGIN));
+        }
+        return totalSlopeOfNeighbors;
+    }
+
+    private ChannelRaster materialize(ChannelPainter painter) {
+        return painter.materialize(panorama.parameters().width(),
+                panorama.parameters().height());
+    }
+}
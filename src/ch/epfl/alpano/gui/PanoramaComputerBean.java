@@ -9,8 +9,10 @@ import static javafx.collections.FXCollections.unmodifiableObservableList;
 
 import java.util.List;
 
+import ch.epfl.alpano.ColumnCache;
 import ch.epfl.alpano.Panorama;
 import ch.epfl.alpano.PanoramaComputer;
+import ch.epfl.alpano.PanoramaParameters;
 import ch.epfl.alpano.dem.ContinuousElevationModel;
 import ch.epfl.alpano.summit.Labelizable;
 import javafx.beans.property.BooleanProperty;
@@ -33,6 +35,36 @@ import javafx.scene.image.Image;
  */
 public final class PanoramaComputerBean {
 
+    /**
+     * Écart maximal, en pixels, entre l'azimut d'une colonne réutilisée et
+     * celui de la colonne à afficher. Un décalage d'un demi-pixel n'est pas
+     * visible, et permet de réutiliser toutes les colonnes lorsque le
+     * déplacement de l'azimut central n'est pas un nombre entier de pixels.
+     * Le Panorama affiché après un déplacement n'est donc pas exactement
+     * celui d'un calcul sans cache : chaque colonne réutilisée peut provenir
+     * d'un azimut distant d'au plus un demi-pixel de celui attendu.
+     */
+    private static final double COLUMN_TOLERANCE = 0.5;
+
+    /**
+     * Nombre maximal d'échantillons conservés entre deux calculs par le cache
+     * des colonnes du Panorama, soit 80 Mo (voir
+     * {@link ColumnCache#BYTES_PER_SAMPLE}). Celui des aperçus de résolution
+     * 2<sup>k</sup> fois plus faible en conserve 4<sup>k</sup> fois moins :
+     * l'ensemble des caches reste sous les 90 Mo, quelle que soit la taille
+     * du Panorama.
+     */
+    private static final long MAX_CACHED_SAMPLES = 4_000_000;
+
+    /**
+     * Aperçus calculés avant le Panorama en mode progressif : leur résolution
+     * est 2<sup>k</sup> fois plus faible que celle du Panorama, pour k allant
+     * de COARSEST_PREVIEW à FINEST_PREVIEW. Un aperçu de résolution moitié
+     * coûterait à lui seul le quart du Panorama, sans rien lui épargner ; les
+     * aperçus calculés n'en coûtent ensemble qu'environ 8 %.
+     */
+    private static final int COARSEST_PREVIEW = 3, FINEST_PREVIEW = 2;
+
     /**
      * La propriété du Panorama.
      */
@@ -61,6 +93,24 @@ public final class PanoramaComputerBean {
 
     private final BooleanProperty slopeNecessary;
 
+    private final BooleanProperty progressive;
+
+    /**
+     * Les colonnes des derniers Panoramas calculés, réutilisées lorsque seul
+     * l'azimut central ou le champ de vue change. La case d'index k contient
+     * celles des aperçus de résolution 2<sup>k</sup> fois plus faible, ou
+     * null si cet aperçu n'est pas calculé ; les lignes d'une colonne
+     * dépendant de l'angle d'un pixel, les colonnes ne peuvent être partagées
+     * entre les résolutions.
+     */
+    private final ColumnCache[] columns;
+
+    /**
+     * Le dernier calcul lancé, ou null si aucun calcul n'est en cours. N'est
+     * accédé que depuis le fil JavaFX.
+     */
+    private Computation computation;
+
     /**
      * Construit un PanoramaComputerBean en prenant un MNT continu et une liste
      * de sommets en arguments.
@@ -81,69 +131,32 @@ public final class PanoramaComputerBean {
         this.status = new SimpleDoubleProperty();
         this.hideNonSummits = new SimpleBooleanProperty(false);
         this.slopeNecessary = new SimpleBooleanProperty(true);
+        this.progressive = new SimpleBooleanProperty(true);
+        this.columns = new ColumnCache[COARSEST_PREVIEW + 1];
+        columns[0] = new ColumnCache(COLUMN_TOLERANCE, MAX_CACHED_SAMPLES);
+        for (int k = FINEST_PREVIEW; k <= COARSEST_PREVIEW; ++k)
+            columns[k] = new ColumnCache(COLUMN_TOLERANCE,
+                    MAX_CACHED_SAMPLES >> 2 * k);
 
         this.parameters.addListener((b, o, n) -> {
+            // Seul le dernier calcul lancé a le droit de publier son résultat,
+            // le précédent est donc annulé.
+            if (computation != null)
+                computation.cancel();
+            computation = null;
             if (n == null)
                 return;
             labels.clear();
-            new Thread() {
-                @Override
-                public void run() {
-                    PanoramaComputer pc = new PanoramaComputer(
-                            cemProperty().get(), slopeNecessary.get());
-                    System.out.println(
-                            "\n*************************************************************");
-                    if (panorama.get() != null)
-                        System.out.println("Erasing previous panorama...");
-                    panorama.set(null);
-                    image.set(null);
-                    System.out.println(
-                            "Launching computation with the following parameters:");
-                    System.out.println(
-                            "-------------------------------------------");
-                    System.out.println(parameters.get());
-                    System.out.println(
-                            "-------------------------------------------");
-                    status.bind(pc.statusProperty());
-                    long start = System.nanoTime();
-                    try {
-                        panorama.set(pc.computePanorama(
-                                parameters.get().panoramaParameters()));
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-
-                    status.unbind();
-                    status.set(0);
-                    System.out.printf("Panorama computed after %.3f seconds.%n",
-                            (System.nanoTime() - start) * 1e-9);
-                    Image i = renderPanorama(panorama.get(),
-                            slopeNecessary.get() ? stdPanorama(panorama.get())
-                                    : outlinePanorama(panorama.get()),
-                            status);
-
-                    System.out.printf("Panorama rendered after %.3f seconds.%n",
-                            (System.nanoTime() - start) * 1e-9);
-
-                    List<Node> list = new Labelizer(cemProperty().get(),
-                            summits, hideNonSummits.getValue())
-                                    .labels(parameters.get()
-                                            .panoramaDisplayParameters());
-                    System.out.printf(
-                            "Panorama's labels computed after %.3f seconds.%n",
-                            (System.nanoTime() - start) * 1e-9);
-
-                    runLater(() -> {
-                        labels.setAll(list);
-                        image.set(i);
-                        System.out
-                                .println("Computation and rendering finished.");
-                        System.out.println(
-                                "*************************************************************\n");
-                    });
-                }
-            }.start();
-
+            System.out.println(
+                    "\n*************************************************************");
+            if (panorama.get() != null)
+                System.out.println("Erasing previous panorama...");
+            panorama.set(null);
+            image.set(null);
+            computation = new Computation(n, cemProperty().get(),
+                    slopeNecessary.get(), hideNonSummits.get(),
+                    progressive.get(), summits, labels);
+            computation.start();
         });
     }
 
@@ -236,4 +249,180 @@ public final class PanoramaComputerBean {
         return slopeNecessary;
     }
 
+    /**
+     * Retourne la propriété indiquant si des aperçus de résolution croissante
+     * sont publiés avant le Panorama. Le Panorama et l'image publiés sont
+     * alors ceux du dernier aperçu calculé, jusqu'à ce que le Panorama soit
+     * terminé.
+     * 
+     * @return la propriété du mode progressif.
+     */
+    public BooleanProperty progressiveProperty() {
+        return progressive;
+    }
+
+    /**
+     * Fil d'exécution calculant, dessinant et étiquetant un Panorama. Il peut
+     * être annulé à tout moment ; il ne publie alors plus rien.
+     */
+    private final class Computation extends Thread {
+
+        private final PanoramaUserParameters parameters;
+        private final ContinuousElevationModel cem;
+        private final boolean slopeNecessary;
+        private final boolean hideNonSummits;
+        private final boolean progressive;
+        private final List<Labelizable> summits;
+        private final ObservableList<Node> labels;
+
+        private Computation(PanoramaUserParameters parameters,
+                ContinuousElevationModel cem, boolean slopeNecessary,
+                boolean hideNonSummits, boolean progressive,
+                List<Labelizable> summits, ObservableList<Node> labels) {
+            this.parameters = parameters;
+            this.cem = cem;
+            this.slopeNecessary = slopeNecessary;
+            this.hideNonSummits = hideNonSummits;
+            this.progressive = progressive;
+            this.summits = summits;
+            this.labels = labels;
+        }
+
+        /**
+         * Annule le calcul. Le calcul du Panorama s'arrête avant sa prochaine
+         * colonne et plus aucun résultat n'est publié.
+         */
+        private void cancel() {
+            interrupt();
+        }
+
+        /**
+         * Indique si ce calcul est le dernier lancé. Doit être appelée depuis
+         * le fil JavaFX.
+         * 
+         * @return vrai si ce calcul est le dernier lancé.
+         */
+        private boolean isLatest() {
+            return computation == this;
+        }
+
+        /**
+         * Publie l'avancement sur le fil JavaFX si ce calcul est le dernier
+         * lancé.
+         * 
+         * @param progress
+         *            L'avancement.
+         */
+        private void publishStatus(double progress) {
+            runLater(() -> {
+                if (isLatest())
+                    status.set(progress);
+            });
+        }
+
+        /**
+         * Retourne un PanoramaComputer utilisant le cache des colonnes de la
+         * résolution donnée.
+         */
+        private PanoramaComputer computer(int level) {
+            return new PanoramaComputer.Builder(cem)
+                    .setSlopeNecessary(slopeNecessary)
+                    .setColumnCache(columns[level]).build();
+        }
+
+        /**
+         * Retourne le peintre d'image du Panorama donné. Ses canaux dérivés
+         * ne sont conservés que le temps du rendu.
+         */
+        private ImagePainter painter(Panorama p) {
+            PanoramaChannels channels = new PanoramaChannels(p);
+            return slopeNecessary ? stdPanorama(channels)
+                    : outlinePanorama(channels);
+        }
+
+        /**
+         * Calcule, dessine et publie les aperçus de résolution croissante du
+         * Panorama donné. Les aperçus trop petits sont ignorés.
+         * 
+         * @throws InterruptedException
+         *             si le calcul est annulé.
+         */
+        private void computePreviews(PanoramaParameters full, long start)
+                throws InterruptedException {
+            for (int k = COARSEST_PREVIEW; k >= FINEST_PREVIEW; --k) {
+                int width = full.width() >> k, height = full.height() >> k;
+                if (width < 2 || height < 1)
+                    continue;
+                Panorama p = computer(k).computePanorama(new PanoramaParameters(
+                        full.observerPosition(), full.observerElevation(),
+                        full.centerAzimuth(), full.horizontalFieldOfView(),
+                        full.maxDistance(), width, height));
+                Image i = renderPanorama(p, painter(p));
+                System.out.printf("Preview 1/%d published after %.3f seconds.%n",
+                        1 << k, (System.nanoTime() - start) * 1e-9);
+                runLater(() -> {
+                    if (!isLatest())
+                        return;
+                    panorama.set(p);
+                    image.set(i);
+                });
+            }
+        }
+
+        @Override
+        public void run() {
+            System.out.println(
+                    "Launching computation with the following parameters:");
+            System.out.println("-------------------------------------------");
+            System.out.println(parameters);
+            System.out.println("-------------------------------------------");
+            long start = System.nanoTime();
+            Panorama p;
+            try {
+                if (progressive)
+                    computePreviews(parameters.panoramaParameters(), start);
+                p = computer(0).computePanorama(
+                        parameters.panoramaParameters(), this::publishStatus);
+            } catch (InterruptedException e) {
+                System.out.println("Computation cancelled.");
+                return;
+            }
+
+            System.out.printf(
+                    "Panorama computed after %.3f seconds (%d columns cached).%n",
+                    (System.nanoTime() - start) * 1e-9, columns[0].size());
+            // Un calcul annulé juste après la fin du Panorama ne le dessine
+            // pas, son image ne pouvant plus être publiée.
+            if (isInterrupted()) {
+                System.out.println("Computation cancelled.");
+                return;
+            }
+            Image i = renderPanorama(p, painter(p), this::publishStatus);
+
+            System.out.printf("Panorama rendered after %.3f seconds.%n",
+                    (System.nanoTime() - start) * 1e-9);
+            if (isInterrupted()) {
+                System.out.println("Computation cancelled.");
+                return;
+            }
+
+            List<Node> list = new Labelizer(cem, summits, hideNonSummits)
+                    .labels(parameters.panoramaDisplayParameters());
+            System.out.printf(
+                    "Panorama's labels computed after %.3f seconds.%n",
+                    (System.nanoTime() - start) * 1e-9);
+
+            runLater(() -> {
+                if (!isLatest())
+                    return;
+                panorama.set(p);
+                labels.setAll(list);
+                image.set(i);
+                System.out.println("Computation and rendering finished.");
+                System.out.println(
+                        "*************************************************************\n");
+            });
+        }
+    }
+
 }
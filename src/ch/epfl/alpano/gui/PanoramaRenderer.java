@@ -1,14 +1,19 @@
 package ch.epfl.alpano.gui;
 
+import java.awt.image.BufferedImage;
+
 import ch.epfl.alpano.Panorama;
+import ch.epfl.alpano.ProgressListener;
+import ch.epfl.alpano.ProgressTracker;
 
-import javafx.beans.property.DoubleProperty;
 import javafx.scene.image.Image;
-import javafx.scene.image.PixelWriter;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.WritableImage;
 
 /**
- * Permet de dessiner un panorama à l'aide d'un peintre d'image.
+ * Permet de dessiner un panorama à l'aide d'un peintre d'image. Les pixels
+ * sont évalués en parallèle, par bandes de lignes, dans un tableau de
+ * couleurs ARGB, transmis ensuite en une fois à l'image.
  *
  * @author Robin Mamie (257234)
  * @author Maxence Jouve (269716)
@@ -26,17 +31,81 @@ public interface PanoramaRenderer {
      * @return Une image représentant le panorama selon le peintre d'image passé
      *         en argument.
      */
+    static Image renderPanorama(Panorama p, ImagePainter iP) {
+        return renderPanorama(p, iP, ProgressListener.NONE);
+    }
+
+    /**
+     * Dessine un panorama à l'aide d'un peintre d'image en informant
+     * l'auditeur donné de l'avancement du dessin.
+     * 
+     * @param p
+     *            Le panorama à dessiner.
+     * @param iP
+     *            Le peintre d'image définissant les règles de dessin.
+     * @param listener
+     *            L'auditeur informé de la proportion de lignes dessinées,
+     *            appelé depuis les fils d'exécution du dessin.
+     * 
+     * @return Une image représentant le panorama selon le peintre d'image passé
+     *         en argument.
+     */
     static Image renderPanorama(Panorama p, ImagePainter iP,
-            DoubleProperty status) {
-        WritableImage i = new WritableImage(p.parameters().width(),
-                p.parameters().height());
-        PixelWriter pW = i.getPixelWriter();
-        double increment = 1d / i.getWidth();
-        for (int x = 0; x < i.getWidth(); ++x) {
-            for (int y = 0; y < i.getHeight(); ++y)
-                pW.setColor(x, y, iP.colorAt(x, y));
-            status.set(status.get() + increment);
-        }
+            ProgressListener listener) {
+        int width = p.parameters().width(), height = p.parameters().height();
+        WritableImage i = new WritableImage(width, height);
+        i.getPixelWriter().setPixels(0, 0, width, height,
+                PixelFormat.getIntArgbInstance(), renderArgb(p, iP, listener),
+                0, width);
+        return i;
+    }
+
+    /**
+     * Dessine un panorama à l'aide d'un peintre d'image dans une image AWT,
+     * sans passer par JavaFX. Destinée aux programmes sans interface
+     * graphique.
+     * 
+     * @param p
+     *            Le panorama à dessiner.
+     * @param iP
+     *            Le peintre d'image définissant les règles de dessin.
+     * 
+     * @return Une image ARGB représentant le panorama.
+     */
+    static BufferedImage renderBufferedImage(Panorama p, ImagePainter iP) {
+        int width = p.parameters().width(), height = p.parameters().height();
+        BufferedImage i = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_ARGB);
+        i.setRGB(0, 0, width, height,
+                renderArgb(p, iP, ProgressListener.NONE), 0, width);
         return i;
     }
+
+    /**
+     * Évalue le peintre d'image en chaque pixel du panorama, en parallèle par
+     * bandes de lignes.
+     * 
+     * @param p
+     *            Le panorama à dessiner.
+     * @param iP
+     *            Le peintre d'image définissant les règles de dessin.
+     * @param listener
+     *            L'auditeur informé de la proportion de lignes dessinées.
+     * 
+     * @return Les couleurs ARGB des pixels, ligne par ligne depuis le haut
+     *         (voir {@link ImagePainter#argbAt(int, int)}).
+     */
+    static int[] renderArgb(Panorama p, ImagePainter iP,
+            ProgressListener listener) {
+        int width = p.parameters().width(), height = p.parameters().height();
+        int[] argb = new int[width * height];
+        ProgressTracker progress = new ProgressTracker(height, listener);
+        RowTask.forEachRow(height, y -> {
+            for (int x = 0; x < width; ++x)
+                argb[y * width + x] = iP.argbAt(x, y);
+            progress.advance();
+        });
+        progress.finish();
+        return argb;
+    }
 }
@@ -0,0 +1,59 @@
+package ch.epfl.alpano.gui;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Tâche parcourant les lignes d'une image en parallèle : la plage de lignes
+ * est divisée en deux tant qu'elle en comporte plus de
+ * {@value #ROWS_PER_TASK}, puis chaque ligne est traitée par l'action donnée.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class RowTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Nombre de lignes en dessous duquel une bande n'est plus divisée entre
+     * plusieurs tâches.
+     */
+    static final int ROWS_PER_TASK = 16;
+
+    private final IntConsumer row;
+    private final int start, stop;
+
+    private RowTask(IntConsumer row, int start, int stop) {
+        this.row = row;
+        this.start = start;
+        this.stop = stop;
+    }
+
+    /**
+     * Applique l'action donnée à chaque ligne de 0 (inclus) à height (exclus),
+     * en parallèle, et attend la fin du traitement.
+     *
+     * @param height
+     *            Le nombre de lignes.
+     * @param row
+     *            L'action traitant une ligne, appelée avec son index depuis
+     *            plusieurs fils d'exécution.
+     */
+    static void forEachRow(int height, IntConsumer row) {
+        ForkJoinPool.commonPool().invoke(new RowTask(row, 0, height));
+    }
+
+    @Override
+    protected void compute() {
+        if (stop - start > ROWS_PER_TASK) {
+            int middle = (start + stop) >>> 1;
+            invokeAll(new RowTask(row, start, middle),
+                    new RowTask(row, middle, stop));
+            return;
+        }
+        for (int y = start; y < stop; ++y)
+            row.accept(y);
+    }
+}
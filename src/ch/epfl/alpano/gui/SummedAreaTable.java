@@ -0,0 +1,91 @@
+package ch.epfl.alpano.gui;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Table des sommes cumulées d'un canal : chaque case contient la somme des
+ * valeurs du rectangle allant de l'origine à cette case. La somme des valeurs
+ * de tout rectangle s'en déduit en quatre lectures, quelle que soit sa
+ * taille.
+ *
+ * <p>
+ * Les sommes sont cumulées en double ; une somme obtenue par différence peut
+ * donc différer légèrement de la somme directe. Afin qu'un rectangle de
+ * valeurs toutes nulles ait une somme exactement nulle, la table compte en
+ * outre les valeurs non nulles.
+ *
+ * @author Robin Mamie (257234)
+ * @author Maxence Jouve (269716)
+ */
+final class SummedAreaTable {
+
+    private final int width, height;
+
+    /**
+     * Sommes et nombres de valeurs non nulles cumulés, sur une grille de
+     * (width + 1) × (height + 1) cases dont la première ligne et la première
+     * colonne sont nulles.
+     */
+    private final double[] sums;
+    private final int[] nonZero;
+
+    /**
+     * Construit la table des sommes cumulées du canal donné sur un rectangle
+     * de pixels.
+     *
+     * @param values
+     *            Le canal dont on somme les valeurs.
+     * @param width
+     *            La largeur du rectangle.
+     * @param height
+     *            La hauteur du rectangle.
+     */
+    SummedAreaTable(ChannelPainter values, int width, int height) {
+        this.width = width;
+        this.height = height;
+        int stride = width + 1;
+        this.sums = new double[stride * (height + 1)];
+        this.nonZero = new int[stride * (height + 1)];
+        for (int y = 0; y < height; ++y) {
+            double rowSum = 0;
+            int rowNonZero = 0;
+            for (int x = 0; x < width; ++x) {
+                float v = values.valueAt(x, y);
+                rowSum += v;
+                if (v != 0)
+                    ++rowNonZero;
+                int i = (y + 1) * stride + x + 1;
+                sums[i] = sums[i - stride] + rowSum;
+                nonZero[i] = nonZero[i - stride] + rowNonZero;
+            }
+        }
+    }
+
+    /**
+     * Retourne la somme des valeurs du carré de rayon donné centré sur le
+     * pixel donné. Les pixels du carré hors du rectangle valent 0.
+     *
+     * @param x
+     *            L'index horizontal du centre.
+     * @param y
+     *            L'index vertical du centre.
+     * @param radius
+     *            Le rayon du carré : son côté vaut 2 × radius + 1 pixels.
+     *
+     * @return La somme des valeurs du carré, exactement nulle si elles le sont
+     *         toutes.
+     */
+    float boxSum(int x, int y, int radius) {
+        int stride = width + 1;
+        int x0 = max(x - radius, 0), x1 = min(x + radius + 1, width);
+        int y0 = max(y - radius, 0), y1 = min(y + radius + 1, height);
+        if (x0 >= x1 || y0 >= y1)
+            return 0;
+        int a = y0 * stride + x0, b = y0 * stride + x1;
+        int c = y1 * stride + x0, d = y1 * stride + x1;
+        if (nonZero[d] - nonZero[b] - nonZero[c] + nonZero[a] == 0)
+            return 0;
+        return (float) (sums[d] - sums[b] - sums[c] + sums[a]);
+    }
+}
@@ -0,0 +1,252 @@
+package ch.epfl.alpano;
+
+import static ch.epfl.alpano.Math2.PI2;
+import static java.lang.Math.toRadians;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ch.epfl.alpano.ColumnCache.Column;
+import ch.epfl.alpano.ColumnCache.Generation;
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+import ch.epfl.alpano.dem.DiscreteElevationModel;
+
+public class ColumnCacheTest {
+
+    private static final int HEIGHT = 20;
+
+    private static final ContinuousElevationModel DEM = new ContinuousElevationModel(
+            new DiscreteElevationModel() {
+                private final Interval2D extent = new Interval2D(
+                        new Interval1D(0, 10), new Interval1D(0, 10));
+
+                @Override
+                public Interval2D extent() {
+                    return extent;
+                }
+
+                @Override
+                public double elevationSample(int x, int y) {
+                    return 0;
+                }
+            });
+
+    /**
+     * Retourne des paramètres dont les pixels mesurent 0.01 radian.
+     */
+    private static PanoramaParameters parameters(int elevation) {
+        return new PanoramaParameters(
+                new GeoPoint(toRadians(7), toRadians(46)), elevation, 0, 1,
+                100_000, 101, HEIGHT);
+    }
+
+    private static final double DELTA = parameters(1000).delta();
+
+    private static final List<Object> SETTINGS = Arrays.asList(DEM, false);
+
+    private static Generation prepare(ColumnCache cache) {
+        return cache.prepare(SETTINGS, parameters(1000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorFailsOnTooLargeTolerance() {
+        new ColumnCache(0.6, 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorFailsOnZeroSamples() {
+        new ColumnCache(0.5, 0);
+    }
+
+    @Test
+    public void getFindsNearestColumnUpToTolerance() {
+        ColumnCache cache = new ColumnCache(0.5, 1000);
+        Generation g = prepare(cache);
+        Column a = new Column(HEIGHT), b = new Column(HEIGHT);
+        cache.put(g, 1, a);
+        cache.put(g, 1 + DELTA, b);
+        assertSame(a, cache.get(g, 1 + 0.4 * DELTA));
+        assertSame(b, cache.get(g, 1 + 0.6 * DELTA));
+        assertSame(a, cache.get(g, 1 - 0.5 * DELTA));
+        assertSame(b, cache.get(g, 1 + 1.5 * DELTA));
+        assertNull(cache.get(g, 1 - 0.501 * DELTA));
+        assertNull(cache.get(g, 1 + 1.501 * DELTA));
+        assertEquals(4, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    public void zeroToleranceOnlyFindsSameAzimuth() {
+        ColumnCache cache = new ColumnCache(0, 1000);
+        Generation g = prepare(cache);
+        Column a = new Column(HEIGHT);
+        cache.put(g, 1, a);
+        assertSame(a, cache.get(g, 1));
+        assertSame(a, cache.get(g, Math.nextUp(1d)));
+        assertNull(cache.get(g, 1 + 0.001 * DELTA));
+    }
+
+    @Test
+    public void getWrapsAroundNorth() {
+        ColumnCache cache = new ColumnCache(0.5, 1000);
+        Generation g = prepare(cache);
+        Column west = new Column(HEIGHT);
+        cache.put(g, PI2 - 0.2 * DELTA, west);
+        assertSame(west, cache.get(g, 0.1 * DELTA));
+        assertSame(west, cache.get(g, 0));
+        assertNull(cache.get(g, 0.4 * DELTA));
+
+        cache = new ColumnCache(0.5, 1000);
+        g = prepare(cache);
+        Column east = new Column(HEIGHT);
+        cache.put(g, 0.2 * DELTA, east);
+        assertSame(east, cache.get(g, PI2 - 0.1 * DELTA));
+        assertNull(cache.get(g, PI2 - 0.4 * DELTA));
+    }
+
+    @Test
+    public void prepareKeepsGenerationForSameParameters() {
+        ColumnCache cache = new ColumnCache(0.5, 1000);
+        Generation g = prepare(cache);
+        Column a = new Column(HEIGHT);
+        cache.put(g, 1, a);
+        // Seul l'azimut central diffère.
+        Generation h = cache.prepare(SETTINGS,
+                new PanoramaParameters(
+                        new GeoPoint(toRadians(7), toRadians(46)), 1000, 2, 1,
+                        100_000, 101, HEIGHT));
+        assertSame(g, h);
+        assertSame(a, cache.get(h, 1));
+    }
+
+    @Test
+    public void prepareStartsEmptyGenerationWhenParametersChange() {
+        ColumnCache cache = new ColumnCache(0.5, 1000);
+        Generation g = prepare(cache);
+        cache.put(g, 1, new Column(HEIGHT));
+        assertEquals(1, cache.size());
+
+        Generation h = cache.prepare(SETTINGS, parameters(2000));
+        assertNotSame(g, h);
+        assertEquals(0, cache.size());
+        assertNull(cache.get(h, 1));
+        assertNotSame(h,
+                cache.prepare(Arrays.asList(DEM, true), parameters(2000)));
+    }
+
+    @Test
+    public void staleComputationDoesNotPolluteNewGeneration() {
+        ColumnCache cache = new ColumnCache(0.5, 1000);
+        Generation stale = prepare(cache);
+        Generation current = cache.prepare(SETTINGS, parameters(2000));
+        Column old = new Column(HEIGHT);
+        cache.put(stale, 1, old);
+        // Le calcul périmé retrouve sa colonne, le nouveau ne la voit pas.
+        assertSame(old, cache.get(stale, 1));
+        assertNull(cache.get(current, 1));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void putKeepsColumnsNearestToCenterWithinSampleBudget() {
+        // Trois colonnes et demie de HEIGHT échantillons, autour de
+        // l'azimut central 0.
+        ColumnCache cache = new ColumnCache(0.5, 3 * HEIGHT + HEIGHT / 2);
+        Generation g = prepare(cache);
+        Column[] columns = new Column[7];
+        for (int i = -3; i <= 3; ++i) {
+            columns[i + 3] = new Column(HEIGHT);
+            cache.put(g, Azimuth.canonicalize(i * DELTA), columns[i + 3]);
+            assertTrue(cache.size() <= 3);
+        }
+        assertEquals(3, cache.size());
+        assertEquals(3 * HEIGHT, cache.samples());
+        for (int i = -1; i <= 1; ++i)
+            assertSame(columns[i + 3],
+                    cache.get(g, Azimuth.canonicalize(i * DELTA)));
+        assertNull(cache.get(g, 2 * DELTA));
+        assertNull(cache.get(g, PI2 - 2 * DELTA));
+    }
+
+    @Test
+    public void putAlwaysKeepsOneColumn() {
+        ColumnCache cache = new ColumnCache(0.5, 1);
+        Generation g = cache.prepare(SETTINGS, new PanoramaParameters(
+                new GeoPoint(toRadians(7), toRadians(46)), 1000, 1.1, 1,
+                100_000, 101, HEIGHT));
+        Column near = new Column(HEIGHT);
+        cache.put(g, 1, near);
+        cache.put(g, 2, new Column(HEIGHT));
+        assertEquals(1, cache.size());
+        assertSame(near, cache.get(g, 1));
+    }
+
+    @Test
+    public void cancelledComputationStaysWithinSampleBudget()
+            throws InterruptedException {
+        ContinuousElevationModel hills = new ContinuousElevationModel(
+                new DiscreteElevationModel() {
+                    private final Interval2D extent = new Interval2D(
+                            new Interval1D(0, 7200), new Interval1D(0, 7200));
+
+                    @Override
+                    public Interval2D extent() {
+                        return extent;
+                    }
+
+                    @Override
+                    public double elevationSample(int x, int y) {
+                        return 500 + 500 * Math.sin(x / 16d) * Math.cos(y / 20d);
+                    }
+                });
+        ColumnCache cache = new ColumnCache(0.5, 10 * HEIGHT);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        PanoramaComputer computer = new PanoramaComputer.Builder(hills)
+                .setPool(pool).setColumnCache(cache).build();
+        Thread caller = Thread.currentThread();
+        try {
+            computer.computePanorama(new PanoramaParameters(
+                    new GeoPoint(toRadians(1), toRadians(1)), 1200, 0,
+                    toRadians(120), 100_000, 2000, HEIGHT),
+                    progress -> {
+                        if (progress > 0)
+                            caller.interrupt();
+                    });
+            fail("The computation was not cancelled.");
+        } catch (InterruptedException e) {
+            // Attendu.
+        } finally {
+            Thread.interrupted();
+        }
+        // Les tâches en cours terminent leur colonne et l'inscrivent.
+        assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertTrue(cache.misses() + " misses",
+                0 < cache.misses() && cache.misses() < 2000);
+        assertTrue(cache.size() + " columns", cache.size() <= 10);
+        assertTrue(cache.samples() <= 10 * HEIGHT);
+    }
+
+    @Test
+    public void computersWithDifferentSettingsDoNotShareColumns()
+            throws InterruptedException {
+        ColumnCache cache = new ColumnCache(0.5, 1000 * HEIGHT);
+        PanoramaParameters p = new PanoramaParameters(
+                new GeoPoint(toRadians(7), toRadians(46)), 1000, 0, 1,
+                1_000, 11, HEIGHT);
+        new PanoramaComputer.Builder(DEM).setColumnCache(cache).build()
+                .computePanorama(p);
+        assertEquals(0, cache.hits());
+        new PanoramaComputer.Builder(DEM).setColumnCache(cache)
+                .setBatchColumns(true).build().computePanorama(p);
+        assertEquals(0, cache.hits());
+        new PanoramaComputer.Builder(DEM).setColumnCache(cache)
+                .setBatchColumns(true).build().computePanorama(p);
+        assertEquals(11, cache.hits());
+    }
+}
@@ -0,0 +1,155 @@
+package ch.epfl.alpano;
+
+import static ch.epfl.alpano.Math2.improveRoot;
+import static ch.epfl.alpano.Math2.improveRootIllinois;
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static java.lang.Math.ceil;
+import static java.lang.Math.log;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+
+import org.junit.Test;
+
+public class Math2Test {
+
+    /**
+     * Fonction comptant ses évaluations.
+     */
+    private static final class Counted implements DoubleUnaryOperator {
+        private final DoubleUnaryOperator f;
+        private int calls;
+
+        Counted(DoubleUnaryOperator f) {
+            this.f = f;
+        }
+
+        @Override
+        public double applyAsDouble(double x) {
+            ++calls;
+            return f.applyAsDouble(x);
+        }
+    }
+
+    /**
+     * Nombre d'évaluations d'une dichotomie pure sur l'intervalle donné.
+     */
+    private static int bisectionCalls(double x1, double x2, double epsilon) {
+        return 2 + (int) ceil(log((x2 - x1) / epsilon) / log(2));
+    }
+
+    private static void assertLowerBound(double root, double x,
+            double epsilon) {
+        assertTrue(x + " > " + root, x <= root);
+        assertTrue(x + " < " + root + " - " + epsilon, root - x <= epsilon);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void improveRootIllinoisFailsWithoutRoot() {
+        improveRootIllinois(x -> x * x + 1, -1, 1, 1e-6);
+    }
+
+    @Test
+    public void improveRootIllinoisReturnsLowerBoundOfRandomLinearRoots() {
+        Random rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            double root = rng.nextDouble() * 1000 - 500;
+            double slope = (rng.nextDouble() * 10 + 0.01)
+                    * (rng.nextBoolean() ? 1 : -1);
+            double x1 = root - rng.nextDouble() * 1000;
+            double x2 = root + rng.nextDouble() * 1000;
+            double epsilon = 1e-3;
+            DoubleUnaryOperator f = x -> slope * (x - root);
+            double illinois = improveRootIllinois(f, x1, x2, epsilon);
+            double bisection = improveRoot(f, x1, x2, epsilon);
+            assertLowerBound(root, illinois, 2 * Math.ulp(root) + epsilon);
+            assertEquals(bisection, illinois, epsilon);
+        }
+    }
+
+    @Test
+    public void improveRootIllinoisClosesLinearRootsQuickly() {
+        // La corde tombe sur la racine, puis le décalage d'un demi-epsilon
+        // tombe de l'autre côté et ferme l'intervalle.
+        Counted f = new Counted(x -> 3 * x - 1);
+        assertLowerBound(1 / 3d, improveRootIllinois(f, -100, 200, 1e-6),
+                1e-6);
+        assertTrue(f.calls + " calls", f.calls <= 5);
+    }
+
+    @Test
+    public void improveRootIllinoisClosesIntervalWithHalfEpsilonShift() {
+        // Sans le décalage d'un demi-epsilon, l'approche de la racine reste
+        // unilatérale et demande environ deux fois plus d'évaluations.
+        Counted cos = new Counted(Math::cos);
+        assertLowerBound(Math.PI / 2, improveRootIllinois(cos, 0, 3, 1e-12),
+                1e-12);
+        assertTrue(cos.calls + " calls", cos.calls <= 10);
+
+        Counted square = new Counted(x -> x * x - 2e6);
+        assertLowerBound(Math.sqrt(2e6),
+                improveRootIllinois(square, 0, 1e4, 4), 4);
+        assertTrue(square.calls + " calls", square.calls <= 20);
+    }
+
+    @Test
+    public void improveRootIllinoisAgreesWithImproveRootWhenRootIsAtX1() {
+        DoubleUnaryOperator f = x -> x * x * x - 8;
+        assertEquals(improveRoot(f, 2, 10, 1e-6),
+                improveRootIllinois(f, 2, 10, 1e-6), 0);
+        assertEquals(2, improveRootIllinois(f, 2, 10, 1e-6), 0);
+    }
+
+    @Test
+    public void improveRootIllinoisBisectsWhenChordIsUndefined() {
+        // f(x1) = f(x2) = 0 : la corde donne NaN et la dichotomie prend le
+        // relais, comme dans improveRoot.
+        DoubleUnaryOperator f = x -> (x - 1) * (x - 5);
+        assertEquals(improveRoot(f, 1, 5, 1e-6),
+                improveRootIllinois(f, 1, 5, 1e-6), 0);
+        assertEquals(-3, improveRootIllinois(x -> 0, -3, 7, 1e-6), 0);
+    }
+
+    @Test
+    public void improveRootIllinoisBisectsWhenChordLeavesInterval() {
+        // Fonction en escalier : la corde tombe sur la borne supérieure, ou
+        // un demi-epsilon avant elle ; au plus deux itérations lentes
+        // précèdent chaque dichotomie.
+        Counted f = new Counted(x -> x < 0.7 ? -1 : 0);
+        assertLowerBound(0.7, improveRootIllinois(f, 0, 1, 1e-9), 1e-9);
+        assertTrue(f.calls + " calls",
+                f.calls <= 3 * bisectionCalls(0, 1, 1e-9));
+    }
+
+    @Test
+    public void improveRootIllinoisStaysCloseToBisectionOnStiffFunctions() {
+        // La fausse position progresse très lentement sur ces fonctions ;
+        // le compteur d'itérations lentes force une dichotomie.
+        double epsilon = 1e-9;
+        DoubleUnaryOperator[] functions = { x -> Math.pow(x, 40) - 1e-30,
+                x -> Math.exp(60 * x) - 2, x -> Math.atan(1e6 * (x - 0.3)),
+                x -> Math.cbrt(x - 0.123456) };
+        for (DoubleUnaryOperator g : functions) {
+            Counted f = new Counted(g);
+            double x = improveRootIllinois(f, 0, 1, epsilon);
+            assertTrue(g.applyAsDouble(x) * g.applyAsDouble(x + epsilon) <= 0);
+            assertTrue(f.calls + " calls",
+                    f.calls <= 3 * bisectionCalls(0, 1, epsilon));
+        }
+    }
+
+    @Test
+    public void improveRootIllinoisTerminatesOnRandomPolynomials() {
+        Random rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            double a = rng.nextDouble() * 2 - 1, b = rng.nextDouble() * 2 - 1,
+                    c = rng.nextDouble() * 2 - 1;
+            DoubleUnaryOperator f = x -> ((x - a) * (x - b) + c) * (x - a);
+            double x = improveRootIllinois(f, -2, 2, 1e-7);
+            assertTrue(-2 <= x && x <= 2);
+            assertTrue(f.applyAsDouble(x) * f.applyAsDouble(x + 1e-7) <= 0);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package ch.epfl.alpano;
+
+import static ch.epfl.alpano.dem.DiscreteElevationModel.SAMPLES_PER_RADIAN;
+import static java.lang.Math.PI;
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+import static java.lang.Math.toRadians;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Test;
+
+import ch.epfl.alpano.dem.ContinuousElevationModel;
+import ch.epfl.alpano.dem.DiscreteElevationModel;
+import ch.epfl.alpano.dem.MaxElevationIndex;
+
+public class PanoramaComputerTest {
+
+    private static final DiscreteElevationModel DEM = new DiscreteElevationModel() {
+        private final Interval2D extent = new Interval2D(
+                new Interval1D(0, 1200), new Interval1D(0, 1200));
+
+        @Override
+        public Interval2D extent() {
+            return extent;
+        }
+
+        @Override
+        public double elevationSample(int x, int y) {
+            return (1 + sin(2 * PI * x / 100) * cos(2 * PI * y / 130)) * 500;
+        }
+    };
+
+    private static final PanoramaParameters PARAMETERS = new PanoramaParameters(
+            new GeoPoint(600 / SAMPLES_PER_RADIAN, 600 / SAMPLES_PER_RADIAN),
+            1200, toRadians(30), toRadians(120), 15_000, 97, 41);
+
+    private static void assertSamePanorama(Panorama expected, Panorama actual) {
+        int mountains = 0;
+        for (int x = 0; x < PARAMETERS.width(); ++x) {
+            for (int y = 0; y < PARAMETERS.height(); ++y) {
+                assertEquals(expected.distanceAt(x, y),
+                        actual.distanceAt(x, y), 0);
+                assertEquals(expected.longitudeAt(x, y),
+                        actual.longitudeAt(x, y), 0);
+                assertEquals(expected.latitudeAt(x, y),
+                        actual.latitudeAt(x, y), 0);
+                assertEquals(expected.elevationAt(x, y),
+                        actual.elevationAt(x, y), 0);
+                assertEquals(expected.slopeAt(x, y), actual.slopeAt(x, y), 0);
+                if (expected.distanceAt(x, y) != Float.POSITIVE_INFINITY)
+                    ++mountains;
+            }
+        }
+        // Le panorama doit contenir du terrain et du ciel.
+        assertTrue(0 < mountains);
+        assertTrue(mountains < PARAMETERS.width() * PARAMETERS.height());
+    }
+
+    @Test
+    public void maxElevationIndexDoesNotChangeThePanorama()
+            throws InterruptedException {
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(DEM);
+        MaxElevationIndex index = new MaxElevationIndex(DEM);
+        Panorama expected = new PanoramaComputer(cDEM)
+                .computePanorama(PARAMETERS);
+        PanoramaComputer indexed = new PanoramaComputer.Builder(cDEM)
+                .setMaxElevationIndex(index).build();
+        assertSamePanorama(expected, indexed.computePanorama(PARAMETERS));
+        assertTrue(0 < indexed.skippedSteps());
+    }
+
+    @Test
+    public void maxElevationIndexDoesNotChangeBatchedColumns()
+            throws InterruptedException {
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(DEM);
+        MaxElevationIndex index = new MaxElevationIndex(DEM);
+        Panorama expected = new PanoramaComputer.Builder(cDEM)
+                .setBatchColumns(true).build().computePanorama(PARAMETERS);
+        PanoramaComputer indexed = new PanoramaComputer.Builder(cDEM)
+                .setMaxElevationIndex(index).setBatchColumns(true).build();
+        assertSamePanorama(expected, indexed.computePanorama(PARAMETERS));
+        assertTrue(0 < indexed.skippedSteps());
+    }
+
+    /**
+     * Vérifie que les colonnes calculées en avançant les rayons ensemble ne
+     * diffèrent de celles calculées rayon par rayon que de la précision de
+     * l'affinage : même répartition entre terrain et ciel et distances à
+     * moins de 4 mètres, la précision des racines.
+     */
+    private static void assertBatchMatchesScalar(int observerElevation)
+            throws InterruptedException {
+        PanoramaParameters p = new PanoramaParameters(
+                PARAMETERS.observerPosition(), observerElevation,
+                PARAMETERS.centerAzimuth(), PARAMETERS.horizontalFieldOfView(),
+                PARAMETERS.maxDistance(), PARAMETERS.width(),
+                PARAMETERS.height());
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(DEM);
+        Panorama scalar = new PanoramaComputer(cDEM).computePanorama(p);
+        Panorama batch = new PanoramaComputer.Builder(cDEM)
+                .setBatchColumns(true).build().computePanorama(p);
+        for (int x = 0; x < p.width(); ++x) {
+            for (int y = 0; y < p.height(); ++y) {
+                float expected = scalar.distanceAt(x, y);
+                if (expected == Float.POSITIVE_INFINITY)
+                    assertEquals(expected, batch.distanceAt(x, y), 0);
+                else
+                    assertEquals(expected, batch.distanceAt(x, y), 4);
+            }
+        }
+    }
+
+    @Test
+    public void batchedColumnsMatchScalarColumns()
+            throws InterruptedException {
+        assertBatchMatchesScalar(1200);
+    }
+
+    @Test
+    public void batchedColumnsMatchScalarColumnsBelowGround()
+            throws InterruptedException {
+        // Le sol est à 500 m sous l'observateur.
+        assertEquals(500, new ContinuousElevationModel(DEM)
+                .elevationAt(PARAMETERS.observerPosition()), 1e-6);
+        assertBatchMatchesScalar(0);
+    }
+
+    @Test
+    public void interruptedComputationStopsPromptly() throws Exception {
+        // Chaque échantillon coûte au moins 20 µs : le calcul complet dure
+        // plusieurs dizaines de secondes.
+        AtomicLong reads = new AtomicLong();
+        DiscreteElevationModel slow = new DiscreteElevationModel() {
+            @Override
+            public Interval2D extent() {
+                return DEM.extent();
+            }
+
+            @Override
+            public double elevationSample(int x, int y) {
+                reads.incrementAndGet();
+                LockSupport.parkNanos(20_000);
+                return DEM.elevationSample(x, y);
+            }
+        };
+        ForkJoinPool pool = new ForkJoinPool(2);
+        PanoramaComputer computer = new PanoramaComputer(
+                new ContinuousElevationModel(slow), false, pool);
+        PanoramaParameters p = new PanoramaParameters(
+                PARAMETERS.observerPosition(), 1200,
+                PARAMETERS.centerAzimuth(), PARAMETERS.horizontalFieldOfView(),
+                PARAMETERS.maxDistance(), 2000, 400);
+
+        Thread caller = Thread.currentThread();
+        AtomicLong interruptedAt = new AtomicLong();
+        try {
+            computer.computePanorama(p, progress -> {
+                // Interrompt le calcul dès que des colonnes sont calculées.
+                if (progress > 0 && interruptedAt.get() == 0) {
+                    interruptedAt.set(System.nanoTime());
+                    caller.interrupt();
+                }
+            });
+            fail("The computation was not interrupted.");
+        } catch (InterruptedException e) {
+            long delay = System.nanoTime() - interruptedAt.get();
+            assertTrue(interruptedAt.get() != 0);
+            assertTrue(delay < TimeUnit.SECONDS.toNanos(1));
+        }
+
+        // Les tâches en cours terminent leur colonne puis s'arrêtent.
+        assertTrue(pool.awaitQuiescence(5, TimeUnit.SECONDS));
+        long stopped = reads.get();
+        Thread.sleep(200);
+        assertEquals(stopped, reads.get());
+
+        // Le groupe reste utilisable.
+        Panorama small = computer.computePanorama(new PanoramaParameters(
+                p.observerPosition(), 1200, p.centerAzimuth(),
+                p.horizontalFieldOfView(), 2000, 3, 2));
+        assertEquals(3, small.parameters().width());
+        pool.shutdown();
+    }
+
+    @Test
+    public void statusPropertyFollowsTheListener() throws InterruptedException {
+        PanoramaComputer computer = new PanoramaComputer(
+                new ContinuousElevationModel(DEM));
+        List<Double> reported = new ArrayList<>();
+        computer.computePanorama(PARAMETERS, p -> {
+            synchronized (reported) {
+                reported.add(p);
+            }
+        });
+        assertEquals(0, reported.get(0), 0);
+        assertEquals(1, reported.get(reported.size() - 1), 0);
+        assertEquals(1, computer.statusProperty().get(), 0);
+    }
+}
@@ -0,0 +1,81 @@
+package ch.epfl.alpano;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static java.lang.Math.PI;
+import static java.lang.Math.toRadians;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PanoramaStorageTest {
+
+    private static final PanoramaParameters PARAMETERS = new PanoramaParameters(
+            new GeoPoint(toRadians(7.65), toRadians(46.73)), 600,
+            toRadians(180), toRadians(60), 100_000, 30, 20);
+
+    @Test
+    public void halfConversionRoundTripsEveryHalf() {
+        for (int h = 0; h <= 0xFFFF; ++h) {
+            float f = Math2.fromHalf((short) h);
+            if (!Float.isNaN(f))
+                assertEquals((short) h, Math2.toHalf(f));
+        }
+        assertEquals(Float.POSITIVE_INFINITY,
+                Math2.fromHalf(Math2.toHalf(Float.POSITIVE_INFINITY)), 0);
+        assertEquals(Float.POSITIVE_INFINITY,
+                Math2.fromHalf(Math2.toHalf(65520)), 0);
+        assertEquals(65504, Math2.fromHalf(Math2.toHalf(65519)), 0);
+        assertEquals(1 + 0x1p-10f,
+                Math2.fromHalf(Math2.toHalf(1 + 0x1.8p-11f)), 0);
+    }
+
+    @Test
+    public void unsetSamplesAreSkyInBothStorages() {
+        for (Panorama.Storage s : Panorama.Storage.values()) {
+            Panorama p = new Panorama.Builder(PARAMETERS, s).build();
+            assertEquals(Float.POSITIVE_INFINITY, p.distanceAt(3, 4), 0);
+            assertEquals(0, p.elevationAt(3, 4), 0);
+            assertEquals(0, p.slopeAt(3, 4), 0);
+        }
+    }
+
+    @Test
+    public void compactStorageQuantizesWithinItsSteps() {
+        Random rng = newRandom();
+        GeoPoint observer = PARAMETERS.observerPosition();
+        double range = Distance.toRadians(PARAMETERS.maxDistance());
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            float distance = (float) (rng.nextDouble() * 100_000);
+            float longitude = (float) (observer.longitude()
+                    + (2 * rng.nextDouble() - 1) * range);
+            float latitude = (float) (observer.latitude()
+                    + (2 * rng.nextDouble() - 1) * range);
+            float elevation = (float) (rng.nextDouble() * 9000 - 500);
+            float slope = (float) (rng.nextDouble() * PI / 2);
+            Panorama p = new Panorama.Builder(PARAMETERS,
+                    Panorama.Storage.COMPACT).setSampleAt(1, 2, distance,
+                            longitude, latitude, elevation, slope).build();
+
+            assertEquals(distance, p.distanceAt(1, 2), distance * 0x1p-11);
+            assertEquals(latitude, p.latitudeAt(1, 2), Distance.toRadians(3));
+            assertEquals(longitude, p.longitudeAt(1, 2),
+                    Distance.toRadians(5));
+            assertEquals(elevation, p.elevationAt(1, 2), 0.25);
+            assertEquals(slope, p.slopeAt(1, 2), PI / 2 / 255 / 2 + 1e-6);
+        }
+    }
+
+    @Test
+    public void compactStorageUsesLessMemory() {
+        Panorama full = new Panorama.Builder(PARAMETERS).build();
+        Panorama compact = new Panorama.Builder(PARAMETERS,
+                Panorama.Storage.COMPACT).build();
+        assertEquals(Panorama.Storage.FLOAT, full.storage());
+        assertEquals(20L * 30 * 20, full.memoryUsage());
+        assertEquals(9L * 30 * 20, compact.memoryUsage());
+        assertEquals(0.55, compact.storage().savings(), 1e-9);
+    }
+}
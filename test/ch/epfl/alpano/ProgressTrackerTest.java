@@ -0,0 +1,125 @@
+package ch.epfl.alpano;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class ProgressTrackerTest {
+
+    /**
+     * Auditeur mémorisant les avancements reçus.
+     */
+    private static final class Recorder implements ProgressListener {
+        private final List<Double> values = new ArrayList<>();
+
+        @Override
+        public synchronized void progressChanged(double progress) {
+            values.add(progress);
+        }
+
+        synchronized List<Double> values() {
+            return new ArrayList<>(values);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorFailsOnZeroTotal() {
+        new ProgressTracker(0, ProgressListener.NONE);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void constructorFailsOnNullListener() {
+        new ProgressTracker(1, null);
+    }
+
+    @Test
+    public void constructorReportsZero() {
+        Recorder r = new Recorder();
+        new ProgressTracker(10, r);
+        assertEquals(1, r.values().size());
+        assertEquals(0, r.values().get(0), 0);
+    }
+
+    @Test
+    public void updatesAreThrottled() {
+        Recorder r = new Recorder();
+        ProgressTracker t = new ProgressTracker(Long.MAX_VALUE, r);
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            t.advance();
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < 300_000_000L);
+        int allowed = (int) (elapsed * 1e-9
+                * ProgressTracker.MAX_UPDATES_PER_SECOND) + 1;
+        // L'avancement nul initial n'est pas limité.
+        assertTrue(r.values().size() - 1 <= allowed);
+        assertTrue(2 <= r.values().size());
+    }
+
+    @Test
+    public void finishAlwaysReportsOne() {
+        Recorder r = new Recorder();
+        ProgressTracker t = new ProgressTracker(3, r);
+        t.finish();
+        assertEquals(1, r.values().get(r.values().size() - 1), 0);
+
+        r = new Recorder();
+        t = new ProgressTracker(3, r);
+        for (int i = 0; i < 3; ++i)
+            t.advance();
+        t.finish();
+        t.finish();
+        List<Double> values = r.values();
+        assertEquals(1, values.get(values.size() - 1), 0);
+        assertEquals(1, values.get(values.size() - 2), 0);
+    }
+
+    @Test
+    public void reportedValuesNeverDecrease() throws InterruptedException {
+        List<Double> values = new ArrayList<>();
+        CountDownLatch firstReportStarted = new CountDownLatch(1);
+        AtomicBoolean firstReportDone = new AtomicBoolean();
+        // Le premier avancement non nul est transmis lentement : pendant ce
+        // temps, un autre fil d'exécution lit une somme plus grande et tente
+        // de la transmettre.
+        ProgressTracker t = new ProgressTracker(Long.MAX_VALUE, p -> {
+            if (p > 0 && firstReportStarted.getCount() > 0) {
+                firstReportStarted.countDown();
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized (values) {
+                values.add(p);
+            }
+        });
+        Thread slow = new Thread(() -> {
+            while (firstReportStarted.getCount() > 0)
+                t.advance();
+            firstReportDone.set(true);
+        });
+        slow.start();
+        firstReportStarted.await();
+        long start = System.nanoTime();
+        while (!firstReportDone.get()
+                && System.nanoTime() - start < 200_000_000L)
+            t.advance();
+        slow.join();
+        t.finish();
+
+        synchronized (values) {
+            assertTrue(3 <= values.size());
+            for (int i = 1; i < values.size(); ++i)
+                assertTrue(values.get(i - 1) <= values.get(i));
+            assertEquals(1, values.get(values.size() - 1), 0);
+        }
+    }
+}
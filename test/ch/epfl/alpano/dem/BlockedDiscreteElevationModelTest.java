@@ -0,0 +1,96 @@
+package ch.epfl.alpano.dem;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+
+public class BlockedDiscreteElevationModelTest {
+
+    /**
+     * MNT dont l'étendue ne tombe pas sur des bords de blocs : 201 × 101
+     * échantillons, soit des blocs partiels sur les bords nord et est.
+     */
+    private static final DiscreteElevationModel DEM = new DiscreteElevationModel() {
+        private final Interval2D extent = new Interval2D(
+                new Interval1D(-70, 130), new Interval1D(10, 110));
+
+        @Override
+        public Interval2D extent() {
+            return extent;
+        }
+
+        @Override
+        public double elevationSample(int x, int y) {
+            return Math.floorMod(x * 31 + y * 17, 3001) - 500;
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File convert() throws IOException {
+        File file = folder.newFile("dem.bdem");
+        BlockedDiscreteElevationModel.convert(DEM, file);
+        return file;
+    }
+
+    @Test
+    public void convertedFileRoundTripsEverySample() throws IOException {
+        BlockedDiscreteElevationModel blocked = new BlockedDiscreteElevationModel(
+                convert());
+        assertEquals(DEM.extent(), blocked.extent());
+        assertEquals(BlockedDiscreteElevationModel.fingerprint(DEM),
+                blocked.fingerprint());
+        for (int x = -70; x <= 130; ++x)
+            for (int y = 10; y <= 110; ++y)
+                assertEquals(DEM.elevationSample(x, y),
+                        blocked.elevationSample(x, y), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void elevationSampleFailsOutsideExtent() throws IOException {
+        new BlockedDiscreteElevationModel(convert()).elevationSample(131, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorFailsOnMissingFile() {
+        new BlockedDiscreteElevationModel(
+                new File(folder.getRoot(), "missing.bdem"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorFailsOnWrongMagicNumber() throws IOException {
+        File file = convert();
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            f.writeInt(0x12345678);
+        }
+        new BlockedDiscreteElevationModel(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorFailsOnSizeNotMatchingHeader() throws IOException {
+        File file = convert();
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            f.setLength(f.length() - 2);
+        }
+        new BlockedDiscreteElevationModel(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorFailsOnTruncatedHeader() throws IOException {
+        File file = convert();
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            f.setLength(BlockedDiscreteElevationModel.HEADER_SIZE - 1);
+        }
+        new BlockedDiscreteElevationModel(file);
+    }
+}
@@ -0,0 +1,98 @@
+package ch.epfl.alpano.dem;
+
+import static ch.epfl.alpano.dem.DiscreteElevationModel.SAMPLES_PER_RADIAN;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+
+public class DemPyramidTest {
+
+    private static final GeoPoint POINT = new GeoPoint(
+            100 / SAMPLES_PER_RADIAN, 100 / SAMPLES_PER_RADIAN);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static DiscreteElevationModel constantDEM(int size,
+            double elevation) {
+        Interval2D extent = new Interval2D(new Interval1D(0, size - 1),
+                new Interval1D(0, size - 1));
+        return new DiscreteElevationModel() {
+            @Override
+            public Interval2D extent() {
+                return extent;
+            }
+
+            @Override
+            public double elevationSample(int x, int y) {
+                return elevation;
+            }
+        };
+    }
+
+    private static void assertLevels(DemPyramid pyramid, double elevation) {
+        for (int k = 1; k < DemPyramid.LEVELS; ++k)
+            assertEquals(elevation, pyramid.level(k).elevationAt(POINT), 0);
+    }
+
+    @Test
+    public void existingLevelsAreReused() throws IOException {
+        File directory = folder.getRoot();
+        new DemPyramid(constantDEM(256, 100), directory, "dem");
+        File level = new File(directory, "dem-2x.bdem");
+        long modified = level.lastModified();
+        assertTrue(level.setLastModified(modified - 10_000));
+        assertLevels(new DemPyramid(constantDEM(256, 100), directory, "dem"),
+                100);
+        assertEquals(modified - 10_000, level.lastModified());
+    }
+
+    @Test
+    public void levelsOfAnotherDemAreRecreated() throws IOException {
+        File directory = folder.getRoot();
+        assertLevels(new DemPyramid(constantDEM(256, 100), directory, "dem"),
+                100);
+        assertLevels(new DemPyramid(constantDEM(256, 200), directory, "dem"),
+                200);
+    }
+
+    @Test
+    public void recreatedLevelsDoNotAffectMappedLevels() throws IOException {
+        // Windows refuse de remplacer un fichier projeté en mémoire.
+        assumeFalse(System.getProperty("os.name").startsWith("Windows"));
+        File directory = folder.getRoot();
+        DemPyramid old = new DemPyramid(constantDEM(256, 100), directory,
+                "dem");
+        DemPyramid recreated = new DemPyramid(constantDEM(256, 200),
+                directory, "dem");
+        assertLevels(old, 100);
+        assertLevels(recreated, 200);
+        String[] files = directory.list();
+        Arrays.sort(files);
+        assertArrayEquals(
+                new String[] { "dem-2x.bdem", "dem-4x.bdem", "dem-8x.bdem" },
+                files);
+    }
+
+    @Test
+    public void levelsOfAnotherExtentAreRecreated() throws IOException {
+        File directory = folder.getRoot();
+        new DemPyramid(constantDEM(512, 100), directory, "dem");
+        DemPyramid pyramid = new DemPyramid(constantDEM(256, 100), directory,
+                "dem");
+        assertEquals(new Interval1D(0, 127), new BlockedDiscreteElevationModel(
+                new File(directory, "dem-2x.bdem")).extent().iX());
+        assertLevels(pyramid, 100);
+    }
+}
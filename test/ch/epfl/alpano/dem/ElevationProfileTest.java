@@ -0,0 +1,78 @@
+package ch.epfl.alpano.dem;
+
+import static ch.epfl.alpano.Math2.lerp;
+import static java.lang.Math.toRadians;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.draw.WavyDEM;
+
+public class ElevationProfileTest {
+
+    private static final ContinuousElevationModel CEM = new ContinuousElevationModel(
+            new WavyDEM(new Interval2D(new Interval1D(0, 3600 * 2),
+                    new Interval1D(0, 3600 * 2))));
+
+    private static final GeoPoint ORIGIN = new GeoPoint(toRadians(0.5),
+            toRadians(0.5));
+
+    private static final double AZIMUTH = toRadians(30);
+
+    private static final double LENGTH = 50_000;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorFailsOnNegativeDenseStep() {
+        new ElevationProfile(CEM, ORIGIN, AZIMUTH, LENGTH, -1);
+    }
+
+    @Test
+    public void isDenseWorks() {
+        assertFalse(new ElevationProfile(CEM, ORIGIN, AZIMUTH, LENGTH).isDense());
+        assertTrue(new ElevationProfile(CEM, ORIGIN, AZIMUTH, LENGTH, 16)
+                .isDense());
+    }
+
+    @Test
+    public void denseProfileMatchesOnSamples() {
+        ElevationProfile exact = new ElevationProfile(CEM, ORIGIN, AZIMUTH,
+                LENGTH);
+        ElevationProfile dense = new ElevationProfile(CEM, ORIGIN, AZIMUTH,
+                LENGTH, 64);
+        for (double x = 0; x <= LENGTH; x += 64)
+            assertEquals(exact.elevationAt(x), dense.elevationAt(x), 1e-3);
+    }
+
+    @Test
+    public void denseProfileIsCloseBetweenSamples() {
+        ElevationProfile exact = new ElevationProfile(CEM, ORIGIN, AZIMUTH,
+                LENGTH);
+        ElevationProfile dense = new ElevationProfile(CEM, ORIGIN, AZIMUTH,
+                LENGTH, 4);
+        for (double x = 1.5; x <= LENGTH; x += 97)
+            assertEquals(exact.elevationAt(x), dense.elevationAt(x), 5);
+    }
+
+    @Test
+    public void denseProfileWorksAtLength() {
+        double step = 64, length = 1000.5;
+        ElevationProfile dense = new ElevationProfile(CEM, ORIGIN, AZIMUTH,
+                length, step);
+        // Le profil exact couvre aussi l'échantillon dense situé au-delà de
+        // la longueur.
+        ElevationProfile exact = new ElevationProfile(CEM, ORIGIN, AZIMUTH,
+                length + step);
+        int last = (int) (length / step);
+        double e0 = exact.elevationAt(last * step);
+        double e1 = exact.elevationAt((last + 1) * step);
+        for (double x = last * step; x <= length; x += 3.7)
+            assertEquals(lerp(e0, e1, (x - last * step) / step),
+                    dense.elevationAt(x), 1e-3);
+        assertEquals(lerp(e0, e1, (length - last * step) / step),
+                dense.elevationAt(length), 1e-3);
+    }
+
+}
@@ -0,0 +1,219 @@
+package ch.epfl.alpano.dem;
+
+import static ch.epfl.alpano.dem.DiscreteElevationModel.SAMPLES_PER_DEGREE;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+import ch.epfl.alpano.dem.HilbertDiscreteElevationModel.Layout;
+
+public class HilbertDiscreteElevationModelTest {
+
+    private static final int N = 8192;
+    private static final int BASE_X = SuperHgtDiscreteElevationModel.BASE_LON
+            * SAMPLES_PER_DEGREE;
+    private static final int BASE_Y = SuperHgtDiscreteElevationModel.BASE_LAT
+            * SAMPLES_PER_DEGREE;
+
+    /**
+     * Un MNT de 300 × 200 échantillons près du coin sud-ouest du premier
+     * fichier, chevauchant la limite de ses premiers quadrants.
+     */
+    private static final DiscreteElevationModel SOURCE = new DiscreteElevationModel() {
+        private final Interval2D extent = new Interval2D(
+                new Interval1D(BASE_X + 4000, BASE_X + 4299),
+                new Interval1D(BASE_Y + 4050, BASE_Y + 4249));
+
+        @Override
+        public Interval2D extent() {
+            return extent;
+        }
+
+        @Override
+        public double elevationSample(int x, int y) {
+            return (7 * x + 13 * y) % 4000;
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Calcul de référence, bit à bit, de l'index de Hilbert de (x, y).
+     */
+    private static int hilbertLoop(int x, int y) {
+        int d = 0;
+        for (int s = N / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = N - 1 - x;
+                    y = N - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Calcul de référence, bit à bit, de l'index de Morton de (x, y).
+     */
+    private static int mortonLoop(int x, int y) {
+        int d = 0;
+        for (int b = 0; b < 16; ++b)
+            d |= ((x >> b) & 1) << (2 * b) | ((y >> b) & 1) << (2 * b + 1);
+        return d;
+    }
+
+    /**
+     * Retourne des coordonnées couvrant les bords des quartets traités par la
+     * table, les bords du fichier et des valeurs régulièrement espacées.
+     */
+    private static int[] coordinates() {
+        int[] c = new int[2 * 64 + N / 61 + 1];
+        int i = 0;
+        for (int v = 0; v < 64; ++v) {
+            c[i++] = v;
+            c[i++] = N - 1 - v;
+        }
+        for (int v = 0; v < N; v += 61)
+            c[i++] = v;
+        return Arrays.copyOf(c, i);
+    }
+
+    @Test
+    public void hilbertTableMatchesReferenceLoop() {
+        for (int x : coordinates())
+            for (int y : coordinates())
+                assertEquals(hilbertLoop(x, y), Layout.HILBERT.index(x, y));
+        // Toutes les transitions entre quartets voisins d'un coin intérieur.
+        for (int x = 4096 - 300; x < 4096 + 300; ++x)
+            for (int y = 256 - 20; y < 256 + 20; ++y)
+                assertEquals(hilbertLoop(x, y), Layout.HILBERT.index(x, y));
+    }
+
+    @Test
+    public void mortonIndexInterleavesBits() {
+        for (int x : coordinates())
+            for (int y : coordinates())
+                assertEquals(mortonLoop(x, y), Layout.MORTON.index(x, y));
+    }
+
+    @Test
+    public void positionIsInverseOfIndexInBothLayouts() {
+        Random random = new Random(12);
+        for (Layout layout : Layout.values()) {
+            for (int x : coordinates()) {
+                for (int y : coordinates()) {
+                    int d = layout.index(x, y);
+                    assertTrue(0 <= d && d < N * N);
+                    assertEquals(y << 16 | x, layout.position(d));
+                }
+            }
+            for (int k = 0; k < 100_000; ++k) {
+                int d = random.nextInt(N * N);
+                int p = layout.position(d);
+                assertEquals(d, layout.index(p & 0xFFFF, p >> 16));
+            }
+        }
+    }
+
+    @Test
+    public void consecutiveHilbertIndicesAreNeighbours() {
+        int previous = Layout.HILBERT.position(0);
+        for (int d = 1; d < 1 << 20; ++d) {
+            int p = Layout.HILBERT.position(d);
+            int dx = Math.abs((p & 0xFFFF) - (previous & 0xFFFF));
+            int dy = Math.abs((p >> 16) - (previous >> 16));
+            assertEquals(1, dx + dy);
+            previous = p;
+        }
+    }
+
+    /**
+     * Retourne un fournisseur du MNT source comptant ses appels.
+     */
+    private static Supplier<DiscreteElevationModel> counted(
+            AtomicInteger calls) {
+        return () -> {
+            calls.incrementAndGet();
+            return SOURCE;
+        };
+    }
+
+    private static void assertSamplesOf(DiscreteElevationModel dem) {
+        Interval2D e = SOURCE.extent();
+        for (int y = e.iY().includedFrom() - 1; y <= e.iY().includedTo()
+                + 1; ++y) {
+            for (int x = e.iX().includedFrom() - 1; x <= e.iX().includedTo()
+                    + 1; ++x) {
+                double expected = e.contains(x, y)
+                        ? SOURCE.elevationSample(x, y) : 0;
+                assertEquals(expected, dem.elevationSample(x, y), 0);
+            }
+        }
+    }
+
+    @Test
+    public void fileIsRegeneratedOnlyWhenItsHeaderDiffers()
+            throws IOException {
+        File file = new File(folder.getRoot(), "alpano00.hhgt");
+        AtomicInteger calls = new AtomicInteger();
+        HilbertDiscreteElevationModel morton = new HilbertDiscreteElevationModel(
+                0, 0, Layout.MORTON, file, counted(calls));
+        assertEquals(1, calls.get());
+        assertEquals(HilbertDiscreteElevationModel.HEADER_SIZE + 2L * N * N,
+                file.length());
+        assertSamplesOf(morton);
+        assertEquals(0, morton.elevationSample(BASE_X + N - 1, BASE_Y + N - 1),
+                0);
+
+        // Même taille, autre ordre.
+        HilbertDiscreteElevationModel hilbert = new HilbertDiscreteElevationModel(
+                0, 0, Layout.HILBERT, file, counted(calls));
+        assertEquals(2, calls.get());
+        assertSamplesOf(hilbert);
+
+        // En-tête identique : le fichier est réutilisé.
+        assertSamplesOf(new HilbertDiscreteElevationModel(0, 0,
+                Layout.HILBERT, file, counted(calls)));
+        assertEquals(2, calls.get());
+
+        // Même taille, autre étendue.
+        new HilbertDiscreteElevationModel(1, 0, Layout.HILBERT, file,
+                counted(calls));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void fileWithoutHeaderIsRegenerated() throws IOException {
+        File file = folder.newFile();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // Taille correcte, mais en-tête nul, comme après une création
+            // interrompue.
+            raf.setLength(HilbertDiscreteElevationModel.HEADER_SIZE
+                    + 2L * N * N);
+        }
+        AtomicInteger calls = new AtomicInteger();
+        assertSamplesOf(new HilbertDiscreteElevationModel(0, 0,
+                Layout.HILBERT, file, counted(calls)));
+        assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,76 @@
+package ch.epfl.alpano.dem;
+
+import static java.lang.Math.toRadians;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+
+public class SlopeRasterCacheTest {
+
+    private static final DiscreteElevationModel DEM = new DiscreteElevationModel() {
+        private final Interval2D extent = new Interval2D(
+                new Interval1D(0, 3600 * 2 - 1), new Interval1D(0, 3600 - 1));
+
+        @Override
+        public Interval2D extent() {
+            return extent;
+        }
+
+        @Override
+        public double elevationSample(int x, int y) {
+            return (x * 31 + y * 17) % 101;
+        }
+    };
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorFailsWithoutTiles() {
+        new ContinuousElevationModel(DEM, 0);
+    }
+
+    @Test
+    public void slopeCacheIsNullByDefault() {
+        assertNull(new ContinuousElevationModel(DEM).slopeCache());
+    }
+
+    @Test
+    public void cachedSlopesMatchComputedSlopes() {
+        ContinuousElevationModel exact = new ContinuousElevationModel(DEM);
+        ContinuousElevationModel cached = new ContinuousElevationModel(DEM, 2);
+        for (double lon = 0.01; lon < 2; lon += 0.13)
+            for (double lat = 0.01; lat < 1; lat += 0.07)
+                assertEquals(
+                        exact.slopeAt(toRadians(lon), toRadians(lat)),
+                        cached.slopeAt(toRadians(lon), toRadians(lat)),
+                        1e-6);
+    }
+
+    @Test
+    public void cacheCountsHitsAndMisses() {
+        ContinuousElevationModel cem = new ContinuousElevationModel(DEM, 2);
+        SlopeRasterCache cache = cem.slopeCache();
+        assertEquals(0, cache.hitRate(), 0);
+
+        cem.slopeAt(toRadians(0.5), toRadians(0.5));
+        assertEquals(1, cache.misses());
+        assertEquals(3, cache.hits());
+        assertEquals(1, cache.residentTiles());
+        assertEquals(SlopeRasterCache.BYTES_PER_TILE, cache.memoryUsage());
+        assertEquals(0.75, cache.hitRate(), 1e-9);
+    }
+
+    @Test
+    public void cacheEvictsLeastRecentlyUsedTile() {
+        ContinuousElevationModel cem = new ContinuousElevationModel(DEM, 1);
+        SlopeRasterCache cache = cem.slopeCache();
+        cem.slopeAt(toRadians(0.5), toRadians(0.5));
+        cem.slopeAt(toRadians(1.5), toRadians(0.5));
+        assertEquals(1, cache.residentTiles());
+
+        cem.slopeAt(toRadians(0.5), toRadians(0.5));
+        assertEquals(3, cache.misses());
+    }
+
+}
@@ -0,0 +1,138 @@
+package ch.epfl.alpano.dem;
+
+import static ch.epfl.alpano.dem.DiscreteElevationModel.SAMPLES_PER_DEGREE;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+
+public class SuperHgtDiscreteElevationModelTest {
+
+    private static final int SIDE = SAMPLES_PER_DEGREE + 1;
+    private static final int D = SAMPLES_PER_DEGREE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Crée les quatre degrés entourant le point (0°, 0°) : leurs index sont
+     * négatifs à l'ouest et au sud.
+     */
+    @Before
+    public void createTiles() throws IOException {
+        for (int lon = -1; lon <= 0; ++lon)
+            for (int lat = -1; lat <= 0; ++lat)
+                try (RandomAccessFile raf = new RandomAccessFile(
+                        new File(folder.getRoot(),
+                                HgtDiscreteElevationModel.fileName(lon, lat)),
+                        "rw")) {
+                    raf.setLength(2L * SIDE * SIDE);
+                }
+
+        // Ligne au milieu des degrés sud, de part et d'autre du méridien.
+        write(-1, -1, -1, -D / 2, 11);
+        write(-1, -1, 0, -D / 2, 12);
+        write(0, -1, 0, -D / 2, 21);
+        write(0, -1, 1, -D / 2, 22);
+
+        // Colonne au milieu des degrés est, de part et d'autre de l'équateur.
+        write(0, -1, D / 2, -1, 31);
+        write(0, -1, D / 2, 0, 32);
+        write(0, 0, D / 2, 0, 41);
+        write(0, 0, D / 2, 1, 42);
+
+        // Point commun aux quatre degrés et coins de l'étendue.
+        write(-1, -1, 0, 0, 71);
+        write(0, -1, 0, 0, 72);
+        write(-1, 0, 0, 0, 73);
+        write(0, 0, 0, 0, 74);
+        write(-1, -1, -D, -D, 51);
+        write(0, 0, D, D, 61);
+    }
+
+    /**
+     * Écrit l'altitude donnée à l'index (x, y) du fichier du degré donné.
+     */
+    private void write(int lon, int lat, int x, int y, int value)
+            throws IOException {
+        File file = new File(folder.getRoot(),
+                HgtDiscreteElevationModel.fileName(lon, lat));
+        int row = (lat + 1) * D - y, column = x - lon * D;
+        assertTrue(0 <= row && row < SIDE && 0 <= column && column < SIDE);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(2L * (row * SIDE + column));
+            raf.writeShort(value);
+        }
+    }
+
+    private SuperHgtDiscreteElevationModel dem() {
+        return new SuperHgtDiscreteElevationModel(folder.getRoot(), -1, 1, -1,
+                1);
+    }
+
+    @Test
+    public void extentCoversNegativeDegrees() {
+        assertEquals(new Interval2D(new Interval1D(-D, D),
+                new Interval1D(-D, D)), dem().extent());
+    }
+
+    @Test
+    public void meridianIsReadFromTheWesternDegree() {
+        SuperHgtDiscreteElevationModel dem = dem();
+        assertEquals(11, dem.elevationSample(-1, -D / 2), 0);
+        assertEquals(12, dem.elevationSample(0, -D / 2), 0);
+        assertEquals(22, dem.elevationSample(1, -D / 2), 0);
+    }
+
+    @Test
+    public void equatorIsReadFromTheSouthernDegree() {
+        SuperHgtDiscreteElevationModel dem = dem();
+        assertEquals(31, dem.elevationSample(D / 2, -1), 0);
+        assertEquals(32, dem.elevationSample(D / 2, 0), 0);
+        assertEquals(42, dem.elevationSample(D / 2, 1), 0);
+    }
+
+    @Test
+    public void cornersAreReadFromTheirDegree() {
+        SuperHgtDiscreteElevationModel dem = dem();
+        assertEquals(71, dem.elevationSample(0, 0), 0);
+        assertEquals(51, dem.elevationSample(-D, -D), 0);
+        assertEquals(61, dem.elevationSample(D, D), 0);
+    }
+
+    @Test
+    public void continuousModelUsesTheSameDispatch() {
+        ContinuousElevationModel cDEM = new ContinuousElevationModel(dem());
+        assertEquals(12, cDEM.elevationAt(new GeoPoint(0,
+                -D / 2 / DiscreteElevationModel.SAMPLES_PER_RADIAN)), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void elevationSampleFailsOutsideExtent() {
+        dem().elevationSample(D + 1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorFailsOnMissingFile() {
+        new SuperHgtDiscreteElevationModel(folder.getRoot(), -1, 2, -1, 1);
+    }
+
+    @Test
+    public void fullIsCreatedWithoutReadingFiles() {
+        assertSame(SuperHgtDiscreteElevationModel.FULL,
+                SuperHgtDiscreteElevationModel.full());
+        assertEquals(new Interval2D(new Interval1D(6 * D, 12 * D),
+                new Interval1D(45 * D, 48 * D)),
+                SuperHgtDiscreteElevationModel.FULL.extent());
+    }
+}
@@ -0,0 +1,166 @@
+package ch.epfl.alpano.dem;
+
+import static ch.epfl.alpano.dem.DiscreteElevationModel.SAMPLES_PER_DEGREE;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ch.epfl.alpano.Interval1D;
+import ch.epfl.alpano.Interval2D;
+
+public class TiledHgtDiscreteElevationModelTest {
+
+    private static final int SIDE = SAMPLES_PER_DEGREE + 1;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Crée un fichier HGT creux, d'altitude nulle, dont le coin sud-ouest est
+     * au degré donné, et y inscrit l'altitude donnée au centre et aux deux
+     * échantillons voisins du bord est.
+     */
+    private File hgt(String name, int lon, int lat, short center)
+            throws IOException {
+        File f = new File(folder.getRoot(), name);
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.setLength(2L * SIDE * SIDE);
+            write(raf, SIDE / 2, SIDE / 2, center);
+            // Dernière colonne (bord est), partagée avec le degré voisin.
+            write(raf, SIDE / 2, SIDE - 1, (short) (center + 1));
+            // Première colonne (bord ouest).
+            write(raf, SIDE / 2, 0, (short) (center + 2));
+        }
+        return f;
+    }
+
+    private static void write(RandomAccessFile raf, int row, int column,
+            short value) throws IOException {
+        raf.seek(2L * (row * SIDE + column));
+        raf.writeShort(value);
+    }
+
+    /**
+     * Retourne l'index du centre du degré donné.
+     */
+    private static int center(int degree) {
+        return degree * SAMPLES_PER_DEGREE + SAMPLES_PER_DEGREE / 2;
+    }
+
+    private TiledHgtDiscreteElevationModel threeTiles(int maxMappedTiles)
+            throws IOException {
+        hgt("N46E006.hgt", 6, 46, (short) 100);
+        hgt("N46E007.hgt", 7, 46, (short) 200);
+        hgt("N47E007.hgt", 7, 47, (short) 300);
+        // Fichiers ignorés : taille invalide et nom invalide.
+        try (RandomAccessFile raf = new RandomAccessFile(
+                new File(folder.getRoot(), "N47E006.hgt"), "rw")) {
+            raf.setLength(1000);
+        }
+        assertTrue(new File(folder.getRoot(), "readme.txt").createNewFile());
+        return new TiledHgtDiscreteElevationModel(folder.getRoot(),
+                maxMappedTiles);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorFailsOnDirectoryWithoutHgtFile()
+            throws IOException {
+        folder.newFile("N46E006.txt");
+        new TiledHgtDiscreteElevationModel(folder.getRoot(), 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorFailsOnZeroMappedTiles() throws IOException {
+        hgt("N46E006.hgt", 6, 46, (short) 100);
+        new TiledHgtDiscreteElevationModel(folder.getRoot(), 0);
+    }
+
+    @Test
+    public void extentCoversAllFilesFound() throws IOException {
+        TiledHgtDiscreteElevationModel dem = threeTiles(4);
+        assertEquals(new Interval2D(
+                new Interval1D(6 * SAMPLES_PER_DEGREE, 8 * SAMPLES_PER_DEGREE),
+                new Interval1D(46 * SAMPLES_PER_DEGREE,
+                        48 * SAMPLES_PER_DEGREE)),
+                dem.extent());
+        assertEquals(0, dem.mappedTiles());
+    }
+
+    @Test
+    public void samplesAreReadFromTheirFile() throws IOException {
+        TiledHgtDiscreteElevationModel dem = threeTiles(4);
+        assertEquals(100, dem.elevationSample(center(6), center(46)), 0);
+        assertEquals(200, dem.elevationSample(center(7), center(46)), 0);
+        assertEquals(300, dem.elevationSample(center(7), center(47)), 0);
+        assertEquals(0, dem.elevationSample(center(6) + 1, center(46)), 0);
+        assertEquals(3, dem.mappedTiles());
+    }
+
+    @Test
+    public void sharedEdgeIsReadFromTheWesternFile() throws IOException {
+        TiledHgtDiscreteElevationModel dem = threeTiles(4);
+        int edge = 7 * SAMPLES_PER_DEGREE;
+        assertEquals(101, dem.elevationSample(edge, center(46)), 0);
+        assertEquals(102, dem.elevationSample(6 * SAMPLES_PER_DEGREE,
+                center(46)), 0);
+        assertEquals(201, dem.elevationSample(8 * SAMPLES_PER_DEGREE,
+                center(46)), 0);
+    }
+
+    @Test
+    public void degreesWithoutFileAreAtSeaLevel() throws IOException {
+        TiledHgtDiscreteElevationModel dem = threeTiles(4);
+        assertEquals(0, dem.elevationSample(center(6), center(47)), 0);
+        assertFalse(dem.isMapped(center(6), center(47)));
+        assertEquals(0, dem.mappedTiles());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void elevationSampleFailsOutsideExtent() throws IOException {
+        threeTiles(4).elevationSample(5 * SAMPLES_PER_DEGREE, center(46));
+    }
+
+    @Test
+    public void leastRecentlyReadFileIsUnmapped() throws IOException {
+        TiledHgtDiscreteElevationModel dem = threeTiles(2);
+        int a = center(46), b = center(47);
+        dem.elevationSample(center(6), a);
+        dem.elevationSample(center(7), a);
+        // Le premier degré redevient le plus récemment lu.
+        dem.elevationSample(center(6), a);
+        dem.elevationSample(center(7), b);
+        assertEquals(2, dem.mappedTiles());
+        assertTrue(dem.isMapped(center(6), a));
+        assertFalse(dem.isMapped(center(7), a));
+        assertTrue(dem.isMapped(center(7), b));
+
+        // Un degré abandonné est projeté de nouveau à sa lecture.
+        assertEquals(200, dem.elevationSample(center(7), a), 0);
+        assertEquals(2, dem.mappedTiles());
+        assertTrue(dem.isMapped(center(7), a));
+        assertFalse(dem.isMapped(center(6), a));
+    }
+
+    @Test
+    public void negativeDegreesAreSupported() throws IOException {
+        hgt("S01W001.hgt", -1, -1, (short) 10);
+        hgt("N00E000.hgt", 0, 0, (short) 20);
+        TiledHgtDiscreteElevationModel dem = new TiledHgtDiscreteElevationModel(
+                folder.getRoot(), 4);
+        assertEquals(new Interval2D(
+                new Interval1D(-SAMPLES_PER_DEGREE, SAMPLES_PER_DEGREE),
+                new Interval1D(-SAMPLES_PER_DEGREE, SAMPLES_PER_DEGREE)),
+                dem.extent());
+        assertEquals(10, dem.elevationSample(center(-1), center(-1)), 0);
+        assertEquals(20, dem.elevationSample(center(0), center(0)), 0);
+        assertEquals(0, dem.elevationSample(center(-1), center(0)), 0);
+        // Le méridien d'origine est lu dans le degré ouest.
+        assertEquals(11, dem.elevationSample(0, center(-1)), 0);
+    }
+}
@@ -0,0 +1,111 @@
+package ch.epfl.alpano.gui;
+
+import static java.lang.Math.abs;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import javafx.scene.paint.Color;
+
+public class ArgbColorsTest {
+
+    /**
+     * Vérifie que chaque composante des deux couleurs ARGB diffère au plus
+     * d'une unité.
+     */
+    private static void assertArgbEquals(int expected, int actual) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            int e = expected >>> shift & 0xFF, a = actual >>> shift & 0xFF;
+            assertTrue(String.format("%08x != %08x", expected, actual),
+                    abs(e - a) <= 1);
+        }
+    }
+
+    /**
+     * Retourne la couleur ARGB calculée par le chemin par défaut de
+     * ImagePainter#argbAt, qui passe par un Color.
+     */
+    private static int viaColor(Color c) {
+        ImagePainter p = (x, y) -> c;
+        return p.argbAt(0, 0);
+    }
+
+    @Test
+    public void hsbMatchesColorOverHueSaturationAndBrightness() {
+        for (int s = 0; s <= 20; ++s) {
+            for (int b = 0; b <= 20; ++b) {
+                for (float h = 0; h < 360; h += 0.37f) {
+                    assertArgbEquals(
+                            viaColor(Color.hsb(h, s / 20d, b / 20d, 1)),
+                            ArgbColors.hsb(h, s / 20f, b / 20f, 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void hsbMatchesColorOverOpacity() {
+        for (int o = 0; o <= 1000; ++o)
+            assertArgbEquals(viaColor(Color.hsb(200, 0.7, 0.6, o / 1000d)),
+                    ArgbColors.hsb(200, 0.7f, 0.6f, o / 1000f));
+    }
+
+    @Test
+    public void hsbWrapsNegativeAndLargeHues() {
+        for (float h = -1080; h < 1080; h += 0.73f) {
+            int expected = viaColor(Color.hsb(h, 0.9, 0.8, 1));
+            assertArgbEquals(expected, ArgbColors.hsb(h, 0.9f, 0.8f, 1));
+        }
+        assertArgbEquals(ArgbColors.hsb(0, 1, 1, 1),
+                ArgbColors.hsb(360, 1, 1, 1));
+        assertArgbEquals(ArgbColors.hsb(359.9f, 1, 1, 1),
+                ArgbColors.hsb(-0.1f, 1, 1, 1));
+    }
+
+    @Test
+    public void grayMatchesColor() {
+        for (int g = 0; g <= 1000; ++g)
+            for (int o = 0; o <= 10; ++o)
+                assertArgbEquals(viaColor(Color.gray(g / 1000d, o / 10d)),
+                        ArgbColors.gray(g / 1000f, o / 10f));
+    }
+
+    @Test
+    public void extremesAreExact() {
+        assertEquals(0xFFFFFFFF, ArgbColors.gray(1, 1));
+        assertEquals(0x00000000, ArgbColors.gray(0, 0));
+        assertEquals(0xFFFF0000, ArgbColors.hsb(0, 1, 1, 1));
+        assertEquals(0xFF00FF00, ArgbColors.hsb(120, 1, 1, 1));
+        assertEquals(0xFF0000FF, ArgbColors.hsb(240, 1, 1, 1));
+    }
+
+    @Test
+    public void hsbRejectsOutOfRangeValues() {
+        float[][] invalid = { { -0.01f, 0.5f, 1 }, { 1.01f, 0.5f, 1 },
+                { 0.5f, -0.01f, 1 }, { 0.5f, 1.01f, 1 }, { 0.5f, 0.5f, -0.01f },
+                { 0.5f, 0.5f, 1.01f } };
+        for (float[] v : invalid) {
+            try {
+                ArgbColors.hsb(90, v[0], v[1], v[2]);
+                fail("Accepted saturation, brightness and opacity "
+                        + v[0] + ", " + v[1] + ", " + v[2]);
+            } catch (IllegalArgumentException e) {
+                // attendu
+            }
+        }
+    }
+
+    @Test
+    public void grayRejectsOutOfRangeValues() {
+        float[][] invalid = { { -0.01f, 1 }, { 1.01f, 1 }, { 0.5f, -0.01f },
+                { 0.5f, 1.01f } };
+        for (float[] v : invalid) {
+            try {
+                ArgbColors.gray(v[0], v[1]);
+                fail("Accepted gray and opacity " + v[0] + ", " + v[1]);
+            } catch (IllegalArgumentException e) {
+                // attendu
+            }
+        }
+    }
+}
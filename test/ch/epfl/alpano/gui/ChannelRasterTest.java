@@ -0,0 +1,117 @@
+package ch.epfl.alpano.gui;
+
+import static ch.epfl.alpano.gui.ChannelPainter.FLATNESS_MARGIN;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static java.lang.Math.abs;
+import static java.lang.Math.toRadians;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Panorama;
+import ch.epfl.alpano.PanoramaParameters;
+
+public class ChannelRasterTest {
+
+    private static final int WIDTH = 40, HEIGHT = 30;
+
+    /**
+     * Panorama dont les pentes sont aléatoires, positives ou négatives, sauf
+     * dans un rectangle plat plus grand que le voisinage.
+     */
+    private static Panorama panorama() {
+        Panorama.Builder b = new Panorama.Builder(new PanoramaParameters(
+                new GeoPoint(0, 0), 1000, 0, toRadians(60), 10_000, WIDTH,
+                HEIGHT));
+        Random r = newRandom();
+        for (int x = 0; x < WIDTH; ++x)
+            for (int y = 0; y < HEIGHT; ++y)
+                if (x < 10 || x >= 25 || y < 5 || y >= 20)
+                    b.setSlopeAt(x, y, (float) (r.nextGaussian() * 0.3));
+        return b.build();
+    }
+
+    @Test
+    public void totalSlopeOfNeighborsSumsTheWholeSquare() {
+        Panorama p = panorama();
+        ChannelPainter slopes = new PanoramaChannels(p)
+                .totalSlopeOfNeighbors();
+        for (int x = 0; x < WIDTH; ++x) {
+            for (int y = 0; y < HEIGHT; ++y) {
+                double expected = 0;
+                for (int i = -FLATNESS_MARGIN; i <= FLATNESS_MARGIN; ++i)
+                    for (int j = -FLATNESS_MARGIN; j <= FLATNESS_MARGIN; ++j)
+                        expected += p.absSlopeeAt(x + i, y + j, 0);
+                assertEquals(expected, slopes.valueAt(x, y), 1e-4);
+            }
+        }
+    }
+
+    @Test
+    public void totalSlopeOfNeighborsIsExactlyZeroOnFlatAreas() {
+        ChannelPainter slopes = new PanoramaChannels(panorama())
+                .totalSlopeOfNeighbors();
+        for (int x = 10 + FLATNESS_MARGIN; x < 25 - FLATNESS_MARGIN; ++x)
+            for (int y = 5 + FLATNESS_MARGIN; y < 20 - FLATNESS_MARGIN; ++y)
+                assertEquals(0, slopes.valueAt(x, y), 0);
+        assertNotEquals(0, slopes.valueAt(10 + FLATNESS_MARGIN - 1, 12), 0);
+    }
+
+    @Test
+    public void derivedChannelsAreSharedWithinTheSameChannels() {
+        Panorama p = panorama();
+        PanoramaChannels channels = new PanoramaChannels(p);
+        assertSame(channels.opacity(), channels.opacity());
+        assertSame(channels.totalSlopeOfNeighbors(),
+                channels.totalSlopeOfNeighbors());
+        assertNotSame(channels.opacity(), new PanoramaChannels(p).opacity());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void deprecatedTotalSlopeOfNeighborsMatchesTheChannel() {
+        Panorama p = panorama();
+        ChannelPainter expected = new PanoramaChannels(p)
+                .totalSlopeOfNeighbors();
+        ChannelPainter actual = ChannelPainter.totalSlopeOfNeigbors(p);
+        for (int x = 0; x < WIDTH; ++x)
+            for (int y = 0; y < HEIGHT; ++y)
+                assertEquals(expected.valueAt(x, y), actual.valueAt(x, y), 0);
+    }
+
+    @Test
+    public void baseChannelsAreReadFromThePanorama() {
+        Panorama p = panorama();
+        PanoramaChannels channels = new PanoramaChannels(p);
+        for (int x = 0; x < WIDTH; ++x) {
+            for (int y = 0; y < HEIGHT; ++y) {
+                assertEquals(p.slopeAt(x, y), channels.slope().valueAt(x, y),
+                        0);
+                assertEquals(p.distanceAt(x, y),
+                        channels.distance().valueAt(x, y), 0);
+                assertEquals(0, channels.opacity().valueAt(x, y), 0);
+            }
+        }
+    }
+
+    @Test
+    public void materializedChannelMatchesPainter() {
+        ChannelPainter painter = (x, y) -> x * 0.5f - abs(y - 7);
+        ChannelRaster raster = painter.materialize(WIDTH, HEIGHT);
+        for (int x = 0; x < WIDTH; ++x)
+            for (int y = 0; y < HEIGHT; ++y)
+                assertEquals(painter.valueAt(x, y), raster.valueAt(x, y), 0);
+        ChannelRaster sum = raster.combine(raster, (a, b) -> a + b);
+        assertEquals(2 * painter.valueAt(3, 4), sum.valueAt(3, 4), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void combineFailsOnDifferentDimensions() {
+        ChannelPainter painter = (x, y) -> 1;
+        painter.materialize(2, 3).combine(painter.materialize(3, 2),
+                (a, b) -> a + b);
+    }
+}
@@ -0,0 +1,87 @@
+package ch.epfl.alpano.gui;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static java.lang.Math.abs;
+import static java.lang.Math.toRadians;
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.epfl.alpano.GeoPoint;
+import ch.epfl.alpano.Panorama;
+import ch.epfl.alpano.PanoramaParameters;
+import ch.epfl.alpano.ProgressListener;
+import javafx.scene.paint.Color;
+
+public class PanoramaRendererTest {
+
+    // Largeur et hauteur différentes, et plus grandes que les bandes de
+    // lignes, pour qu'une transposition ou un décalage de ligne se voie.
+    private static final int WIDTH = 157, HEIGHT = 61;
+
+    /**
+     * Panorama aux distances et pentes aléatoires, dont quelques points sont
+     * du ciel.
+     */
+    private static Panorama panorama() {
+        Panorama.Builder b = new Panorama.Builder(new PanoramaParameters(
+                new GeoPoint(0, 0), 1000, 0, toRadians(60), 300_000, WIDTH,
+                HEIGHT));
+        Random r = newRandom();
+        for (int x = 0; x < WIDTH; ++x) {
+            for (int y = 0; y < HEIGHT; ++y) {
+                if (r.nextInt(10) == 0)
+                    continue;
+                b.setDistanceAt(x, y, r.nextFloat() * 300_000);
+                b.setSlopeAt(x, y, r.nextFloat() * (float) (Math.PI / 2));
+            }
+        }
+        return b.build();
+    }
+
+    @Test
+    public void bufferedImageMatchesPerPixelColors() {
+        Panorama p = panorama();
+        for (ImagePainter painter : new ImagePainter[] {
+                ImagePainter.stdPanorama(p),
+                ImagePainter.outlinePanorama(p) }) {
+            BufferedImage image = PanoramaRenderer.renderBufferedImage(p,
+                    painter);
+            assertEquals(WIDTH, image.getWidth());
+            assertEquals(HEIGHT, image.getHeight());
+            // Chemin de référence : un Color par pixel, arrondi par
+            // l'implémentation par défaut de argbAt.
+            ImagePainter viaColor = painter::colorAt;
+            for (int y = 0; y < HEIGHT; ++y) {
+                for (int x = 0; x < WIDTH; ++x) {
+                    int expected = viaColor.argbAt(x, y);
+                    int actual = image.getRGB(x, y);
+                    for (int shift = 0; shift < 32; shift += 8)
+                        assertTrue(abs((expected >>> shift & 0xFF)
+                                - (actual >>> shift & 0xFF)) <= 1);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void argbBufferIsRowMajorFromTheTop() {
+        ImagePainter coordinates = (x, y) -> Color.rgb(x, y, 7);
+        Panorama p = panorama();
+        int[] argb = PanoramaRenderer.renderArgb(p, coordinates,
+                ProgressListener.NONE);
+        assertEquals(WIDTH * HEIGHT, argb.length);
+        BufferedImage image = PanoramaRenderer.renderBufferedImage(p,
+                coordinates);
+        for (int y = 0; y < HEIGHT; ++y) {
+            for (int x = 0; x < WIDTH; ++x) {
+                int expected = 0xFF << 24 | x << 16 | y << 8 | 7;
+                assertEquals(expected, argb[y * WIDTH + x]);
+                assertEquals(expected, image.getRGB(x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ch.epfl.alpano.testsuite;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+import ch.epfl.alpano.ColumnCacheTest;
+import ch.epfl.alpano.Math2Test;
+import ch.epfl.alpano.PanoramaComputerTest;
+import ch.epfl.alpano.PanoramaStorageTest;
+import ch.epfl.alpano.ProgressTrackerTest;
+import ch.epfl.alpano.dem.BlockedDiscreteElevationModelTest;
+import ch.epfl.alpano.dem.DemPyramidTest;
+import ch.epfl.alpano.dem.ElevationProfileTest;
+import ch.epfl.alpano.dem.HilbertDiscreteElevationModelTest;
+import ch.epfl.alpano.dem.SlopeRasterCacheTest;
+import ch.epfl.alpano.dem.SuperHgtDiscreteElevationModelTest;
+import ch.epfl.alpano.dem.TiledHgtDiscreteElevationModelTest;
+import ch.epfl.alpano.gui.ArgbColorsTest;
+import ch.epfl.alpano.gui.ChannelRasterTest;
+import ch.epfl.alpano.gui.PanoramaRendererTest;
+
+
+@RunWith(Suite.class)
+@SuiteClasses({
+    ElevationProfileTest.class,
+    BlockedDiscreteElevationModelTest.class,
+    DemPyramidTest.class,
+    HilbertDiscreteElevationModelTest.class,
+    SlopeRasterCacheTest.class,
+    SuperHgtDiscreteElevationModelTest.class,
+    TiledHgtDiscreteElevationModelTest.class,
+    ArgbColorsTest.class,
+    ChannelRasterTest.class,
+    PanoramaRendererTest.class,
+    PanoramaComputerTest.class,
+    Math2Test.class,
+    ColumnCacheTest.class,
+    PanoramaStorageTest.class,
+    ProgressTrackerTest.class})
+
+public class BonusTestSuite {
+
+}
@@ -9,7 +9,8 @@ import org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses({
                 Week2TestSuite.class,
                 Week5TestSuite.class,
-                Week9TestSuite.class})
+                Week9TestSuite.class,
+                BonusTestSuite.class})
 
 public class GlobalTestSuite {
 